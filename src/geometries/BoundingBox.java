@@ -2,10 +2,6 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
-
-import static primitives.Util.isZero;
-import static primitives.Util.alignZero;
 
 /**
  * a class that represents a bounding box for rendering optimization
@@ -17,6 +13,8 @@ public class BoundingBox {
      */
     private final Point minBoxPoint;
     private final Point maxBoxPoint;
+    /** the coordinates of the corners, for the tests that run for every ray */
+    private final double minX, minY, minZ, maxX, maxY, maxZ;
 
     /**
      * a constructor for a BoundingBox for the geometry
@@ -26,17 +24,50 @@ public class BoundingBox {
     public BoundingBox(Point minBoxPoint, Point maxBoxPoint) {
         this.minBoxPoint = minBoxPoint;
         this.maxBoxPoint = maxBoxPoint;
+        minX = minBoxPoint.getX();
+        minY = minBoxPoint.getY();
+        minZ = minBoxPoint.getZ();
+        maxX = maxBoxPoint.getX();
+        maxY = maxBoxPoint.getY();
+        maxZ = maxBoxPoint.getZ();
+    }
+
+    /**
+     * @return the corner of the box with the lowest coordinates
+     */
+    public Point getMin() {
+        return minBoxPoint;
+    }
+
+    /**
+     * @return the corner of the box with the highest coordinates
+     */
+    public Point getMax() {
+        return maxBoxPoint;
+    }
+
+    /**
+     * @return true if all the coordinates of the box are finite (the box of a plane isn't), false otherwise
+     */
+    public boolean isFinite() {
+        return Double.isFinite(minX) && Double.isFinite(minY) && Double.isFinite(minZ)
+                && Double.isFinite(maxX) && Double.isFinite(maxY) && Double.isFinite(maxZ);
+    }
+
+    /**
+     * @param point a point
+     * @return true if the point is inside the box or on its surface, false otherwise
+     */
+    public boolean contains(Point point) {
+        final double x = point.getX(), y = point.getY(), z = point.getZ();
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
     }
 
     /**
      * @return the center of the box
      */
     public Point getCenter() {
-        return new Point(
-            (minBoxPoint.getX() + maxBoxPoint.getX()) / 2,
-            (minBoxPoint.getY() + maxBoxPoint.getY()) / 2,
-            (minBoxPoint.getZ() + maxBoxPoint.getZ()) / 2
-        );
+        return new Point((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
     }
 
     /**
@@ -46,36 +77,68 @@ public class BoundingBox {
      * @return true if the ray intersects the box, false otherwise
      */
     public boolean intersects(Ray ray, double maxDistance) {
-        final Vector direction = ray.getDirection();
-        final Point origin = ray.getHead();
-        //the arrays represent coordinates like so: [0] = x, [1] = y, [2] = z
-        final double[] directionValues = {direction.getX(), direction.getY(), direction.getZ()};
-        final double[] originValues = {origin.getX(), origin.getY(), origin.getZ()};
-        final double[] minValues = {minBoxPoint.getX(), minBoxPoint.getY(), minBoxPoint.getZ()};
-        final double[] maxValues = {maxBoxPoint.getX(), maxBoxPoint.getY(), maxBoxPoint.getZ()};
-
-        double tmin = Double.NEGATIVE_INFINITY;
-        double tmax = Double.POSITIVE_INFINITY;
-
+        return intersects(ray, maxDistance, null);
+    }
 
-        for (int i = 0; i < 3; i++) {
-            if (isZero(directionValues[i])) {
-                if (originValues[i] < minValues[i] || originValues[i] > maxValues[i])
-                    return false;
-            } else {
-                double t1 = alignZero((minValues[i] - originValues[i]) / directionValues[i]);
-                double t2 = alignZero((maxValues[i] - originValues[i]) / directionValues[i]);
-                if (t1 > t2) {
-                    double temp = t1;
-                    t1 = t2;
-                    t2 = temp;
-                }
-                tmin = Math.max(tmin, t1);
-                tmax = Math.min(tmax, t2);
-                if (tmin > tmax) return false;
-            }
+    /**
+     * the slab test of a ray against the box, on the inverse direction the ray keeps.
+     * the near and far faces on every axis are picked by the signs of the direction, so a direction parallel
+     * to an axis (an infinite inverse) works without a special case
+     * @param ray the ray in question
+     * @param maxDistance the maximum distance the ray can travel
+     * @param range an array of 2 for the part of the ray inside the box - the distance it enters the box at and
+     *              the distance it leaves at, both clipped to [0, maxDistance] - for ordering the boxes of a
+     *              traversal. it is filled only if the ray intersects the box, null if it isn't needed
+     * @return true if the ray intersects the box, false otherwise
+     */
+    public boolean intersects(Ray ray, double maxDistance, double[] range) {
+        final Point head = ray.getHead();
+        final int signs = ray.getSigns();
+        double tNear = 0;
+        double tFar = maxDistance;
+        // a NaN (the head on the slab's border of an axis the ray is parallel to) leaves the range as is
+        double origin = head.getX();
+        double inverse = ray.getInverseX();
+        double tEnter = ((signs & 1) != 0 ? maxX - origin : minX - origin) * inverse;
+        double tExit = ((signs & 1) != 0 ? minX - origin : maxX - origin) * inverse;
+        if (tEnter > tNear) tNear = tEnter;
+        if (tExit < tFar) tFar = tExit;
+        if (tNear > tFar)
+            return false;
+        origin = head.getY();
+        inverse = ray.getInverseY();
+        tEnter = ((signs & 2) != 0 ? maxY - origin : minY - origin) * inverse;
+        tExit = ((signs & 2) != 0 ? minY - origin : maxY - origin) * inverse;
+        if (tEnter > tNear) tNear = tEnter;
+        if (tExit < tFar) tFar = tExit;
+        if (tNear > tFar)
+            return false;
+        origin = head.getZ();
+        inverse = ray.getInverseZ();
+        tEnter = ((signs & 4) != 0 ? maxZ - origin : minZ - origin) * inverse;
+        tExit = ((signs & 4) != 0 ? minZ - origin : maxZ - origin) * inverse;
+        if (tEnter > tNear) tNear = tEnter;
+        if (tExit < tFar) tFar = tExit;
+        if (tNear > tFar)
+            return false;
+        if (range != null) {
+            range[0] = tNear;
+            range[1] = tFar;
         }
-        return tmin < maxDistance && tmax > 0;
+        return true;
+    }
+
+    /**
+     * a method that creates a bounding box that is the intersection of two bounding boxes.
+     * if the boxes don't overlap, the result is empty (its min is bigger than its max on some axis)
+     * @param a the first box
+     * @param b the second box
+     * @return a new bounding box that is the part both boxes share
+     */
+    public static BoundingBox intersection(BoundingBox a, BoundingBox b) {
+        Point newMin = new Point(Math.max(a.minX, b.minX), Math.max(a.minY, b.minY), Math.max(a.minZ, b.minZ));
+        Point newMax = new Point(Math.min(a.maxX, b.maxX), Math.min(a.maxY, b.maxY), Math.min(a.maxZ, b.maxZ));
+        return new BoundingBox(newMin, newMax);
     }
 
     /**
@@ -84,16 +147,8 @@ public class BoundingBox {
      * @return a new bounding box that is the union of the two
      */
     public static BoundingBox union(BoundingBox a, BoundingBox b) {
-        Point newMin = new Point(
-            Math.min(a.minBoxPoint.getX(), b.minBoxPoint.getX()),
-            Math.min(a.minBoxPoint.getY(), b.minBoxPoint.getY()),
-            Math.min(a.minBoxPoint.getZ(), b.minBoxPoint.getZ())
-        );
-        Point newMax = new Point(
-            Math.max(a.maxBoxPoint.getX(), b.maxBoxPoint.getX()),
-            Math.max(a.maxBoxPoint.getY(), b.maxBoxPoint.getY()),
-            Math.max(a.maxBoxPoint.getZ(), b.maxBoxPoint.getZ())
-        );
+        Point newMin = new Point(Math.min(a.minX, b.minX), Math.min(a.minY, b.minY), Math.min(a.minZ, b.minZ));
+        Point newMax = new Point(Math.max(a.maxX, b.maxX), Math.max(a.maxY, b.maxY), Math.max(a.maxZ, b.maxZ));
         return new BoundingBox(newMin, newMax);
     }
 }
\ No newline at end of file
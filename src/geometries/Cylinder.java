@@ -2,9 +2,11 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 import primitives.Vector;
 
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -22,6 +24,7 @@ public class Cylinder extends Tube{
     public Cylinder(double radius, Ray axis, double height) {
         super(radius, axis);
         this.height = height;
+        boundingBox = partBox(axis, radius, 0, height);
     }
 
     /**
@@ -41,7 +44,61 @@ public class Cylinder extends Tube{
         return super.getNormal(point);
     }
 
-    public List<Point> findIntersections(Ray ray) {
-        return null;
+    @Override
+    protected BoundingBox unclippedBox() {
+        return partBox(axis, radius, 0, height);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        Point p0 = ray.getHead();
+        Point pa = axis.getHead();
+        Vector v = ray.getDirection();
+        Vector va = axis.getDirection();
+        // working on coordinates, since the parts along and across the axis may be zero vectors
+        double[] dir = {v.getX(), v.getY(), v.getZ()};
+        double[] axisDir = {va.getX(), va.getY(), va.getZ()};
+        double[] deltaP = {p0.getX() - pa.getX(), p0.getY() - pa.getY(), p0.getZ() - pa.getZ()};
+        double vAlong = dot(dir, axisDir);
+        double deltaPAlong = dot(deltaP, axisDir);
+        double[] vAcross = new double[3], deltaPAcross = new double[3];
+        for (int i = 0; i < 3; i++) {
+            vAcross[i] = dir[i] - axisDir[i] * vAlong;
+            deltaPAcross[i] = deltaP[i] - axisDir[i] * deltaPAlong;
+        }
+
+        List<GeoPoint> intersections = new LinkedList<>();
+        // the side - the tube's quadratic, keeping only the hits between the bases
+        double a = dot(vAcross, vAcross);
+        if (!isZero(a)) {
+            double b = 2 * dot(vAcross, deltaPAcross);
+            double c = dot(deltaPAcross, deltaPAcross) - radius * radius;
+            double discriminant = alignZero(b * b - 4 * a * c);
+            if (discriminant > 0) {
+                double root = Math.sqrt(discriminant);
+                for (double t : new double[]{(-b - root) / (2 * a), (-b + root) / (2 * a)}) {
+                    t = alignZero(t);
+                    double along = deltaPAlong + t * vAlong;
+                    if (t > 0 && alignZero(t - distance) <= 0 && alignZero(along) > 0 && alignZero(along - height) < 0)
+                        intersections.add(new GeoPoint(this, ray.getPoint(t)));
+                }
+            }
+        }
+        // the bases - the planes at both ends of the axis, keeping only the hits within the radius
+        if (!isZero(vAlong)) {
+            for (double base : new double[]{0, height}) {
+                double t = alignZero((base - deltaPAlong) / vAlong);
+                if (t <= 0 || alignZero(t - distance) > 0)
+                    continue;
+                double distanceSquared = 0;
+                for (int i = 0; i < 3; i++) {
+                    double across = deltaPAcross[i] + t * vAcross[i];
+                    distanceSquared += across * across;
+                }
+                if (alignZero(distanceSquared - radius * radius) <= 0)
+                    intersections.add(new GeoPoint(this, ray.getPoint(t)));
+            }
+        }
+        return clip(intersections.isEmpty() ? null : intersections);
     }
 }
\ No newline at end of file
@@ -1,7 +1,12 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Ray;
+import renderer.AccelerationStructure;
 import renderer.BVH;
+import renderer.Grid;
+import renderer.KdTree;
+import renderer.WideBVH;
 
 import java.util.Collections;
 import java.util.LinkedList;
@@ -13,7 +18,8 @@ import java.util.List;
  */
 public class Geometries extends Intersectable {
     private List<Intersectable> bodies = new LinkedList<>();
-    private BVH bvh;
+    /** the acceleration structure over the geometries (a BVH, a grid or a kd-tree), null if none was built */
+    private Intersectable accelerator;
 
     /**
      * Default constructor for Geometries
@@ -34,7 +40,23 @@ public class Geometries extends Intersectable {
      */
     public void add(Intersectable... geometries) {
         Collections.addAll(bodies, geometries);
-        bvh = null; // Invalidate BVH when new geometries are added
+        // a BVH takes the new geometries in, the other acceleration structures are invalidated
+        if (accelerator instanceof BVH bvh)
+            bvh.insert(geometries);
+        else
+            accelerator = null;
+    }
+
+    /**
+     * Update the acceleration structure after geometries in the collection changed their bounding boxes.
+     * a BVH is refitted around them, the other acceleration structures are invalidated
+     * @param geometries the geometries that changed
+     */
+    public void refit(Intersectable... geometries) {
+        if (accelerator instanceof BVH bvh)
+            bvh.refit(geometries);
+        else
+            accelerator = null;
     }
 
     /**
@@ -49,22 +71,163 @@ public class Geometries extends Intersectable {
      * Build the BVH for this Geometries object
      */
     public void buildBVH() {
-        if (bvh == null) {
-            bvh = new BVH(this);
+        buildBVH(BVH.DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * Build the BVH for this Geometries object.
+     * the BVH is built over all the primitives, ignoring the nesting of the collections
+     * @param leafSize the maximal amount of primitives in a leaf of the BVH
+     */
+    public void buildBVH(int leafSize) {
+        if (!(accelerator instanceof BVH bvh) || bvh.getLeafSize() != leafSize) {
+            accelerator = new BVH(this, leafSize);
+        }
+    }
+
+    /**
+     * Build a uniform grid for this Geometries object, instead of a BVH.
+     * the grid is a better fit for many primitives that are evenly spread
+     */
+    public void buildGrid() {
+        if (!(accelerator instanceof Grid)) {
+            accelerator = new Grid(this);
+        }
+    }
+
+    /**
+     * Build a kd-tree for this Geometries object, instead of a BVH.
+     * the kd-tree is a better fit for static scenes of many flat polygons
+     */
+    public void buildKdTree() {
+        if (!(accelerator instanceof KdTree)) {
+            accelerator = new KdTree(this);
+        }
+    }
+
+    /**
+     * Build a BVH with 4 children per node for this Geometries object, instead of a binary one.
+     * the wide BVH tests all the children of a node together, which is faster for static scenes,
+     * but it can't be updated when geometries are added
+     */
+    public void buildWideBVH() {
+        if (!(accelerator instanceof WideBVH)) {
+            accelerator = new WideBVH(this);
+        }
+    }
+
+    /**
+     * Build an acceleration structure for this Geometries object
+     * @param structure the kind of the acceleration structure
+     */
+    public void buildAccelerator(AccelerationStructure structure) {
+        switch (structure) {
+            case BVH -> buildBVH();
+            case GRID -> buildGrid();
+            case KD_TREE -> buildKdTree();
+            case WIDE_BVH -> buildWideBVH();
+        }
+    }
+
+    /**
+     * @return true if an acceleration structure was built (and not invalidated since), false otherwise
+     */
+    boolean hasAccelerator() {
+        return accelerator != null;
+    }
+
+    /**
+     * Get the BVH of this Geometries object
+     * @return the BVH, or null if it wasn't built (or was invalidated since)
+     */
+    public BVH getBVH() {
+        return accelerator instanceof BVH bvh ? bvh : null;
+    }
+
+    /**
+     * Switch the triangle meshes under this collection - in nested collections and in the shared geometries of
+     * instances too - between double and single precision, see {@link TriangleMesh#setSinglePrecision(boolean)}.
+     * the acceleration structures are refitted around the primitives whose bounding boxes changed
+     * @param singlePrecision true for single precision, false for double precision
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        setSinglePrecision(singlePrecision, new LinkedList<>());
+    }
+
+    /**
+     * Switch the triangle meshes under this collection between double and single precision
+     * @param singlePrecision true for single precision, false for double precision
+     * @param changed the list the primitives whose bounding boxes changed are added to, for the collections
+     *                this collection is nested in
+     */
+    private void setSinglePrecision(boolean singlePrecision, List<Intersectable> changed) {
+        List<Intersectable> primitives = new LinkedList<>();
+        for (Intersectable body : bodies) {
+            if (body instanceof Geometries nested)
+                nested.setSinglePrecision(singlePrecision, primitives);
+            else if (setSinglePrecision(body, singlePrecision))
+                primitives.add(body);
+        }
+        // the acceleration structure is over all the primitives under the collection, the nested ones included
+        if (!primitives.isEmpty())
+            refit(primitives.toArray(new Intersectable[0]));
+        changed.addAll(primitives);
+    }
+
+    /**
+     * Switch the triangle meshes of a primitive between double and single precision
+     * @param primitive a primitive, a mesh or an instance
+     * @param singlePrecision true for single precision, false for double precision
+     * @return true if the bounding box of the primitive changed
+     */
+    static boolean setSinglePrecision(Intersectable primitive, boolean singlePrecision) {
+        if (primitive instanceof TriangleMesh mesh) {
+            if (mesh.isSinglePrecision() == singlePrecision)
+                return false;
+            mesh.setSinglePrecision(singlePrecision);
+            return true;
+        }
+        return primitive instanceof Instance instance && instance.setSinglePrecision(singlePrecision);
+    }
+
+    /**
+     * Collect all the primitives under this collection, including the ones in nested collections
+     * @param bounded the list the primitives with a finite bounding box are added to
+     * @param unbounded the list the primitives without a finite bounding box (e.g. a plane) are added to
+     */
+    public void collectPrimitives(List<Intersectable> bounded, List<Intersectable> unbounded) {
+        collectPrimitives(bodies, bounded, unbounded);
+    }
+
+    /**
+     * Collect all the primitives of some geometries, including the ones in nested collections
+     * @param geometries the geometries
+     * @param bounded the list the primitives with a finite bounding box are added to
+     * @param unbounded the list the primitives without a finite bounding box (e.g. a plane) are added to
+     */
+    public static void collectPrimitives(Iterable<Intersectable> geometries, List<Intersectable> bounded,
+                                         List<Intersectable> unbounded) {
+        for (Intersectable geo : geometries) {
+            if (geo instanceof Geometries nested)
+                nested.collectPrimitives(bounded, unbounded);
+            else if (geo.isBounded())
+                bounded.add(geo);
+            else
+                unbounded.add(geo);
         }
     }
 
     /**
      * Find intersections of a ray with the geometries
-     * this function will use the BVH, and in case it is null - will fall back to the default implementation
+     * this function will use the acceleration structure, and in case it is null - will fall back to the default implementation
      * @param ray the ray to find intersections with
      * @param maxDistance the maximum distance to check for intersections
      * @return a list of points of intersections
      */
     @Override
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        if (bvh != null) {
-            return bvh.findGeoIntersectionsHelper(ray, maxDistance);
+        if (accelerator != null) {
+            return accelerator.findGeoIntersections(ray, maxDistance);
         } else {
             List<GeoPoint> intersections = new LinkedList<>();
             for (Intersectable body : bodies) {
@@ -76,6 +239,68 @@ public class Geometries extends Intersectable {
         }
     }
 
+    /**
+     * Find the closest intersection of a ray with the geometries
+     * this function will use the acceleration structure, and in case it is null - will go over the geometries,
+     * every one of them searched only up to the closest intersection found so far
+     * @param ray the ray to find the intersection with
+     * @param maxDistance the maximum distance to check for an intersection
+     * @return the closest intersection, or null if there isn't one
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double maxDistance) {
+        if (accelerator != null)
+            return accelerator.findClosestIntersection(ray, maxDistance);
+        Intersection closest = null;
+        for (Intersectable geometry : bodies) {
+            Intersection intersection = geometry.findClosestIntersection(ray, maxDistance);
+            if (intersection != null && (closest == null || intersection.t < closest.t)) {
+                closest = intersection;
+                maxDistance = intersection.t;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Find the closest intersections of a packet of coherent rays with the geometries (e.g. the primary rays
+     * of neighbouring pixels)
+     * a BVH traces the packet through the tree together, otherwise every ray is traced on its own
+     * @param rays the rays of the packet
+     * @param maxDistance the maximum distance to check for an intersection
+     * @return the closest intersection of every ray, null for a ray without one
+     */
+    public Intersection[] findClosestIntersections(Ray[] rays, double maxDistance) {
+        if (accelerator instanceof BVH bvh)
+            return bvh.findClosestIntersections(rays, maxDistance);
+        Intersection[] closest = new Intersection[rays.length];
+        for (int i = 0; i < rays.length; i++)
+            closest[i] = findClosestIntersectionHelper(rays[i], maxDistance);
+        return closest;
+    }
+
+    /**
+     * Find how much light passes through the geometries along a ray
+     * this function will use the acceleration structure, and in case it is null - will go over the geometries
+     * until one of them blocks the ray
+     * @param ray the ray towards the light source
+     * @param maxDistance the maximum distance to look for blockers
+     * @param ktr the transmittance accumulated along the ray so far
+     * @param minKtr the transmittance under which the ray counts as blocked
+     * @return the transmittance, or Double3.ZERO if the ray is blocked
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minKtr) {
+        if (accelerator != null)
+            return accelerator.findTransmittance(ray, maxDistance, ktr, minKtr);
+        for (Intersectable body : bodies) {
+            ktr = body.findTransmittance(ray, maxDistance, ktr, minKtr);
+            if (ktr.lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
+
     /**
      * Get the bounding box for this Geometries object
      * @return the bounding box
@@ -93,6 +318,10 @@ public class Geometries extends Intersectable {
         return bodies.get(index).getBoundingBox();
     }
 
+    /**
+     * @param boundingBox the bounding box of all the geometries in the collection, null if some of them
+     *                    have no finite bounding box
+     */
     public void setBoundingBox(BoundingBox boundingBox) {
         this.boundingBox = boundingBox;
     }
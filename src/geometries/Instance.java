@@ -0,0 +1,253 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Instance class represents a copy of a shared geometry (usually a collection of geometries) placed in the
+ * scene by a transformation, so repeated objects share their primitives instead of holding their own.
+ * a ray is moved into the space of the shared geometry by the inverse transformation and intersected there,
+ * and the intersection points are moved back. the shared collection has a BVH of its own, and a BVH over the
+ * scene holds the instances by their boxes - together they are a two-level acceleration structure.
+ * moving an instance only replaces its transformation, the collection holding it should then be refitted
+ */
+public class Instance extends Intersectable {
+    /** the shared geometry */
+    private final Intersectable shared;
+    /** the transformation from the space of the shared geometry to the scene */
+    private Transform transform;
+    /** the material of the instance's surfaces, null to keep the materials of the shared geometry */
+    private Material material = null;
+    /** the emission of the instance's surfaces, null to keep the emissions of the shared geometry */
+    private Color emission = null;
+
+    /**
+     * a surface of the shared geometry as it is seen through an instance. it is created for every intersection
+     * point, so the normal is moved to the scene and the instance's material and emission are used
+     */
+    private static class InstancedGeometry extends Geometry {
+        private final Geometry geometry;
+        private final Instance instance;
+
+        InstancedGeometry(Geometry geometry, Instance instance) {
+            this.geometry = geometry;
+            this.instance = instance;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            Transform transform = instance.transform;
+            return transform.transformNormal(geometry.getNormal(transform.inverseTransformPoint(point)));
+        }
+
+        @Override
+        public Color getEmission() {
+            return instance.emission == null ? geometry.getEmission() : instance.emission;
+        }
+
+        @Override
+        public Material getMaterial() {
+            return instance.material == null ? geometry.getMaterial() : instance.material;
+        }
+
+        /** the surface is only a part of an intersection point, it isn't intersected by itself */
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+            return null;
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            return null;
+        }
+    }
+
+    /**
+     * constructor for an instance. a shared collection without an acceleration structure gets a BVH,
+     * which all its instances use
+     * @param shared the shared geometry
+     * @param transform the transformation from the space of the shared geometry to the scene
+     */
+    public Instance(Intersectable shared, Transform transform) {
+        if (shared == null || transform == null)
+            throw new IllegalArgumentException("An instance must have a geometry and a transformation");
+        if (shared instanceof Geometries geometries && !geometries.hasAccelerator())
+            geometries.buildBVH();
+        this.shared = shared;
+        this.transform = transform;
+        boundingBox = transformBox(shared.getBoundingBox());
+    }
+
+    /**
+     * replaces the transformation of the instance, the shared geometry isn't touched
+     * @param transform the transformation from the space of the shared geometry to the scene
+     * @return the instance itself
+     */
+    public Instance setTransform(Transform transform) {
+        this.transform = transform;
+        boundingBox = transformBox(shared.getBoundingBox());
+        return this;
+    }
+
+    /**
+     * switches the triangle meshes of the shared geometry between double and single precision, and fits the
+     * bounding box of the instance again. the shared geometry may have been switched through another instance
+     * already, so the box is fitted again anyway and compared to the box it had
+     * @param singlePrecision true for single precision, false for double precision
+     * @return true if the bounding box of the instance changed
+     */
+    boolean setSinglePrecision(boolean singlePrecision) {
+        if (shared instanceof Geometries geometries)
+            geometries.setSinglePrecision(singlePrecision);
+        else
+            Geometries.setSinglePrecision(shared, singlePrecision);
+        final BoundingBox before = boundingBox;
+        setTransform(transform);
+        return !sameBox(before, boundingBox);
+    }
+
+    /**
+     * @param a a bounding box, may be null
+     * @param b a bounding box, may be null
+     * @return true if the boxes have exactly the same corners, or both are null
+     */
+    private static boolean sameBox(BoundingBox a, BoundingBox b) {
+        if (a == null || b == null)
+            return a == b;
+        return a.getMin().getX() == b.getMin().getX() && a.getMin().getY() == b.getMin().getY()
+                && a.getMin().getZ() == b.getMin().getZ() && a.getMax().getX() == b.getMax().getX()
+                && a.getMax().getY() == b.getMax().getY() && a.getMax().getZ() == b.getMax().getZ();
+    }
+
+    /**
+     * sets a material for all the surfaces of the instance
+     * @param material the material, null to keep the materials of the shared geometry
+     * @return the instance itself
+     */
+    public Instance setMaterial(Material material) {
+        this.material = material;
+        return this;
+    }
+
+    /**
+     * sets an emission for all the surfaces of the instance
+     * @param emission the emission, null to keep the emissions of the shared geometry
+     * @return the instance itself
+     */
+    public Instance setEmission(Color emission) {
+        this.emission = emission;
+        return this;
+    }
+
+    /**
+     * @return the transformation from the space of the shared geometry to the scene
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * @return the shared geometry
+     */
+    public Intersectable getShared() {
+        return shared;
+    }
+
+    /**
+     * a method that calculates the box of a box of the shared geometry in the scene, the box of its 8 corners
+     * @param box the box in the space of the shared geometry
+     * @return the box in the scene, null if the shared box is null or infinite
+     */
+    private BoundingBox transformBox(BoundingBox box) {
+        if (box == null || !box.isFinite())
+            return null;
+        Point min = box.getMin();
+        Point max = box.getMax();
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int corner = 0; corner < 8; corner++) {
+            Point point = transform.transformPoint(new Point(
+                    (corner & 1) == 0 ? min.getX() : max.getX(),
+                    (corner & 2) == 0 ? min.getY() : max.getY(),
+                    (corner & 4) == 0 ? min.getZ() : max.getZ()));
+            double[] coordinates = {point.getX(), point.getY(), point.getZ()};
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], coordinates[axis]);
+                bounds[3 + axis] = Math.max(bounds[3 + axis], coordinates[axis]);
+            }
+        }
+        return new BoundingBox(new Point(bounds[0], bounds[1], bounds[2]), new Point(bounds[3], bounds[4], bounds[5]));
+    }
+
+    /**
+     * @param ray a ray in the scene
+     * @return the ray in the space of the shared geometry
+     */
+    private Ray toShared(Ray ray) {
+        return new Ray(transform.inverseTransformPoint(ray.getHead()),
+                transform.inverseTransformVector(ray.getDirection()));
+    }
+
+    /**
+     * the direction of a ray is normalized in both spaces, so distances along it change by the length of the
+     * direction moved into the space of the shared geometry
+     * @param ray a ray in the scene
+     * @return the ratio of a distance along the ray in the space of the shared geometry to the same distance
+     * in the scene
+     */
+    private double sharedScale(Ray ray) {
+        return transform.inverseTransformVector(ray.getDirection()).length();
+    }
+
+    /**
+     * @param ray a ray in the scene
+     * @param distance a distance along the ray in the scene
+     * @return the same distance in the space of the shared geometry
+     */
+    private double toSharedDistance(Ray ray, double distance) {
+        return distance == Double.POSITIVE_INFINITY ? distance : distance * sharedScale(ray);
+    }
+
+    /**
+     * @param geoPoint an intersection point in the space of the shared geometry
+     * @return the intersection point in the scene
+     */
+    private GeoPoint toScene(GeoPoint geoPoint) {
+        return new GeoPoint(new InstancedGeometry(geoPoint.geometry, this), transform.transformPoint(geoPoint.point));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        List<GeoPoint> intersections = shared.findGeoIntersections(toShared(ray), toSharedDistance(ray, distance));
+        if (intersections == null)
+            return null;
+        List<GeoPoint> result = new LinkedList<>();
+        for (GeoPoint geoPoint : intersections)
+            result.add(toScene(geoPoint));
+        return result;
+    }
+
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        final double scale = sharedScale(ray);
+        Intersection closest = shared.findClosestIntersection(toShared(ray), distance * scale);
+        // the barycentric coordinates don't change with the transform
+        return closest == null ? null : new Intersection(new InstancedGeometry(closest.geometry, this), ray,
+                closest.t / scale, closest.u, closest.v);
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double distance, Double3 ktr, double minKtr) {
+        // the instance's own material replaces the shared transparencies
+        if (material != null)
+            return super.findTransmittanceHelper(ray, distance, ktr, minKtr);
+        return shared.findTransmittance(toShared(ray), toSharedDistance(ray, distance), ktr, minKtr);
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+}
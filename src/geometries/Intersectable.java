@@ -1,5 +1,6 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 
@@ -84,6 +85,87 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance);
 
+    /**
+     * a method that finds the closest intersection point of a ray with the geometry
+     * @param ray a ray that intersects with the geometry
+     * @param distance the maximum distance to find an intersection
+     * @return the closest intersection point, or null if there isn't one
+     */
+    public final GeoPoint findClosestGeoIntersection(Ray ray, double distance) {
+        Intersection intersection = findClosestIntersectionHelper(ray, distance);
+        return intersection == null ? null : intersection.toGeoPoint();
+    }
+
+    /**
+     * a method that finds the closest intersection of a ray with the geometry, as a single hit record
+     * @param ray a ray that intersects with the geometry
+     * @param distance the maximum distance to find an intersection
+     * @return the closest intersection, or null if there isn't one
+     */
+    public final Intersection findClosestIntersection(Ray ray, double distance) {
+        return findClosestIntersectionHelper(ray, distance);
+    }
+
+    /**
+     * a method that finds the closest intersection of a ray with the geometry.
+     * by default it picks the closest of all the intersection points, geometries that can
+     * find the closest one directly (without a point for every intersection) should override it
+     * @param ray a ray that intersects with the geometry
+     * @param distance the maximum distance to find an intersection
+     * @return the closest intersection, or null if there isn't one
+     */
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        GeoPoint closest = ray.findClosestGeoPoint(findGeoIntersectionsHelper(ray, distance));
+        return closest == null ? null
+                : new Intersection(closest.geometry, ray, ray.getHead().distance(closest.point), closest.point);
+    }
+
+    /**
+     * a method that finds how much light passes through the geometry along a ray (an occlusion query).
+     * the transparency coefficients of the intersection points are multiplied into the transmittance,
+     * and the search stops as soon as it drops below the minimum - an opaque hit stops it right away
+     * @param ray a ray that goes from a point towards a light source
+     * @param distance the maximum distance to look for blockers
+     * @param ktr the transmittance accumulated along the ray so far
+     * @param minKtr the transmittance under which the ray counts as blocked
+     * @return the transmittance after passing through the geometry, or {@link Double3#ZERO} if the ray is blocked
+     */
+    public final Double3 findTransmittance(Ray ray, double distance, Double3 ktr, double minKtr) {
+        return findTransmittanceHelper(ray, distance, ktr, minKtr);
+    }
+
+    /**
+     * a method that finds how much light passes through the geometry along a ray.
+     * by default it goes over all the intersection points, collections of geometries should override it
+     * to stop at the first geometry that blocks the ray
+     * @param ray a ray that goes from a point towards a light source
+     * @param distance the maximum distance to look for blockers
+     * @param ktr the transmittance accumulated along the ray so far
+     * @param minKtr the transmittance under which the ray counts as blocked
+     * @return the transmittance after passing through the geometry, or {@link Double3#ZERO} if the ray is blocked
+     */
+    protected Double3 findTransmittanceHelper(Ray ray, double distance, Double3 ktr, double minKtr) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray, distance);
+        if (intersections == null)
+            return ktr;
+        for (GeoPoint gp : intersections) {
+            ktr = ktr.product(gp.geometry.getMaterial().kT);
+            if (ktr.lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        return ktr;
+    }
+
+    /**
+     * a method that checks if the geometry can be put in an acceleration structure - geometries without
+     * a finite bounding box (e.g. a plane, a tube) would make the boxes of everything above them infinite
+     * @return true if the geometry has a finite bounding box, false otherwise
+     */
+    public boolean isBounded() {
+        BoundingBox box = getBoundingBox();
+        return box != null && box.isFinite();
+    }
+
     /**
      * a method that returns the bounding box of the geometry
      * @return the bounding box of the geometry
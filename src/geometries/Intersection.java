@@ -0,0 +1,104 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * Intersection is the record of the closest intersection of a ray with a geometry - the geometry and the
+ * distance along the ray. the closest-hit search compares only the distances, so the point is calculated
+ * when it is first asked for, once for the hit that is actually shaded
+ */
+public class Intersection {
+    /** the geometry that the ray intersects with */
+    public final Geometry geometry;
+    /** the distance of the intersection along the ray */
+    public final double t;
+    /**
+     * the barycentric coordinates of the point on a triangle - the weights of its second and third vertices,
+     * NaN for other geometries
+     */
+    public final double u, v;
+    /** the ray that intersects the geometry */
+    private final Ray ray;
+    /** the point of intersection, null until it is calculated */
+    private Point point;
+
+    /**
+     * a constructor for an intersection whose point is calculated when it is asked for
+     * @param geometry the geometry that the ray intersects with
+     * @param ray the ray
+     * @param t the distance of the intersection along the ray
+     */
+    public Intersection(Geometry geometry, Ray ray, double t) {
+        this(geometry, ray, t, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * a constructor for an intersection with a triangle, whose barycentric coordinates the intersection test
+     * already found
+     * @param geometry the geometry that the ray intersects with
+     * @param ray the ray
+     * @param t the distance of the intersection along the ray
+     * @param u the weight of the second vertex of the triangle
+     * @param v the weight of the third vertex of the triangle
+     */
+    public Intersection(Geometry geometry, Ray ray, double t, double u, double v) {
+        this.geometry = geometry;
+        this.ray = ray;
+        this.t = t;
+        this.u = u;
+        this.v = v;
+    }
+
+    /**
+     * a constructor for an intersection whose point is already known
+     * @param geometry the geometry that the ray intersects with
+     * @param ray the ray
+     * @param t the distance of the intersection along the ray
+     * @param point the point of intersection
+     */
+    public Intersection(Geometry geometry, Ray ray, double t, Point point) {
+        this(geometry, ray, t);
+        this.point = point;
+    }
+
+    /**
+     * @return the ray that intersects the geometry
+     */
+    public Ray getRay() {
+        return ray;
+    }
+
+    /**
+     * @return the point of intersection
+     */
+    public Point getPoint() {
+        if (point == null)
+            point = ray.getPoint(t);
+        return point;
+    }
+
+    /**
+     * @return the barycentric coordinates of the point on a triangle - the weights of its three vertices by their
+     * order, for interpolating values of the vertices (normals, texture coordinates), null for other geometries
+     */
+    public double[] getBarycentrics() {
+        return Double.isNaN(u) ? null : new double[]{1 - u - v, u, v};
+    }
+
+    /**
+     * @return the intersection as a geometry and a point
+     */
+    public GeoPoint toGeoPoint() {
+        return new GeoPoint(geometry, getPoint());
+    }
+
+    @Override
+    public String toString() {
+        return "Intersection{" +
+                "t=" + t +
+                ", geometry=" + geometry +
+                '}';
+    }
+}
@@ -0,0 +1,275 @@
+package geometries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ObjLoader reads a mesh from a Wavefront OBJ file into a {@link TriangleMesh}.
+ * the file is streamed through a buffer and parsed byte by byte, without a String per line or per number,
+ * so big models load in a single pass over the file. only the vertices ("v") and the faces ("f") are read,
+ * a face with more than 3 vertices is split into a fan of triangles, and the rest of the lines are skipped
+ */
+public class ObjLoader {
+    /** the size of the buffer the file is read through */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** the value {@link #next()} returns at the end of the file */
+    private static final int END = -1;
+    /** the most digits of a number that fit in a long, the rest only move the decimal point */
+    private static final int MAX_DIGITS = 18;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** the byte read last, it is read again by {@link #next()} after {@link #unread()} */
+    private int current;
+    private boolean unread = false;
+    /** the number of the line that is read, for the error messages */
+    private int line = 1;
+
+    /** the coordinates of the vertices read so far: [3 * i] = x, y, z */
+    private double[] vertices = new double[3 * 1024];
+    private int vertexCount = 0;
+    /** the vertices of the triangles read so far: [3 * i] = a, b, c */
+    private int[] triangles = new int[3 * 1024];
+    private int triangleCount = 0;
+
+    /**
+     * constructor for a loader of an open file
+     * @param path the path of the file
+     * @param channel the channel of the file
+     */
+    private ObjLoader(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        buffer.limit(0);
+    }
+
+    /**
+     * reads a mesh from an OBJ file
+     * @param path the path of the file
+     * @return the mesh of all the faces in the file
+     * @throws IllegalArgumentException if the file isn't a valid OBJ file
+     * @throws IllegalStateException if the file can't be read
+     */
+    public static TriangleMesh load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ObjLoader(path, channel).read();
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - can't read " + path, e);
+        }
+    }
+
+    /**
+     * reads the file line by line
+     * @return the mesh of all the faces in the file
+     * @throws IOException if the file can't be read
+     */
+    private TriangleMesh read() throws IOException {
+        int c;
+        while ((c = skipSpaces()) != END) {
+            if (c == 'v' && isSpace(next()))
+                readVertex();
+            else if (c == 'f' && isSpace(next()))
+                readFace();
+            else
+                unread();
+            skipLine();
+        }
+        return new TriangleMesh(Arrays.copyOf(vertices, 3 * vertexCount), Arrays.copyOf(triangles, 3 * triangleCount));
+    }
+
+    /**
+     * reads the coordinates of a vertex, after its "v"
+     * @throws IOException if the file can't be read
+     */
+    private void readVertex() throws IOException {
+        if (3 * vertexCount + 3 > vertices.length)
+            vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+        for (int axis = 0; axis < 3; axis++)
+            vertices[3 * vertexCount + axis] = readNumber();
+        vertexCount++;
+    }
+
+    /**
+     * reads the vertices of a face, after its "f", and splits it into a fan of triangles around its first vertex
+     * @throws IOException if the file can't be read
+     */
+    private void readFace() throws IOException {
+        int first = -1, previous = -1, count = 0;
+        int c;
+        while ((c = skipSpaces()) != END && c != '\n' && c != '#') {
+            unread();
+            int vertex = readIndex();
+            // texture and normal indices ("v/vt/vn") aren't used
+            while ((c = next()) != END && !isSpace(c) && c != '\n')
+                if (c != '/' && c != '-' && (c < '0' || c > '9'))
+                    throw malformed();
+            unread();
+            if (count == 0)
+                first = vertex;
+            else if (count >= 2)
+                addTriangle(first, previous, vertex);
+            previous = vertex;
+            count++;
+        }
+        unread();
+        if (count < 3)
+            throw malformed();
+    }
+
+    /**
+     * adds a triangle of a face
+     * @param a the first vertex
+     * @param b the second vertex
+     * @param c the third vertex
+     */
+    private void addTriangle(int a, int b, int c) {
+        if (3 * triangleCount + 3 > triangles.length)
+            triangles = Arrays.copyOf(triangles, 2 * triangles.length);
+        triangles[3 * triangleCount] = a;
+        triangles[3 * triangleCount + 1] = b;
+        triangles[3 * triangleCount + 2] = c;
+        triangleCount++;
+    }
+
+    /**
+     * reads the index of a vertex of a face. OBJ counts the vertices from 1, and a negative index counts back
+     * from the last vertex read
+     * @return the index of the vertex, counted from 0
+     * @throws IOException if the file can't be read
+     */
+    private int readIndex() throws IOException {
+        int c = next();
+        final boolean negative = c == '-';
+        if (negative)
+            c = next();
+        if (c < '0' || c > '9')
+            throw malformed();
+        long index = 0;
+        for (; c >= '0' && c <= '9'; c = next())
+            index = Math.min(10 * index + c - '0', Integer.MAX_VALUE);
+        unread();
+        if (index == 0)
+            throw malformed();
+        return (int) (negative ? vertexCount - index : index - 1);
+    }
+
+    /**
+     * reads a decimal number, with an optional sign, fraction and exponent
+     * @return the number
+     * @throws IOException if the file can't be read
+     */
+    private double readNumber() throws IOException {
+        int c = skipSpaces();
+        final boolean negative = c == '-';
+        if (negative || c == '+')
+            c = next();
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false;
+        for (; c >= '0' && c <= '9'; c = next(), any = true)
+            if (digits < MAX_DIGITS) {
+                mantissa = 10 * mantissa + c - '0';
+                if (mantissa > 0) digits++;
+            } else
+                exponent++;
+        if (c == '.')
+            for (c = next(); c >= '0' && c <= '9'; c = next(), any = true)
+                if (digits < MAX_DIGITS) {
+                    mantissa = 10 * mantissa + c - '0';
+                    if (mantissa > 0) digits++;
+                    exponent--;
+                }
+        if (!any)
+            throw malformed();
+        if (c == 'e' || c == 'E') {
+            c = next();
+            final boolean negativeExponent = c == '-';
+            if (c == '-' || c == '+')
+                c = next();
+            if (c < '0' || c > '9')
+                throw malformed();
+            int value = 0;
+            for (; c >= '0' && c <= '9'; c = next())
+                value = Math.min(10 * value + c - '0', 1000);
+            exponent += negativeExponent ? -value : value;
+        }
+        unread();
+        // dividing by an exact power of 10 rounds a short fraction like 0.1 correctly, multiplying by 0.1 doesn't
+        final double value = exponent < 0 ? mantissa / Math.pow(10, -exponent) : mantissa * Math.pow(10, exponent);
+        return negative ? -value : value;
+    }
+
+    /**
+     * skips the spaces and tabs
+     * @return the first byte that isn't a space
+     * @throws IOException if the file can't be read
+     */
+    private int skipSpaces() throws IOException {
+        int c;
+        while (isSpace(c = next()))
+            ;
+        return c;
+    }
+
+    /**
+     * skips the rest of the line, its end included
+     * @throws IOException if the file can't be read
+     */
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = next()) != END && c != '\n')
+            ;
+    }
+
+    /**
+     * @param c a byte
+     * @return true if the byte is a space inside a line (a space, a tab or the carriage return of a line end)
+     */
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * reads the next byte of the file
+     * @return the byte, or {@link #END} at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    private int next() throws IOException {
+        if (unread) {
+            unread = false;
+            return current;
+        }
+        if (current == '\n')
+            line++;
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0)
+                return current = END;
+        }
+        return current = buffer.get() & 0xFF;
+    }
+
+    /**
+     * makes the next {@link #next()} read the last byte again
+     */
+    private void unread() {
+        unread = true;
+    }
+
+    /**
+     * @return an exception for a line that can't be parsed
+     */
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed OBJ file " + path + " at line " + line);
+    }
+}
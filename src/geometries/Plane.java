@@ -72,18 +72,35 @@ public class Plane extends Geometry{
     }
 
     /**
-     * a method that finds the intersections of a ray with the plane
+     * a method that finds the distance along a ray where it intersects the plane
      * @param ray a ray that intersects the plane
-     * @return a list of points that the ray intersects with the plane
+     * @param distance the maximum distance of the intersection
+     * @return the distance of the intersection along the ray, NaN if there isn't one
      */
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+    private double intersect(Ray ray, double distance) {
         // if the ray starts on the plane or is parallel to the plane, there are no intersections
         if (ray.getHead().equals(q) || isZero(normal.dotProduct(ray.getDirection()))) {
-            return null;
+            return Double.NaN;
         }
         Vector edge = q.subtract(ray.getHead());
         double t = alignZero(normal.dotProduct(edge) / normal.dotProduct(ray.getDirection()));
-        return (t <= 0 || alignZero(t - distance) > 0) ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+        return (t <= 0 || alignZero(t - distance) > 0) ? Double.NaN : t;
+    }
+
+    /**
+     * a method that finds the intersections of a ray with the plane
+     * @param ray a ray that intersects the plane
+     * @return a list of points that the ray intersects with the plane
+     */
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        double t = intersect(ray, distance);
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
+
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        double t = intersect(ray, distance);
+        return Double.isNaN(t) ? null : new Intersection(this, ray, t);
     }
 
     @Override
@@ -27,6 +27,15 @@ public class Polygon extends Geometry {
      * The size of the polygon - the amount of the vertices in the polygon
      */
     private final int size;
+    /** the normal of the plane of the polygon, and its distance from the origin along the normal */
+    private final double nx, ny, nz, d;
+    /** the axis the polygon is projected along onto a 2D plane - the axis of the longest coordinate of the normal */
+    private final int dropAxis;
+    /**
+     * the edges of the projected polygon as line equations: [3 * i] = a, b, c of the edge from vertex i.
+     * a * u + b * v + c is the 2D distance of a projected point from the edge, positive inside the polygon
+     */
+    private final double[] edges;
 
     /**
      * Polygon constructor based on vertices list. The list must be ordered by edge
@@ -73,9 +82,36 @@ public class Polygon extends Geometry {
             maxZ = Math.max(maxZ, vertex.getZ());
         }
         boundingBox = new BoundingBox(new Point(minX, minY, minZ), new Point(maxX, maxY, maxZ));
-        if (size == 3) return; // no need for more tests for a Triangle
 
         Vector n = plane.getNormal();
+        nx = n.getX();
+        ny = n.getY();
+        nz = n.getZ();
+        d = nx * vertices[0].getX() + ny * vertices[0].getY() + nz * vertices[0].getZ();
+        // projecting along the longest coordinate of the normal keeps the projected polygon as big as possible
+        dropAxis = Math.abs(nx) >= Math.abs(ny) && Math.abs(nx) >= Math.abs(nz) ? 0
+                : Math.abs(ny) >= Math.abs(nz) ? 1 : 2;
+        edges = new double[3 * size];
+        double area = 0;
+        for (int i = 0; i < size; i++) {
+            final Point from = vertices[i];
+            final Point to = vertices[(i + 1) % size];
+            final double fromU = projectU(from.getX(), from.getY(), from.getZ());
+            final double fromV = projectV(from.getX(), from.getY(), from.getZ());
+            final double toU = projectU(to.getX(), to.getY(), to.getZ());
+            final double toV = projectV(to.getX(), to.getY(), to.getZ());
+            final double length = Math.sqrt((toU - fromU) * (toU - fromU) + (toV - fromV) * (toV - fromV));
+            edges[3 * i] = (fromV - toV) / length;
+            edges[3 * i + 1] = (toU - fromU) / length;
+            edges[3 * i + 2] = -(edges[3 * i] * fromU + edges[3 * i + 1] * fromV);
+            area += fromU * toV - toU * fromV;
+        }
+        // a clockwise projection has the inside on the negative side of its edges
+        if (area < 0)
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = -edges[i];
+        if (size == 3) return; // no need for more tests for a Triangle
+
         // Subtracting any subsequent points will throw an IllegalArgumentException
         // because of Zero Vector if they are in the same point
         Vector edge1 = vertices[vertices.length - 1].subtract(vertices[vertices.length - 2]);
@@ -106,53 +142,75 @@ public class Polygon extends Geometry {
         return plane.getNormal();
     }
 
+    /**
+     * @return the vertices of the polygon, by their order on the edge path
+     */
+    public List<Point> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @param x the x coordinate of a point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @return the first coordinate of the point projected along the drop axis, the next axis after it
+     */
+    private double projectU(double x, double y, double z) {
+        return dropAxis == 0 ? y : dropAxis == 1 ? z : x;
+    }
+
+    /**
+     * @param x the x coordinate of a point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @return the second coordinate of the point projected along the drop axis, the axis before it
+     */
+    private double projectV(double x, double y, double z) {
+        return dropAxis == 0 ? z : dropAxis == 1 ? x : y;
+    }
+
+    /**
+     * the ray is intersected with the plane of the polygon, and the point is tested against the edges of the
+     * projected polygon - no object is created
+     * @param ray the ray
+     * @param distance the maximum distance of the intersection
+     * @return the distance of the intersection along the ray, NaN if there isn't one
+     */
+    private double intersect(Ray ray, double distance) {
+        final Point head = ray.getHead();
+        final Vector direction = ray.getDirection();
+        final double hx = head.getX(), hy = head.getY(), hz = head.getZ();
+        final double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        final double denominator = nx * dx + ny * dy + nz * dz;
+        // the ray is parallel to the plane
+        if (isZero(denominator))
+            return Double.NaN;
+        final double t = alignZero((d - nx * hx - ny * hy - nz * hz) / denominator);
+        if (t <= 0 || alignZero(t - distance) > 0)
+            return Double.NaN;
+        final double px = hx + t * dx, py = hy + t * dy, pz = hz + t * dz;
+        final double u = projectU(px, py, pz), v = projectV(px, py, pz);
+        // the point must be strictly inside all the edges, the edges and the vertices aren't a part of the polygon
+        for (int i = 0; i < edges.length; i += 3)
+            if (alignZero(edges[i] * u + edges[i + 1] * v + edges[i + 2]) <= 0)
+                return Double.NaN;
+        return t;
+    }
+
     /**
      * findIntersections function finds the intersection points of a ray with the polygon
      * @param ray the ray that intersects the polygon
      * @return a list of the intersection points
      */
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
-        var intersectionPoint = plane.findGeoIntersections(ray, distance);
-        //if the ray doesn't intersect the plane, it doesn't intersect the polygon
-        if (intersectionPoint == null)
-            return null;
-        Point rayHead = ray.getHead();
-        Vector rayDir = ray.getDirection();
-        Vector[] v = new Vector[size];
-        Vector[] n = new Vector[size];
-        double[] s = new double[size];
-        //entering all the vertices of the polygon into the v array
-        for (var i = 0; i < size; ++i) {
-            v[i] = vertices.get(i).subtract(rayHead);
-        }
-        //entering all the normals of the polygon into the n array
-        for (var i = 0; i < size; ++i) {
-            //System.out.println("v[i] = " + v[i] + "V[i+1] " + v[(i + 1) % size]);
-            try {
-                n[i] = v[i].crossProduct(v[(i + 1) % size]).normalize();
-            } catch (Exception e) {
-                return null;
-            }
-        }
-        //entering all the dot products of the normals and the ray direction into the s array
-        for (var i = 0; i < size; ++i) {
-            s[i] = alignZero(n[i].dotProduct(rayDir));
-        }
+        final double t = intersect(ray, distance);
+        return Double.isNaN(t) ? null : List.of(new GeoPoint(this, ray.getPoint(t)));
+    }
 
-        //checking if the ray intersects the polygon
-        //if the ray intersects the polygon, the dot products of the normals and the ray direction will have the same sign
-        if (s[0] < 0) {
-            for (var i = 1; i < size; ++i)
-                if (s[i] >= 0)
-                    return null;
-            return List.of(new GeoPoint(this, intersectionPoint.getFirst().point));
-        } else if (s[0] > 0) {
-            for (var i = 1; i < size; ++i)
-                if (s[i] <= 0)
-                    return null;
-            return List.of(new GeoPoint(this, intersectionPoint.getFirst().point));
-        }
-        return  null;
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        final double t = intersect(ray, distance);
+        return Double.isNaN(t) ? null : new Intersection(this, ray, t);
     }
 
     @Override
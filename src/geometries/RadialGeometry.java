@@ -37,6 +37,6 @@ public abstract class RadialGeometry extends Geometry{
 
     @Override
     public BoundingBox getBoundingBox() {
-        return null;
+        return boundingBox;
     }
 }
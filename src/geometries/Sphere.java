@@ -1,11 +1,11 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
 import static primitives.Util.alignZero;
-import static primitives.Util.isZero;
 
 import java.util.List;
 
@@ -14,6 +14,8 @@ import java.util.List;
  */
 public class Sphere extends RadialGeometry{
     private final Point center;
+    /** the coordinates of the center and the squared radius, for the intersection tests */
+    private final double cx, cy, cz, radiusSquared;
 
     /**
      * a constructor for the class Sphere.
@@ -23,6 +25,10 @@ public class Sphere extends RadialGeometry{
     public Sphere(Point c, double r) {
         super(r);
         center = c;
+        cx = c.getX();
+        cy = c.getY();
+        cz = c.getZ();
+        radiusSquared = r * r;
         Point min = new Point(center.getX() - radius, center.getY() - radius, center.getZ() - radius);
         Point max = new Point(center.getX() + radius, center.getY() + radius, center.getZ() + radius);
         boundingBox = new BoundingBox(min, max);
@@ -38,39 +44,87 @@ public class Sphere extends RadialGeometry{
         return point.subtract(center).normalize();
     }
 
+    /**
+     * a method that finds one of the distances along a ray where its line crosses the sphere.
+     * a ray whose line misses the sphere, or that starts outside it and goes away from it, is rejected on
+     * squared distances only, before any square root
+     * @param ray the ray
+     * @param far true for the far crossing, false for the near one
+     * @return the distance along the ray, it is negative behind the head of the ray - NaN if the line misses
+     */
+    private double root(Ray ray, boolean far) {
+        final Point head = ray.getHead();
+        final Vector direction = ray.getDirection();
+        final double ux = cx - head.getX(), uy = cy - head.getY(), uz = cz - head.getZ();
+        final double tm = alignZero(direction.getX() * ux + direction.getY() * uy + direction.getZ() * uz);
+        final double lengthSquared = ux * ux + uy * uy + uz * uz;
+        if (tm < 0 && lengthSquared > radiusSquared)
+            return Double.NaN;
+        final double dSquared = lengthSquared - tm * tm;
+        if (alignZero(dSquared - radiusSquared) >= 0)
+            return Double.NaN;
+        final double th = alignZero(Math.sqrt(radiusSquared - dSquared));
+        return alignZero(far ? tm + th : tm - th);
+    }
+
+    /**
+     * @param t a distance along a ray, NaN if there isn't one
+     * @param distance the maximum distance
+     * @return true if the distance is in front of the head of the ray and within the maximum distance
+     */
+    private static boolean inRange(double t, double distance) {
+        return t > 0 && alignZero(t - distance) <= 0;
+    }
+
     /**
      * a method that finds the intersections of a ray with the sphere
      * @param ray the ray that intersects with the sphere
-     * @param distance no need
-     * @return a list of the intersections of the ray with the sphere
+     * @param distance the maximum distance to find intersections
+     * @return a list of the intersections of the ray with the sphere, the far one first
      */
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
-        if (center.equals(ray.getHead()))
-            return List.of(new GeoPoint(this, ray.getPoint(radius)));
-        Vector u = center.subtract(ray.getHead());
-        double tm = alignZero(ray.getDirection().dotProduct(u));
-        double d = alignZero(Math.sqrt(u.lengthSquared() - tm * tm));
-        if (d >= radius)
+        final double t1 = root(ray, true);
+        if (!(t1 > 0))
             return null;
+        final double t2 = root(ray, false);
+        if (inRange(t1, distance) && inRange(t2, distance))
+            return List.of(new GeoPoint(this, ray.getPoint(t1)), new GeoPoint(this, ray.getPoint(t2)));
+        if (inRange(t1, distance))
+            return List.of(new GeoPoint(this, ray.getPoint(t1)));
+        if (inRange(t2, distance))
+            return List.of(new GeoPoint(this, ray.getPoint(t2)));
+        return null;
+    }
 
-        double th = alignZero(Math.sqrt(radius * radius - d * d));
-        double t1 = alignZero(tm + th);
-        double t2 = alignZero(tm - th);
-
-        try {
-            if (t1 > 0 && t2 > 0 && alignZero(t1 - distance) <= 0 && alignZero(t2 - distance) <= 0) {
-                return List.of(new GeoPoint(this, ray.getPoint(t1)), new GeoPoint(this, ray.getPoint(t2)));
-            }
-
-            if (t1 > 0 && alignZero(t1 - distance) <= 0)
-                return List.of(new GeoPoint(this, ray.getPoint(t1)));
-
-            if (t2 > 0 && alignZero(t2 - distance) <= 0)
-                return List.of(new GeoPoint(this, ray.getPoint(t2)));
-        } catch (Exception e) {
+    /**
+     * the near crossing is the closest intersection when it is in front of the ray, otherwise the far one is
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        final double near = root(ray, false);
+        if (Double.isNaN(near))
             return null;
+        final double t = near > 0 ? near : root(ray, true);
+        return inRange(t, distance) ? new Intersection(this, ray, t) : null;
+    }
+
+    /**
+     * the light passes through the sphere once for every crossing in range, no intersection point is created
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double distance, Double3 ktr, double minKtr) {
+        final double far = root(ray, true);
+        // the line misses the sphere, or the whole sphere is behind the ray
+        if (!(far > 0))
+            return ktr;
+        final int crossings = (inRange(far, distance) ? 1 : 0) + (inRange(root(ray, false), distance) ? 1 : 0);
+        final Double3 kT = getMaterial().kT;
+        for (int i = 0; i < crossings; i++) {
+            ktr = ktr.product(kT);
+            if (ktr.lowerThan(minKtr))
+                return Double3.ZERO;
         }
-        return null;
+        return ktr;
     }
 
     @Override
@@ -5,11 +5,18 @@ import primitives.*;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * a class that represents a flat Triangle (inherits from the Polygon class)
  */
 public class Triangle extends Polygon {
+    /** the first vertex of the triangle */
+    private final double ax, ay, az;
+    /** the edge from the first vertex to the second one */
+    private final double e1x, e1y, e1z;
+    /** the edge from the first vertex to the third one */
+    private final double e2x, e2y, e2z;
 
     /**
      * a constructor for Triangle using 3 points
@@ -20,6 +27,46 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point point1, Point point2, Point point3) {
         super(point1, point2, point3);
+        ax = point1.getX();
+        ay = point1.getY();
+        az = point1.getZ();
+        e1x = point2.getX() - ax;
+        e1y = point2.getY() - ay;
+        e1z = point2.getZ() - az;
+        e2x = point3.getX() - ax;
+        e2y = point3.getY() - ay;
+        e2z = point3.getZ() - az;
+    }
+
+    /**
+     * the Moller-Trumbore test of a ray against the triangle, on the precomputed edges and without allocating
+     * on a miss. the edges and the vertices aren't a part of the triangle
+     * @param ray the ray
+     * @param distance the maximum distance of the intersection
+     * @return the intersection with the barycentric coordinates of its point, null if there isn't one
+     */
+    private Intersection intersect(Ray ray, double distance) {
+        final Vector direction = ray.getDirection();
+        final double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        // p = direction x e2
+        final double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+        final double determinant = e1x * px + e1y * py + e1z * pz;
+        // the ray is parallel to the triangle
+        if (isZero(determinant))
+            return null;
+        final double inverse = 1 / determinant;
+        final Point head = ray.getHead();
+        final double sx = head.getX() - ax, sy = head.getY() - ay, sz = head.getZ() - az;
+        final double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (alignZero(u) <= 0 || alignZero(u - 1) >= 0)
+            return null;
+        // q = s x e1
+        final double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        final double v = (dx * qx + dy * qy + dz * qz) * inverse;
+        if (alignZero(v) <= 0 || alignZero(u + v - 1) >= 0)
+            return null;
+        final double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+        return t <= 0 || alignZero(t - distance) > 0 ? null : new Intersection(this, ray, t, u, v);
     }
 
     /**
@@ -28,31 +75,12 @@ public class Triangle extends Polygon {
      * @return a list of the intersections
      */
     protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
-        var intersectionPoint = plane.findGeoIntersections(ray, distance);
-        // if the ray doesn't intersect the plane, return null
-        if (intersectionPoint == null)
-            return null;
-        Point rayHead = ray.getHead();
-        Vector rayDir = ray.getDirection();
-        Vector v1 = vertices.getFirst().subtract(rayHead);
-        Vector v2 = vertices.get(1).subtract(rayHead);
-        Vector v3 = vertices.get(2).subtract(rayHead);
-        Vector n1 = null;
-        Vector n2 = null;
-        Vector n3 = null;
-        try {
-            n1 = v1.crossProduct(v2).normalize();
-            n2 = v2.crossProduct(v3).normalize();
-            n3 = v3.crossProduct(v1).normalize();
-        } catch (Exception e) {
-            return null;
-        }
-        double[] s = {alignZero(n1.dotProduct(rayDir)),
-                      alignZero(n2.dotProduct(rayDir)),
-                      alignZero(n3.dotProduct(rayDir))};
-        //if the dot products aren't all positive or negative the intersected point of the plane isn't in the triangle
-        if (s[0] > 0 && s[1] > 0 && s[2] > 0 || s[0] < 0 && s[1] < 0 && s[2] < 0)
-            return List.of(new GeoPoint(this, intersectionPoint.get(0).point));
-        return null;
+        final Intersection intersection = intersect(ray, distance);
+        return intersection == null ? null : List.of(intersection.toGeoPoint());
+    }
+
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        return intersect(ray, distance);
     }
 }
@@ -0,0 +1,547 @@
+package geometries;
+
+import primitives.*;
+import renderer.BVH;
+import renderer.BVHBuilder;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * TriangleMesh class represents a surface made of triangles that share their vertices.
+ * the vertices and the triangles are kept in flat arrays instead of an object per triangle, and the mesh
+ * has a BVH of its own over the boxes of its triangles, so to the rest of the scene a whole model is
+ * a single bounded primitive.
+ * a huge mesh can be kept in single precision (see {@link #setSinglePrecision(boolean)}) - the coordinates and
+ * the boxes are stored in floats and the intersections are still calculated in doubles
+ */
+public class TriangleMesh extends Geometry {
+    /** the coordinates of the vertices: [3 * i] = x, y, z, null in single precision */
+    private double[] vertices;
+    /** the coordinates of the vertices in single precision, null in double precision */
+    private float[] floatVertices;
+    /** the vertices of the triangles, counterclockwise when the normal points at the viewer: [3 * i] = a, b, c */
+    private final int[] triangles;
+
+    /** the bounds of every triangle: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z, null in single precision */
+    private double[] triangleBounds;
+    /** the bounds of every triangle in single precision, null in double precision */
+    private float[] floatTriangleBounds;
+    /** indices into the triangles, ordered so every leaf holds a continuous range of them */
+    private final int[] triangleIndices;
+    /** the bounds of every node of the mesh's BVH, in the same layout as the triangles' bounds */
+    private double[] nodeBounds;
+    /** the bounds of every node in single precision, null in double precision */
+    private float[] floatNodeBounds;
+    /** for an inner node - the index of its right child (the left one is right after it), for a leaf - its range */
+    private final int[] nodeOffsets;
+    /** the amount of triangles in every node, 0 for an inner node */
+    private final int[] nodeCounts;
+    /** the depth of the deepest node */
+    private final int maxDepth;
+    /** how far a point can be from a triangle and still be on it, for the rounding of intersection points */
+    private static final double ON_SURFACE = 1e-6;
+
+    /**
+     * a triangle of the mesh, created for an intersection point on it
+     */
+    private class Face extends Geometry {
+        private final int triangle;
+
+        Face(int triangle) {
+            this.triangle = triangle;
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return TriangleMesh.this.getNormal(triangle);
+        }
+
+        @Override
+        public Color getEmission() {
+            return TriangleMesh.this.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return TriangleMesh.this.getMaterial();
+        }
+
+        /** the face is only a part of an intersection point, it isn't intersected by itself */
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+            return null;
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            return null;
+        }
+    }
+
+    /**
+     * constructor for a mesh, it builds the BVH of the mesh right away
+     * @param vertices the coordinates of the vertices: [3 * i] = x, y, z
+     * @param triangles the vertices of the triangles: [3 * i] = a, b, c - indices of vertices
+     * @throws IllegalArgumentException if the arrays aren't made of triples or a triangle has a missing vertex
+     */
+    public TriangleMesh(double[] vertices, int[] triangles) {
+        if (vertices.length % 3 != 0 || triangles.length % 3 != 0)
+            throw new IllegalArgumentException("Vertices and triangles are made of triples");
+        final int vertexCount = vertices.length / 3;
+        for (int vertex : triangles)
+            if (vertex < 0 || vertex >= vertexCount)
+                throw new IllegalArgumentException("A triangle has a missing vertex: " + vertex);
+        this.vertices = vertices;
+        this.triangles = triangles;
+
+        triangleBounds = calculateTriangleBounds();
+        BVHBuilder builder = new BVHBuilder(triangleBounds, BVH.DEFAULT_LEAF_SIZE);
+        triangleIndices = builder.getIndices();
+        nodeBounds = builder.getNodeBounds();
+        nodeOffsets = builder.getNodeOffsets();
+        nodeCounts = builder.getNodeCounts();
+        maxDepth = builder.getMaxDepth();
+        updateBoundingBox();
+    }
+
+    /**
+     * switches the storage of the mesh between double and single precision. in single precision the vertices,
+     * the boxes of the triangles and the boxes of the BVH's nodes are kept in floats - half the memory - and the
+     * intersections are still calculated in double precision from them.
+     * the coordinates are rounded to floats and the boxes are refitted around the rounded triangles (the shape of
+     * the BVH is kept), the boxes are rounded outward so the box tests never miss a triangle. switching back to
+     * double precision keeps the rounded coordinates.
+     * a mesh that is already in a scene changes its bounding box, see {@link Geometries#setSinglePrecision(boolean)}
+     * @param singlePrecision true for single precision, false for double precision
+     * @return the mesh itself
+     */
+    public TriangleMesh setSinglePrecision(boolean singlePrecision) {
+        if (singlePrecision == isSinglePrecision())
+            return this;
+        if (singlePrecision) {
+            floatVertices = new float[vertices.length];
+            for (int i = 0; i < vertices.length; i++)
+                floatVertices[i] = (float) vertices[i];
+            vertices = null;
+            triangleBounds = calculateTriangleBounds();
+            refitNodes();
+            floatTriangleBounds = toFloatBounds(triangleBounds);
+            floatNodeBounds = toFloatBounds(nodeBounds);
+            triangleBounds = null;
+            nodeBounds = null;
+        } else {
+            vertices = new double[floatVertices.length];
+            for (int i = 0; i < vertices.length; i++)
+                vertices[i] = floatVertices[i];
+            triangleBounds = toDoubleBounds(floatTriangleBounds);
+            nodeBounds = toDoubleBounds(floatNodeBounds);
+            floatVertices = null;
+            floatTriangleBounds = null;
+            floatNodeBounds = null;
+        }
+        updateBoundingBox();
+        return this;
+    }
+
+    /**
+     * @return true if the mesh is kept in single precision, false if it is kept in double precision
+     */
+    public boolean isSinglePrecision() {
+        return floatVertices != null;
+    }
+
+    /**
+     * @param i the index of a coordinate: 3 * vertex + axis
+     * @return the coordinate, from the storage of the mesh's precision
+     */
+    private double vertex(int i) {
+        return vertices != null ? vertices[i] : floatVertices[i];
+    }
+
+    /**
+     * @return the bounds of every triangle, by the current coordinates of its vertices
+     */
+    private double[] calculateTriangleBounds() {
+        final int triangleCount = triangles.length / 3;
+        final double[] bounds = new double[6 * triangleCount];
+        for (int i = 0; i < triangleCount; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                final double a = vertex(3 * triangles[3 * i] + axis);
+                final double b = vertex(3 * triangles[3 * i + 1] + axis);
+                final double c = vertex(3 * triangles[3 * i + 2] + axis);
+                bounds[6 * i + axis] = Math.min(a, Math.min(b, c));
+                bounds[6 * i + 3 + axis] = Math.max(a, Math.max(b, c));
+            }
+        return bounds;
+    }
+
+    /**
+     * recalculates the boxes of the nodes around the boxes of the triangles, keeping the shape of the BVH.
+     * the nodes are in depth-first order, so going backward reaches the children of a node before the node
+     */
+    private void refitNodes() {
+        if (nodeCounts == null)
+            return;
+        for (int node = nodeCounts.length - 1; node >= 0; node--) {
+            BVHBuilder.resetBounds(nodeBounds, node);
+            final int count = nodeCounts[node];
+            if (count == 0) {
+                BVHBuilder.growBounds(nodeBounds, node, nodeBounds, node + 1);
+                BVHBuilder.growBounds(nodeBounds, node, nodeBounds, nodeOffsets[node]);
+            } else
+                for (int i = nodeOffsets[node]; i < nodeOffsets[node] + count; i++)
+                    BVHBuilder.growBounds(nodeBounds, node, triangleBounds, triangleIndices[i]);
+        }
+    }
+
+    /**
+     * @param bounds boxes in doubles, in the layout of the triangles' bounds
+     * @return the boxes in floats, rounded outward so every box holds the box it was rounded from
+     */
+    private static float[] toFloatBounds(double[] bounds) {
+        final float[] result = new float[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            final boolean min = i % 6 < 3;
+            float rounded = (float) bounds[i];
+            if (min ? rounded > bounds[i] : rounded < bounds[i])
+                rounded = min ? Math.nextDown(rounded) : Math.nextUp(rounded);
+            result[i] = rounded;
+        }
+        return result;
+    }
+
+    /**
+     * @param bounds boxes in floats
+     * @return the same boxes in doubles
+     */
+    private static double[] toDoubleBounds(float[] bounds) {
+        final double[] result = new double[bounds.length];
+        for (int i = 0; i < bounds.length; i++)
+            result[i] = bounds[i];
+        return result;
+    }
+
+    /**
+     * sets the bounding box of the mesh to the box of the root of its BVH
+     */
+    private void updateBoundingBox() {
+        if (triangles.length == 0) {
+            boundingBox = null;
+            return;
+        }
+        boundingBox = nodeBounds != null
+                ? new BoundingBox(new Point(nodeBounds[0], nodeBounds[1], nodeBounds[2]),
+                new Point(nodeBounds[3], nodeBounds[4], nodeBounds[5]))
+                : new BoundingBox(new Point(floatNodeBounds[0], floatNodeBounds[1], floatNodeBounds[2]),
+                new Point(floatNodeBounds[3], floatNodeBounds[4], floatNodeBounds[5]));
+    }
+
+    /**
+     * the slab test of a ray against the box of a node or a triangle, in the storage of the mesh's precision
+     * @param nodes true for the box of a node, false for the box of a triangle
+     * @param index the index of the node or the triangle
+     * @param rayData the head and inverse direction of the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @return true if the ray hits the box within the distance, false otherwise
+     */
+    private boolean hitsBox(boolean nodes, int index, double[] rayData, double maxDistance) {
+        if (vertices != null)
+            return BVH.hitsBox(nodes ? nodeBounds : triangleBounds, index, rayData, maxDistance);
+        return BVH.hitsBox(nodes ? floatNodeBounds : floatTriangleBounds, index, rayData, maxDistance);
+    }
+
+    /**
+     * @return the amount of vertices in the mesh
+     */
+    public int getVertexCount() {
+        return (vertices != null ? vertices.length : floatVertices.length) / 3;
+    }
+
+    /**
+     * @return the amount of triangles in the mesh
+     */
+    public int getTriangleCount() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * finds the triangle of the point in the BVH of the mesh, and returns its normal.
+     * a point on an edge shared by triangles gets the normal of one of them
+     * @param point a point on the mesh
+     * @return the normal of the triangle the point is on
+     * @throws IllegalArgumentException if the point isn't on the mesh
+     */
+    @Override
+    public Vector getNormal(Point point) {
+        final int triangle = findTriangle(point.getX(), point.getY(), point.getZ());
+        if (triangle < 0)
+            throw new IllegalArgumentException("The point isn't on the mesh");
+        return getNormal(triangle);
+    }
+
+    /**
+     * @param nodes true for the bounds of the nodes, false for the bounds of the triangles
+     * @param i the index of a bound: 6 * index + (3 for the max) + axis
+     * @return the bound, from the storage of the mesh's precision
+     */
+    private double bound(boolean nodes, int i) {
+        if (vertices != null)
+            return nodes ? nodeBounds[i] : triangleBounds[i];
+        return nodes ? floatNodeBounds[i] : floatTriangleBounds[i];
+    }
+
+    /**
+     * @param nodes true for the box of a node, false for the box of a triangle
+     * @param index the index of the node or the triangle
+     * @param coordinates the coordinates of a point
+     * @return true if the point is inside the box or close to it, false otherwise
+     */
+    private boolean boxHolds(boolean nodes, int index, double[] coordinates) {
+        for (int axis = 0; axis < 3; axis++)
+            if (coordinates[axis] < bound(nodes, 6 * index + axis) - ON_SURFACE
+                    || coordinates[axis] > bound(nodes, 6 * index + 3 + axis) + ON_SURFACE)
+                return false;
+        return true;
+    }
+
+    /**
+     * finds the triangle a point is on, going down the BVH of the mesh through the boxes that hold the point
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @return the index of the triangle closest to the point among the triangles the point is on,
+     * -1 if the point isn't on any triangle
+     */
+    private int findTriangle(double x, double y, double z) {
+        if (nodeCounts == null)
+            return -1;
+        final double[] coordinates = {x, y, z};
+        int closest = -1;
+        double closestDistance = ON_SURFACE;
+        final int[] stack = new int[maxDepth + 1];
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (boxHolds(true, node, coordinates)) {
+                final int count = nodeCounts[node];
+                if (count == 0) {
+                    stack[top++] = nodeOffsets[node];
+                    node++;
+                    continue;
+                }
+                final int offset = nodeOffsets[node];
+                for (int i = offset; i < offset + count; i++) {
+                    final int triangle = triangleIndices[i];
+                    if (count > 1 && !boxHolds(false, triangle, coordinates))
+                        continue;
+                    final double distance = distance(triangle, x, y, z);
+                    if (distance <= closestDistance) {
+                        closest = triangle;
+                        closestDistance = distance;
+                    }
+                }
+            }
+            if (top == 0)
+                return closest;
+            node = stack[--top];
+        }
+    }
+
+    /**
+     * @param triangle the index of a triangle
+     * @param x the x coordinate of a point
+     * @param y the y coordinate of a point
+     * @param z the z coordinate of a point
+     * @return the distance of the point from the plane of the triangle, infinity if the point's projection on
+     * the plane is outside the triangle
+     */
+    private double distance(int triangle, double x, double y, double z) {
+        final int a = 3 * triangles[3 * triangle];
+        final int b = 3 * triangles[3 * triangle + 1];
+        final int c = 3 * triangles[3 * triangle + 2];
+        final double ax = vertex(a), ay = vertex(a + 1), az = vertex(a + 2);
+        final double e1x = vertex(b) - ax, e1y = vertex(b + 1) - ay, e1z = vertex(b + 2) - az;
+        final double e2x = vertex(c) - ax, e2y = vertex(c + 1) - ay, e2z = vertex(c + 2) - az;
+        final double px = x - ax, py = y - ay, pz = z - az;
+        // the barycentric coordinates of the point's projection, as in Triangle
+        final double e1e1 = e1x * e1x + e1y * e1y + e1z * e1z;
+        final double e1e2 = e1x * e2x + e1y * e2y + e1z * e2z;
+        final double e2e2 = e2x * e2x + e2y * e2y + e2z * e2z;
+        final double pe1 = px * e1x + py * e1y + pz * e1z;
+        final double pe2 = px * e2x + py * e2y + pz * e2z;
+        final double denominator = e1e1 * e2e2 - e1e2 * e1e2;
+        // a degenerate triangle has no plane
+        if (isZero(denominator))
+            return Double.POSITIVE_INFINITY;
+        final double u = (e2e2 * pe1 - e1e2 * pe2) / denominator;
+        final double v = (e1e1 * pe2 - e1e2 * pe1) / denominator;
+        if (u < -ON_SURFACE || v < -ON_SURFACE || u + v > 1 + ON_SURFACE)
+            return Double.POSITIVE_INFINITY;
+        final double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+        return Math.abs(px * nx + py * ny + pz * nz) / Math.sqrt(nx * nx + ny * ny + nz * nz);
+    }
+
+    /**
+     * @param triangle the index of a triangle
+     * @return the normal of the triangle, by the order of its vertices
+     */
+    private Vector getNormal(int triangle) {
+        final int a = 3 * triangles[3 * triangle];
+        final int b = 3 * triangles[3 * triangle + 1];
+        final int c = 3 * triangles[3 * triangle + 2];
+        final double ax = vertex(a), ay = vertex(a + 1), az = vertex(a + 2);
+        final double e1x = vertex(b) - ax, e1y = vertex(b + 1) - ay, e1z = vertex(b + 2) - az;
+        final double e2x = vertex(c) - ax, e2y = vertex(c + 1) - ay, e2z = vertex(c + 2) - az;
+        return new Vector(e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x).normalize();
+    }
+
+    /**
+     * the Moller-Trumbore test of a ray against a triangle of the mesh
+     * @param triangle the index of the triangle
+     * @param ray the head and the direction of the ray: [0] = x, y, z, [3] = dx, dy, dz
+     * @return the distance of the intersection along the ray, NaN if the ray misses the triangle
+     */
+    private double intersect(int triangle, double[] ray) {
+        final int a = 3 * triangles[3 * triangle];
+        final int b = 3 * triangles[3 * triangle + 1];
+        final int c = 3 * triangles[3 * triangle + 2];
+        final double ax = vertex(a), ay = vertex(a + 1), az = vertex(a + 2);
+        final double e1x = vertex(b) - ax, e1y = vertex(b + 1) - ay, e1z = vertex(b + 2) - az;
+        final double e2x = vertex(c) - ax, e2y = vertex(c + 1) - ay, e2z = vertex(c + 2) - az;
+        // p = direction x e2
+        final double px = ray[4] * e2z - ray[5] * e2y, py = ray[5] * e2x - ray[3] * e2z;
+        final double pz = ray[3] * e2y - ray[4] * e2x;
+        final double determinant = e1x * px + e1y * py + e1z * pz;
+        // the ray is parallel to the triangle
+        if (isZero(determinant))
+            return Double.NaN;
+        final double inverse = 1 / determinant;
+        final double sx = ray[0] - ax, sy = ray[1] - ay, sz = ray[2] - az;
+        final double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1)
+            return Double.NaN;
+        // q = s x e1
+        final double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+        final double v = (ray[3] * qx + ray[4] * qy + ray[5] * qz) * inverse;
+        // unlike a single Triangle, the edges are a part of the triangle - they are shared by the triangles
+        // of the mesh, and a ray through a shared edge mustn't slip between them
+        if (v < 0 || u + v > 1)
+            return Double.NaN;
+        return alignZero((e2x * qx + e2y * qy + e2z * qz) * inverse);
+    }
+
+    /**
+     * @param ray a ray
+     * @return the head and the direction of the ray: [0] = x, y, z, [3] = dx, dy, dz
+     */
+    private static double[] coordinates(Ray ray) {
+        final Point head = ray.getHead();
+        final Vector direction = ray.getDirection();
+        return new double[]{head.getX(), head.getY(), head.getZ(),
+                direction.getX(), direction.getY(), direction.getZ()};
+    }
+
+    /**
+     * a visitor of the triangles whose boxes a ray hits, it decides whether the traversal goes on
+     */
+    private interface TriangleVisitor {
+        /**
+         * visits a triangle
+         * @param triangle the index of the triangle
+         * @return the maximum distance the traversal goes on to, a negative number to stop it
+         */
+        double visit(int triangle);
+    }
+
+    /**
+     * visits the triangles whose boxes a ray hits, in the BVH of the mesh
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @param visitor the visitor of the triangles
+     */
+    private void traverse(Ray ray, double maxDistance, TriangleVisitor visitor) {
+        if (nodeCounts == null)
+            return;
+        final double[] rayData = BVH.rayData(ray);
+        final int[] stack = new int[maxDepth + 1];
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (hitsBox(true, node, rayData, maxDistance)) {
+                final int count = nodeCounts[node];
+                if (count == 0) {
+                    stack[top++] = nodeOffsets[node];
+                    node++;
+                    continue;
+                }
+                final int offset = nodeOffsets[node];
+                for (int i = offset; i < offset + count; i++) {
+                    final int triangle = triangleIndices[i];
+                    if (count > 1 && !hitsBox(false, triangle, rayData, maxDistance))
+                        continue;
+                    maxDistance = visitor.visit(triangle);
+                    if (maxDistance < 0)
+                        return;
+                }
+            }
+            if (top == 0)
+                return;
+            node = stack[--top];
+        }
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        final double[] coordinates = coordinates(ray);
+        final List<GeoPoint> intersections = new LinkedList<>();
+        traverse(ray, distance, triangle -> {
+            final double t = intersect(triangle, coordinates);
+            if (t > 0 && alignZero(t - distance) <= 0)
+                intersections.add(new GeoPoint(new Face(triangle), ray.getPoint(t)));
+            return distance;
+        });
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double distance) {
+        final double[] coordinates = coordinates(ray);
+        // [0] = the distance of the closest intersection so far, [1] = its triangle
+        final double[] closest = {distance, -1};
+        traverse(ray, distance, triangle -> {
+            final double t = intersect(triangle, coordinates);
+            if (t > 0 && alignZero(t - closest[0]) <= 0) {
+                closest[0] = t;
+                closest[1] = triangle;
+            }
+            return closest[0];
+        });
+        return closest[1] < 0 ? null : new Intersection(new Face((int) closest[1]), ray, closest[0]);
+    }
+
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double distance, Double3 ktr, double minKtr) {
+        final double[] coordinates = coordinates(ray);
+        final Double3 kT = getMaterial().kT;
+        final Double3[] transmittance = {ktr};
+        traverse(ray, distance, triangle -> {
+            final double t = intersect(triangle, coordinates);
+            if (t > 0 && alignZero(t - distance) <= 0) {
+                transmittance[0] = transmittance[0].product(kT);
+                if (transmittance[0].lowerThan(minKtr))
+                    return -1;
+            }
+            return distance;
+        });
+        return transmittance[0].lowerThan(minKtr) ? Double3.ZERO : transmittance[0];
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+}
@@ -7,6 +7,7 @@ import primitives.Vector;
 import java.util.LinkedList;
 import java.util.List;
 
+import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
 /**
@@ -17,6 +18,10 @@ public class Tube extends RadialGeometry{
      * axis is a ray representing the direction of the tube
      */
     protected final Ray axis;
+    /**
+     * the region the tube is cut to, null when the tube is infinite
+     */
+    protected BoundingBox clipRegion = null;
 
     /**
      * a constructor for the class Tube
@@ -37,83 +42,158 @@ public class Tube extends RadialGeometry{
     public Vector getNormal(Point point) {
         Vector v = point.subtract(axis.getHead());
         double t = axis.getDirection().dotProduct(v);
-        //checking if it's orthogonal to the head
-        if (isZero(t))
-            return point.subtract(axis.getHead()).normalize();
-        Point o = axis.getPoint(t);
-        return point.subtract(o).normalize();
+        //the projection of the point on the axis, null when it's orthogonal to the head
+        Point o = axis.getPointOrNull(t);
+        return o == null ? v.normalize() : point.subtract(o).normalize();
     }
 
-    //work in progress, doesn't fully work yet
-    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
-        Vector va = axis.getDirection();
-        Vector v = ray.getDirection();
-        Point p0 = ray.getHead();
+    /**
+     * cuts the tube to the part inside a box, so it has a finite bounding box and can be culled.
+     * intersections outside the region are dropped
+     * @param region the region to keep
+     * @return the tube itself
+     */
+    public Tube setClipRegion(BoundingBox region) {
+        if (region == null || !region.isFinite())
+            throw new IllegalArgumentException("The clip region of a tube must be a finite box");
+        clipRegion = region;
+        // the part of the axis whose surface can reach the region - the axis clipped to the region grown by the radius
         Point pa = axis.getHead();
-        boolean changed = false;
-
-        Vector deltaP = p0.subtract(pa);
+        Vector va = axis.getDirection();
+        double[] head = {pa.getX(), pa.getY(), pa.getZ()};
+        double[] dir = {va.getX(), va.getY(), va.getZ()};
+        Point min = region.getMin(), max = region.getMax();
+        double[] lo = {min.getX() - radius, min.getY() - radius, min.getZ() - radius};
+        double[] hi = {max.getX() + radius, max.getY() + radius, max.getZ() + radius};
+        double tNear = Double.NEGATIVE_INFINITY, tFar = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < 3; i++) {
+            if (isZero(dir[i])) {
+                if (head[i] < lo[i] || head[i] > hi[i])
+                    tFar = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            double t1 = (lo[i] - head[i]) / dir[i], t2 = (hi[i] - head[i]) / dir[i];
+            tNear = Math.max(tNear, Math.min(t1, t2));
+            tFar = Math.min(tFar, Math.max(t1, t2));
+        }
+        boundingBox = tNear > tFar ? region : BoundingBox.intersection(partBox(axis, radius, tNear, tFar), region);
+        BoundingBox own = unclippedBox();
+        if (own != null)
+            boundingBox = BoundingBox.intersection(boundingBox, own);
+        return this;
+    }
 
+    /**
+     * @return the bounding box of the tube before it is cut to the clip region, null if it is infinite
+     */
+    protected BoundingBox unclippedBox() {
+        return null;
+    }
 
-        // Calculate the components of the quadratic equation
-        Vector vMinusVaScaleVDotVa = v;
-        if (!isZero(v.dotProduct(va))) {
-            vMinusVaScaleVDotVa = v.subtract(va.scale(v.dotProduct(va)));
+    /**
+     * a method that calculates the tight bounding box of a part of the tube.
+     * each cap of the part is a disc, which reaches radius * sin(angle to the axis) on every axis
+     * @param axis the axis of the tube
+     * @param radius the radius of the tube
+     * @param from the distance of the part's start along the axis
+     * @param to the distance of the part's end along the axis
+     * @return the bounding box of the part
+     */
+    protected static BoundingBox partBox(Ray axis, double radius, double from, double to) {
+        Point pa = axis.getHead();
+        Vector va = axis.getDirection();
+        double[] head = {pa.getX(), pa.getY(), pa.getZ()};
+        double[] dir = {va.getX(), va.getY(), va.getZ()};
+        double[] min = new double[3], max = new double[3];
+        for (int i = 0; i < 3; i++) {
+            double extent = radius * Math.sqrt(Math.max(0, 1 - dir[i] * dir[i]));
+            double start = head[i] + dir[i] * from, end = head[i] + dir[i] * to;
+            min[i] = Math.min(start, end) - extent;
+            max[i] = Math.max(start, end) + extent;
         }
+        return new BoundingBox(new Point(min[0], min[1], min[2]), new Point(max[0], max[1], max[2]));
+    }
 
-        Vector deltaPMinusVaScaleDeltaPDotVa = deltaP;
-        if (!isZero(deltaP.dotProduct(va))) {
-            Vector temp = va.scale(deltaP.dotProduct(va));
-            if (deltaP.equals(temp)) {
-                deltaP = changeP0(ray);
-                temp = va.scale(deltaP.dotProduct(va));
-                changed = true;
-            }
-            deltaPMinusVaScaleDeltaPDotVa = deltaP.subtract(temp);
+    /**
+     * drops the intersections that are outside the clip region
+     * @param intersections the intersections with the whole surface, may be null
+     * @return the intersections inside the clip region, null if there are none
+     */
+    protected List<GeoPoint> clip(List<GeoPoint> intersections) {
+        if (clipRegion == null || intersections == null)
+            return intersections;
+        List<GeoPoint> inside = new LinkedList<>();
+        for (GeoPoint intersection : intersections)
+            if (clipRegion.contains(intersection.point))
+                inside.add(intersection);
+        return inside.isEmpty() ? null : inside;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+        return clip(findTubeIntersections(ray, distance));
+    }
+
+    /**
+     * a method that finds the intersections of a ray with the whole surface of the tube, before it is clipped
+     * @param ray the ray that intersects the tube
+     * @param distance the maximum distance of the intersections
+     * @return a list of the intersections, null if there are none
+     */
+    private List<GeoPoint> findTubeIntersections(Ray ray, double distance) {
+        Point p0 = ray.getHead();
+        Point pa = axis.getHead();
+        Vector v = ray.getDirection();
+        Vector va = axis.getDirection();
+        // working on coordinates, since the parts across the axis are zero vectors for a ray along the axis
+        // or a ray that starts on it
+        double[] dir = {v.getX(), v.getY(), v.getZ()};
+        double[] axisDir = {va.getX(), va.getY(), va.getZ()};
+        double[] deltaP = {p0.getX() - pa.getX(), p0.getY() - pa.getY(), p0.getZ() - pa.getZ()};
+        double vAlong = dot(dir, axisDir);
+        double deltaPAlong = dot(deltaP, axisDir);
+        double[] vAcross = new double[3], deltaPAcross = new double[3];
+        for (int i = 0; i < 3; i++) {
+            vAcross[i] = dir[i] - axisDir[i] * vAlong;
+            deltaPAcross[i] = deltaP[i] - axisDir[i] * deltaPAlong;
         }
 
         // Calculate the coefficients of the quadratic equation
-        double a = vMinusVaScaleVDotVa.lengthSquared();
-        double b = 2 * vMinusVaScaleVDotVa.dotProduct(deltaPMinusVaScaleDeltaPDotVa);
-        double c = deltaPMinusVaScaleDeltaPDotVa.lengthSquared() - radius * radius;
-
-        double discriminant = b * b - 4 * a * c;
+        double a = dot(vAcross, vAcross);
+        // a ray parallel to the axis never crosses the surface
+        if (isZero(a))
+            return null;
+        double b = 2 * dot(vAcross, deltaPAcross);
+        double c = dot(deltaPAcross, deltaPAcross) - radius * radius;
+        double discriminant = alignZero(b * b - 4 * a * c);
 
         if (discriminant < 0) {
             // No intersections
             return null;
         }
 
-        if (isZero(discriminant)) {
+        if (discriminant == 0) {
             // One intersection
-            double t = -b / (2 * a);
-            if (t > 0 && t < distance) {
-                return List.of(new GeoPoint(this, ray.getPoint(t)));
-            } else if(changed) {
-                return List.of(new GeoPoint(this, ray.getPoint(-t)));
-            }
-            return null;
+            double t = alignZero(-b / (2 * a));
+            return t > 0 && alignZero(t - distance) <= 0 ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
         }
 
-        double t1 = (-b + Math.sqrt(discriminant)) / (2 * a);
-        double t2 = (-b - Math.sqrt(discriminant)) / (2 * a);
-
+        double root = Math.sqrt(discriminant);
         List<GeoPoint> intersections = new LinkedList<>();
-
-        if (t1 > 0 && t1 < distance) {
-            Point p = ray.getPoint(t1);
-            intersections.add(new GeoPoint(this, p));
-        }
-        if (t2 > 0 && t2 < distance) {
-            Point p2 = ray.getPoint(t2);
-            intersections.add(new GeoPoint(this, p2));
+        for (double t : new double[]{(-b + root) / (2 * a), (-b - root) / (2 * a)}) {
+            t = alignZero(t);
+            if (t > 0 && alignZero(t - distance) <= 0)
+                intersections.add(new GeoPoint(this, ray.getPoint(t)));
         }
-
         return intersections.isEmpty() ? null : intersections;
     }
 
-    private Vector changeP0(Ray ray) {
-        Point p = ray.getPoint(radius / 2);
-        return p.subtract(axis.getHead());
+    /**
+     * @param a the first vector's coordinates
+     * @param b the second vector's coordinates
+     * @return the dot product of the two
+     */
+    protected static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
     }
 }
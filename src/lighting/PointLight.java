@@ -2,6 +2,7 @@ package lighting;
 
 import primitives.Color;
 import primitives.Point;
+import primitives.Vec3;
 import primitives.Vector;
 
 /**
@@ -34,7 +35,7 @@ public class PointLight extends Light implements LightSource {
      */
     @Override
     public Vector getL(Point p) {
-        return p.subtract(position).normalize();
+        return new Vec3().set(p).subtract(position).normalize().toVector();
     }
 
     /** a setter for Kc
@@ -12,7 +12,7 @@ public class Color {
      * The internal fields maintain RGB components as double numbers from 0 to
      * whatever...
      */
-    private final Double3     rgb;
+    final Double3     rgb;
 
     /** Black color = (0,0,0) */
     public static final Color BLACK = new Color();
@@ -39,7 +39,7 @@ public class Color {
      * range 0..255 (for printed white color) or more [for lights]
      * @param rgb triad of Red/Green/Blue components
      */
-    private Color(Double3 rgb) {
+    Color(Double3 rgb) {
         if (rgb.d1 < 0 || rgb.d2 < 0 || rgb.d3 < 0)
             throw new IllegalArgumentException("Negative color component is illegal");
         this.rgb = rgb;
@@ -12,6 +12,10 @@ import static primitives.Util.isZero;
 public class Ray {
     private final Point head;
     private final Vector direction;
+    /** the inverse of the direction's components, for the slab tests of boxes against the ray */
+    private final double inverseX, inverseY, inverseZ;
+    /** the signs of the direction: bit 0 is set if x is negative, bit 1 for y and bit 2 for z */
+    private final int signs;
     private static final double DELTA = 0.1;
 
     /**
@@ -20,8 +24,7 @@ public class Ray {
      * @param direction a vector representing the direction of the ray
      */
     public Ray(Point head, Vector direction) {
-        this.head = head;
-        this.direction = direction.normalize();
+        this(head, direction.normalize(), true);
     }
 
     /**
@@ -33,10 +36,48 @@ public class Ray {
      * @param normal a vector representing the normal to the ray
      */
     public Ray(Point head, Vector direction, Vector normal) {
+        this(moveHead(head, direction, normal), direction.normalize(), true);
+    }
+
+    /**
+     * moves the head of a ray along the normal, to the side of the geometry the direction goes to
+     * @param head the head of the ray
+     * @param direction the direction of the ray
+     * @param normal the normal to the geometry at the head
+     * @return the moved head
+     */
+    private static Point moveHead(Point head, Vector direction, Vector normal) {
         double nl = normal.dotProduct(direction);
-        Vector deltaVector = normal.scale(nl > 0 ? DELTA : -DELTA);
-        this.head = head.add(deltaVector);
-        this.direction = direction.normalize();
+        double delta = nl > 0 ? DELTA : -DELTA;
+        // head + normal * delta, without the intermediate vector
+        return new Point(head.xyz.d1 + normal.xyz.d1 * delta, head.xyz.d2 + normal.xyz.d2 * delta,
+                head.xyz.d3 + normal.xyz.d3 * delta);
+    }
+
+    /**
+     * constructor for a ray whose direction is already normalized
+     * @param head a point representing the start of the ray
+     * @param direction a normalized vector representing the direction of the ray
+     * @param normalized a marker that the direction is normalized
+     */
+    private Ray(Point head, Vector direction, boolean normalized) {
+        this.head = head;
+        this.direction = direction;
+        // a zero component has an infinite inverse, which the slab tests handle without a special case
+        inverseX = 1 / direction.xyz.d1;
+        inverseY = 1 / direction.xyz.d2;
+        inverseZ = 1 / direction.xyz.d3;
+        signs = (inverseX < 0 ? 1 : 0) | (inverseY < 0 ? 2 : 0) | (inverseZ < 0 ? 4 : 0);
+    }
+
+    /**
+     * creates a ray without normalizing its direction again, for the kernels that already normalized it
+     * @param head a point representing the start of the ray
+     * @param direction a normalized vector representing the direction of the ray
+     * @return the ray
+     */
+    static Ray ofUnitDirection(Point head, Vector direction) {
+        return new Ray(head, direction, true);
     }
 
     /**
@@ -55,6 +96,43 @@ public class Ray {
          return direction;
     }
 
+    /**
+     * @return the inverse of the x component of the direction, infinite if the component is zero
+     */
+    public double getInverseX() {
+        return inverseX;
+    }
+
+    /**
+     * @return the inverse of the y component of the direction, infinite if the component is zero
+     */
+    public double getInverseY() {
+        return inverseY;
+    }
+
+    /**
+     * @return the inverse of the z component of the direction, infinite if the component is zero
+     */
+    public double getInverseZ() {
+        return inverseZ;
+    }
+
+    /**
+     * @return the signs of the direction: bit 0 is set if the x component is negative, bit 1 for y and bit 2 for z.
+     * a zero component counts by the sign of its zero, as its inverse does
+     */
+    public int getSigns() {
+        return signs;
+    }
+
+    /**
+     * @param axis the axis: 0 for x, 1 for y, 2 for z
+     * @return true if the direction goes down the axis, false otherwise
+     */
+    public boolean isNegative(int axis) {
+        return (signs >> axis & 1) != 0;
+    }
+
 
     @Override
     public final boolean equals(Object o) {
@@ -80,7 +158,19 @@ public class Ray {
     public Point getPoint(double t1) {
         if (isZero(t1))
             throw new IllegalArgumentException("t1 cannot be 0");
-        return head.add(direction.scale(t1));
+        // head + direction * t1, without the intermediate vector
+        return new Point(head.xyz.d1 + direction.xyz.d1 * t1, head.xyz.d2 + direction.xyz.d2 * t1,
+                head.xyz.d3 + direction.xyz.d3 * t1);
+    }
+
+    /**
+     * Returns a point on the ray at a distance of t1 from the head of the ray, without throwing for a zero distance
+     * @param t1 the distance from the head of the ray
+     * @return a point on the ray at a distance of t1 from the head of the ray, null if t1 is zero
+     */
+    public Point getPointOrNull(double t1) {
+        return isZero(t1) ? null : new Point(head.xyz.d1 + direction.xyz.d1 * t1,
+                head.xyz.d2 + direction.xyz.d2 * t1, head.xyz.d3 + direction.xyz.d3 * t1);
     }
 
     /**
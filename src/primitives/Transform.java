@@ -0,0 +1,191 @@
+package primitives;
+
+import java.util.Arrays;
+
+import static primitives.Util.isZero;
+
+/**
+ * Transform class represents an affine transformation of the 3-dimensional space - a linear part
+ * (rotation, scaling, shearing) followed by a translation.
+ * the transformation is kept with its inverse, so points, vectors and normals can be moved both ways.
+ * transforms are immutable, they are combined with {@link #then(Transform)}
+ */
+public class Transform {
+    /** the transformation that leaves everything in place */
+    public static final Transform IDENTITY = new Transform(
+            new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0},
+            new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0});
+
+    /** the matrix of the transformation, by rows: [4 * row + column], the last column is the translation */
+    private final double[] matrix;
+    /** the matrix of the inverse transformation, in the same layout */
+    private final double[] inverse;
+
+    /**
+     * constructor for a transformation from its matrix and the matrix of its inverse
+     * @param matrix the matrix, by rows, 3 rows of 4 values
+     * @param inverse the matrix of the inverse, in the same layout
+     */
+    private Transform(double[] matrix, double[] inverse) {
+        this.matrix = matrix;
+        this.inverse = inverse;
+    }
+
+    /**
+     * creates a translation
+     * @param offset the vector every point is moved by
+     * @return the translation
+     */
+    public static Transform translation(Vector offset) {
+        return new Transform(
+                new double[]{1, 0, 0, offset.getX(), 0, 1, 0, offset.getY(), 0, 0, 1, offset.getZ()},
+                new double[]{1, 0, 0, -offset.getX(), 0, 1, 0, -offset.getY(), 0, 0, 1, -offset.getZ()});
+    }
+
+    /**
+     * creates a scaling around the origin
+     * @param x the scale on the x-axis
+     * @param y the scale on the y-axis
+     * @param z the scale on the z-axis
+     * @return the scaling
+     * @throws IllegalArgumentException if any of the scales is zero
+     */
+    public static Transform scaling(double x, double y, double z) {
+        if (isZero(x) || isZero(y) || isZero(z))
+            throw new IllegalArgumentException("A scaling can't flatten an axis");
+        return new Transform(
+                new double[]{x, 0, 0, 0, 0, y, 0, 0, 0, 0, z, 0},
+                new double[]{1 / x, 0, 0, 0, 0, 1 / y, 0, 0, 0, 0, 1 / z, 0});
+    }
+
+    /**
+     * creates a rotation around an axis through the origin
+     * @param axis the axis of the rotation
+     * @param angle the angle of the rotation in radians, counterclockwise when the axis points at the viewer
+     * @return the rotation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.getX(), y = u.getY(), z = u.getZ();
+        double cos = Math.cos(angle), sin = Math.sin(angle), t = 1 - cos;
+        // Rodrigues' rotation formula, the inverse of a rotation is its transpose
+        double[] matrix = {
+                t * x * x + cos, t * x * y - sin * z, t * x * z + sin * y, 0,
+                t * x * y + sin * z, t * y * y + cos, t * y * z - sin * x, 0,
+                t * x * z - sin * y, t * y * z + sin * x, t * z * z + cos, 0};
+        double[] inverse = {
+                matrix[0], matrix[4], matrix[8], 0,
+                matrix[1], matrix[5], matrix[9], 0,
+                matrix[2], matrix[6], matrix[10], 0};
+        return new Transform(matrix, inverse);
+    }
+
+    /**
+     * combines this transformation with another one
+     * @param next the transformation that is applied after this one
+     * @return a transformation that applies this one and then the next one
+     */
+    public Transform then(Transform next) {
+        return new Transform(multiply(next.matrix, matrix), multiply(inverse, next.inverse));
+    }
+
+    /**
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inverse, matrix);
+    }
+
+    /**
+     * multiplies two affine matrices
+     * @param a the matrix that is applied second
+     * @param b the matrix that is applied first
+     * @return the product a * b
+     */
+    private static double[] multiply(double[] a, double[] b) {
+        double[] product = new double[12];
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 4; column++)
+                product[4 * row + column] = a[4 * row] * b[column] + a[4 * row + 1] * b[4 + column]
+                        + a[4 * row + 2] * b[8 + column];
+            product[4 * row + 3] += a[4 * row + 3];
+        }
+        return product;
+    }
+
+    /**
+     * @param point a point
+     * @return the point moved by the transformation
+     */
+    public Point transformPoint(Point point) {
+        return transformPoint(matrix, point);
+    }
+
+    /**
+     * @param point a point that was moved by the transformation
+     * @return the point moved back by the inverse transformation
+     */
+    public Point inverseTransformPoint(Point point) {
+        return transformPoint(inverse, point);
+    }
+
+    /**
+     * @param vector a vector (a direction, the translation doesn't apply to it)
+     * @return the vector moved by the transformation, not normalized
+     */
+    public Vector transformVector(Vector vector) {
+        return transformVector(matrix, vector);
+    }
+
+    /**
+     * @param vector a vector that was moved by the transformation
+     * @return the vector moved back by the inverse transformation, not normalized
+     */
+    public Vector inverseTransformVector(Vector vector) {
+        return transformVector(inverse, vector);
+    }
+
+    /**
+     * a normal stays perpendicular to its surface only when it is moved by the inverse transpose of the matrix
+     * @param normal a normal to a surface
+     * @return the normal to the surface moved by the transformation, normalized
+     */
+    public Vector transformNormal(Vector normal) {
+        double x = normal.getX(), y = normal.getY(), z = normal.getZ();
+        return new Vector(
+                inverse[0] * x + inverse[4] * y + inverse[8] * z,
+                inverse[1] * x + inverse[5] * y + inverse[9] * z,
+                inverse[2] * x + inverse[6] * y + inverse[10] * z).normalize();
+    }
+
+    /**
+     * @param matrix an affine matrix
+     * @param point a point
+     * @return the point multiplied by the matrix
+     */
+    private static Point transformPoint(double[] matrix, Point point) {
+        double x = point.getX(), y = point.getY(), z = point.getZ();
+        return new Point(
+                matrix[0] * x + matrix[1] * y + matrix[2] * z + matrix[3],
+                matrix[4] * x + matrix[5] * y + matrix[6] * z + matrix[7],
+                matrix[8] * x + matrix[9] * y + matrix[10] * z + matrix[11]);
+    }
+
+    /**
+     * @param matrix an affine matrix
+     * @param vector a vector
+     * @return the vector multiplied by the linear part of the matrix
+     */
+    private static Vector transformVector(double[] matrix, Vector vector) {
+        double x = vector.getX(), y = vector.getY(), z = vector.getZ();
+        return new Vector(
+                matrix[0] * x + matrix[1] * y + matrix[2] * z,
+                matrix[4] * x + matrix[5] * y + matrix[6] * z,
+                matrix[8] * x + matrix[9] * y + matrix[10] * z);
+    }
+
+    @Override
+    public String toString() {
+        return "Transform" + Arrays.toString(matrix);
+    }
+}
@@ -0,0 +1,215 @@
+package primitives;
+
+/**
+ * Vec3 is a mutable triad of numbers - a point, a vector or a color - for the hot paths of the renderer.
+ * every operation changes the triad itself and returns it, so a calculation that would create a new
+ * immutable object for every step creates none. a Vec3 is a scratch object: it must stay confined to the
+ * thread (and usually the method) that created it, and the result is turned back into an immutable
+ * {@link Point}, {@link Vector}, {@link Color} or {@link Ray} when it leaves the calculation.
+ * the operations calculate in the same order as the immutable ones, so the results are the same
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+public final class Vec3 {
+    /** the first number - x, or red */
+    public double x;
+    /** the second number - y, or green */
+    public double y;
+    /** the third number - z, or blue */
+    public double z;
+
+    /**
+     * constructor for a zero triad
+     */
+    public Vec3() {
+    }
+
+    /**
+     * constructor for a triad of three numbers
+     * @param x the first number
+     * @param y the second number
+     * @param z the third number
+     */
+    public Vec3(double x, double y, double z) {
+        set(x, y, z);
+    }
+
+    /**
+     * sets the numbers of the triad
+     * @param x the first number
+     * @param y the second number
+     * @param z the third number
+     * @return the triad itself
+     */
+    public Vec3 set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    /**
+     * sets the triad to the coordinates of a point or a vector
+     * @param point the point
+     * @return the triad itself
+     */
+    public Vec3 set(Point point) {
+        return set(point.xyz);
+    }
+
+    /**
+     * sets the triad to the components of a color
+     * @param color the color
+     * @return the triad itself
+     */
+    public Vec3 set(Color color) {
+        return set(color.rgb);
+    }
+
+    /**
+     * sets the triad to the numbers of a Double3
+     * @param numbers the numbers
+     * @return the triad itself
+     */
+    public Vec3 set(Double3 numbers) {
+        return set(numbers.d1, numbers.d2, numbers.d3);
+    }
+
+    /**
+     * adds a point or a vector to the triad
+     * @param point the point
+     * @return the triad itself
+     */
+    public Vec3 add(Point point) {
+        return set(x + point.xyz.d1, y + point.xyz.d2, z + point.xyz.d3);
+    }
+
+    /**
+     * adds a scaled vector to the triad: this + vector * scalar
+     * @param vector the vector
+     * @param scalar the scale of the vector
+     * @return the triad itself
+     */
+    public Vec3 addScaled(Point vector, double scalar) {
+        return addScaled(vector.xyz, scalar);
+    }
+
+    /**
+     * adds scaled numbers to the triad: this + numbers * scalar
+     * @param numbers the numbers
+     * @param scalar the scale of the numbers
+     * @return the triad itself
+     */
+    public Vec3 addScaled(Double3 numbers, double scalar) {
+        return set(x + numbers.d1 * scalar, y + numbers.d2 * scalar, z + numbers.d3 * scalar);
+    }
+
+    /**
+     * adds the product of two triads to the triad: this + a * b by component
+     * @param a the first triad
+     * @param b the second triad
+     * @return the triad itself
+     */
+    public Vec3 addProduct(Vec3 a, Vec3 b) {
+        return set(x + a.x * b.x, y + a.y * b.y, z + a.z * b.z);
+    }
+
+    /**
+     * subtracts a point or a vector from the triad
+     * @param point the point
+     * @return the triad itself
+     */
+    public Vec3 subtract(Point point) {
+        return set(x - point.xyz.d1, y - point.xyz.d2, z - point.xyz.d3);
+    }
+
+    /**
+     * scales the triad by a number
+     * @param scalar the number
+     * @return the triad itself
+     */
+    public Vec3 scale(double scalar) {
+        return set(x * scalar, y * scalar, z * scalar);
+    }
+
+    /**
+     * multiplies the triad by numbers by component
+     * @param numbers the numbers
+     * @return the triad itself
+     */
+    public Vec3 product(Double3 numbers) {
+        return set(x * numbers.d1, y * numbers.d2, z * numbers.d3);
+    }
+
+    /**
+     * @param vector a vector
+     * @return the dot product of the triad and the vector
+     */
+    public double dotProduct(Point vector) {
+        return x * vector.xyz.d1 + y * vector.xyz.d2 + z * vector.xyz.d3;
+    }
+
+    /**
+     * @return true if all the numbers are zero, as the numbers of a {@link Vector} can't be
+     */
+    public boolean isZero() {
+        return Util.isZero(x) && Util.isZero(y) && Util.isZero(z);
+    }
+
+    /**
+     * @return the squared length of the triad
+     */
+    public double lengthSquared() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * normalizes the triad, as {@link Vector#normalize()} does
+     * @return the triad itself
+     * @throws ArithmeticException if the triad is zero
+     */
+    public Vec3 normalize() {
+        final double length = Util.alignZero(Math.sqrt(lengthSquared()));
+        if (length == 0)
+            throw new ArithmeticException("Cannot normalize an empty vector");
+        return scale(1d / length);
+    }
+
+    /**
+     * @return a point at the triad
+     */
+    public Point toPoint() {
+        return new Point(x, y, z);
+    }
+
+    /**
+     * @return a vector of the triad
+     * @throws IllegalArgumentException if the triad is zero
+     */
+    public Vector toVector() {
+        return new Vector(x, y, z);
+    }
+
+    /**
+     * @return a color of the triad
+     * @throws IllegalArgumentException if a component is negative
+     */
+    public Color toColor() {
+        return new Color(new Double3(x, y, z));
+    }
+
+    /**
+     * normalizes the triad and creates a ray in its direction, the direction isn't normalized again by the ray
+     * @param head the head of the ray
+     * @return the ray
+     * @throws ArithmeticException if the triad is zero
+     */
+    public Ray toRay(Point head) {
+        normalize();
+        return Ray.ofUnitDirection(head, toVector());
+    }
+
+    @Override
+    public String toString() {
+        return "Vec3(" + x + "," + y + "," + z + ")";
+    }
+}
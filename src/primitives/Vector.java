@@ -124,6 +124,19 @@ public class Vector extends Point{
         );
     }
 
+    /**
+     * the cross product of the vector and another vector, without the checks of {@link #crossProduct(Vector)}.
+     * for the hot paths that meet parallel vectors as a normal case and shouldn't throw and catch for it
+     * @param vector is the other vector we use to find the cross product
+     * @return the perpendicular vector to both vectors, null if they are parallel (the product is zero)
+     */
+    public Vector crossProductOrNull(Vector vector) {
+        double x = xyz.d2 * vector.xyz.d3 - xyz.d3 * vector.xyz.d2;
+        double y = xyz.d3 * vector.xyz.d1 - xyz.d1 * vector.xyz.d3;
+        double z = xyz.d1 * vector.xyz.d2 - xyz.d2 * vector.xyz.d1;
+        return isZero(x) && isZero(y) && isZero(z) ? null : new Vector(x, y, z);
+    }
+
     /**
      * the function calculates the dot product (= scalar product) of two vectors
      * @param vector is the other vector we use to find the dot product
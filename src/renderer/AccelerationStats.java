@@ -0,0 +1,203 @@
+package renderer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AccelerationStats is a report of the quality of an acceleration structure: the shape of its tree,
+ * the estimated cost of tracing through it and, when counting is turned on, how much work the rays
+ * actually did in it
+ */
+public class AccelerationStats {
+    /**
+     * the kinds of rays, by the query they make to the structure
+     */
+    public enum RayType {
+        /** rays that look for their closest intersection - camera, reflected and refracted rays */
+        CLOSEST_HIT,
+        /** rays that look for the light passing between a point and a light source */
+        SHADOW,
+        /** rays that look for all their intersections */
+        ALL_HITS
+    }
+
+    /**
+     * the traversal counters of a structure, for every ray type. the counters are shared by all the
+     * rendering threads, a traversal adds its counts once when it ends
+     */
+    public static class Counters {
+        private final LongAdder[] rays = newAdders();
+        private final LongAdder[] nodes = newAdders();
+        private final LongAdder[] tests = newAdders();
+
+        /**
+         * @return an adder for every ray type
+         */
+        private static LongAdder[] newAdders() {
+            LongAdder[] adders = new LongAdder[RayType.values().length];
+            for (int i = 0; i < adders.length; i++)
+                adders[i] = new LongAdder();
+            return adders;
+        }
+
+        /**
+         * adds the counts of one traversal
+         * @param type the type of the ray
+         * @param visitedNodes the amount of nodes the ray visited
+         * @param primitiveTests the amount of primitives the ray was tested against
+         */
+        public void record(RayType type, int visitedNodes, int primitiveTests) {
+            rays[type.ordinal()].increment();
+            nodes[type.ordinal()].add(visitedNodes);
+            tests[type.ordinal()].add(primitiveTests);
+        }
+
+        /**
+         * sets all the counters back to zero
+         */
+        public void reset() {
+            for (int i = 0; i < rays.length; i++) {
+                rays[i].reset();
+                nodes[i].reset();
+                tests[i].reset();
+            }
+        }
+    }
+
+    private final int nodeCount;
+    private final int leafCount;
+    private final int maxDepth;
+    private final double averageDepth;
+    private final int[] leafHistogram;
+    private final double sahCost;
+    private final double buildTime;
+    /** the counts of the traversals at the time of the report, [type] - null if counting is off */
+    private final long[] rays, nodes, tests;
+
+    /**
+     * constructor for the report
+     * @param nodeCount the amount of nodes in the tree
+     * @param leafCount the amount of leaves in the tree
+     * @param maxDepth the depth of the deepest leaf
+     * @param averageDepth the average depth of the leaves
+     * @param leafHistogram the amount of leaves by the amount of primitives in them
+     * @param sahCost the estimated cost of a ray through the tree, by the surface area heuristic
+     * @param buildTime the time the build took, in milliseconds
+     * @param counters the traversal counters, null if counting is off
+     */
+    public AccelerationStats(int nodeCount, int leafCount, int maxDepth, double averageDepth, int[] leafHistogram,
+                             double sahCost, double buildTime, Counters counters) {
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+        this.maxDepth = maxDepth;
+        this.averageDepth = averageDepth;
+        this.leafHistogram = leafHistogram.clone();
+        this.sahCost = sahCost;
+        this.buildTime = buildTime;
+        if (counters == null) {
+            rays = nodes = tests = null;
+            return;
+        }
+        final int types = RayType.values().length;
+        rays = new long[types];
+        nodes = new long[types];
+        tests = new long[types];
+        for (int i = 0; i < types; i++) {
+            rays[i] = counters.rays[i].sum();
+            nodes[i] = counters.nodes[i].sum();
+            tests[i] = counters.tests[i].sum();
+        }
+    }
+
+    /**
+     * @return the amount of nodes in the tree, leaves included
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the amount of leaves in the tree
+     */
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    /**
+     * @return the depth of the deepest leaf, the root is at depth 0
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the average depth of the leaves
+     */
+    public double getAverageDepth() {
+        return averageDepth;
+    }
+
+    /**
+     * @return the amount of leaves by the amount of primitives in them: [i] = the leaves with i primitives
+     */
+    public int[] getLeafHistogram() {
+        return leafHistogram.clone();
+    }
+
+    /**
+     * @return the estimated cost of a ray through the tree, in box and primitive tests
+     */
+    public double getSahCost() {
+        return sahCost;
+    }
+
+    /**
+     * @return the time the build took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @param type a ray type
+     * @return the amount of rays of the type that were counted, 0 if counting is off
+     */
+    public long getRayCount(RayType type) {
+        return rays == null ? 0 : rays[type.ordinal()];
+    }
+
+    /**
+     * @param type a ray type
+     * @return the average amount of nodes a ray of the type visited, 0 if no ray was counted
+     */
+    public double getAverageNodesVisited(RayType type) {
+        long count = getRayCount(type);
+        return count == 0 ? 0 : (double) nodes[type.ordinal()] / count;
+    }
+
+    /**
+     * @param type a ray type
+     * @return the average amount of primitives a ray of the type was tested against, 0 if no ray was counted
+     */
+    public double getAveragePrimitiveTests(RayType type) {
+        long count = getRayCount(type);
+        return count == 0 ? 0 : (double) tests[type.ordinal()] / count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("nodes: %d, leaves: %d, depth: %d max, %.2f average%n",
+                nodeCount, leafCount, maxDepth, averageDepth));
+        report.append("primitives per leaf:");
+        for (int i = 0; i < leafHistogram.length; i++)
+            if (leafHistogram[i] > 0)
+                report.append(String.format(" %d: %d", i, leafHistogram[i]));
+        report.append(String.format("%nSAH cost: %.2f, build time: %.2f ms%n", sahCost, buildTime));
+        if (rays == null)
+            return report.append("traversals: not counted").toString();
+        for (RayType type : RayType.values())
+            report.append(String.format("%s rays: %d, %.2f nodes and %.2f primitive tests per ray%n",
+                    type, getRayCount(type), getAverageNodesVisited(type), getAveragePrimitiveTests(type)));
+        return report.toString().stripTrailing();
+    }
+}
@@ -0,0 +1,15 @@
+package renderer;
+
+/**
+ * the acceleration structures that can be built over a collection of geometries
+ */
+public enum AccelerationStructure {
+    /** a bounding volume hierarchy, see {@link renderer.BVH} */
+    BVH,
+    /** a uniform grid, see {@link renderer.Grid} */
+    GRID,
+    /** a kd-tree, see {@link renderer.KdTree} */
+    KD_TREE,
+    /** a bounding volume hierarchy with 4 children per node, see {@link renderer.WideBVH} */
+    WIDE_BVH
+}
@@ -1,95 +1,1026 @@
 package renderer;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 import geometries.*;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * BVH class represents a bounding volume hierarchy for a collection of geometries.
+ * the hierarchy is built over the primitives themselves - the nesting of the Geometries it was created from
+ * is ignored, and the primitives are partitioned into a binary tree using the surface area heuristic (SAH)
+ * over binned centroids, see {@link BVHBuilder}.
+ * after it is built, the tree is kept in flat arrays, and the traversal walks them with a stack of node indices.
+ * the tree can be updated without building it all again: added primitives are built into a subtree that is
+ * hung next to the node it enlarges the least, and primitives that moved have their boxes refitted bottom-up.
+ * when the children of a node overlap much more than they did when it was built, the subtree of that node
+ * is rebuilt.
  */
 public class BVH extends Intersectable {
-    private final Geometries root;
+    /** the default maximal amount of primitives in a leaf */
+    public static final int DEFAULT_LEAF_SIZE = 4;
+    /**
+     * a subtree is rebuilt when the areas of the children of its root, relative to the area of the root,
+     * grow by this factor since it was built
+     */
+    private static final double REBUILD_THRESHOLD = 1.5;
 
+    private final Geometries geometries;
+    private final int leafSize;
+    /** the primitives of the hierarchy, in the order they were added */
+    private Intersectable[] primitives = new Intersectable[0];
+    /** the amount of primitives in the hierarchy */
+    private int primitiveCount = 0;
+    /** the bounds of every primitive: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z */
+    private double[] primitiveBounds = new double[0];
+    /** the leaf that holds every primitive */
+    private int[] primitiveLeaves = new int[0];
+    /** the index of every primitive, for finding the ones that moved. created on the first refit */
+    private Map<Intersectable, Integer> primitiveIds;
+    /** indices into the primitives, ordered so every leaf holds a continuous range of them */
+    private int[] primitiveIndices = new int[0];
+    /** the amount of used primitive indices, including the ones of removed leaves */
+    private int indexCount = 0;
+    /**
+     * primitives without a finite bounding box (e.g. a plane), they are kept out of the tree, so the boxes
+     * of the nodes stay finite, and are tested against every ray
+     */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+
+    /** the index of the root node */
+    private int root = 0;
+    /** the amount of nodes in the arrays, including the ones of rebuilt subtrees */
+    private int nodeCount = 0;
+    /** the amount of nodes in the arrays that are no longer in the tree */
+    private int removedCount = 0;
+    /** the bounds of every node, in the same layout as the primitives' bounds */
+    private double[] nodeBounds = new double[0];
+    /** for an inner node - the index of its left child */
+    private int[] nodeLefts = new int[0];
+    /** for an inner node - the index of its right child, for a leaf - the start of its range in the indices */
+    private int[] nodeOffsets = new int[0];
+    /** the amount of primitives in every node, 0 for an inner node */
+    private int[] nodeCounts = new int[0];
+    /** the parent of every node, -1 for the root */
+    private int[] nodeParents = new int[0];
+    /** the axis every inner node is split on (0 = x, 1 = y, 2 = z), its left child is on the lower side */
+    private int[] nodeAxes = new int[0];
+    /** the overlap of the children of every inner node when it was built, see {@link #overlap(int)} */
+    private double[] nodeOverlaps = new double[0];
+    /** the depth of the deepest node, which is the initial size of the traversal stack */
+    private int maxDepth = 0;
+    /** the time the build took, in milliseconds */
+    private double buildTime = 0;
+    /** the counters of the traversals, null when they are not counted */
+    private AccelerationStats.Counters counters = null;
+
+    /**
+     * constructor for the BVH, with the default leaf size
+     * @param geometries the collection of geometries
+     */
     public BVH(Geometries geometries) {
-        this.root = geometries;
-        buildBVH(root);
+        this(geometries, DEFAULT_LEAF_SIZE);
     }
 
     /**
-     * Builds the BVH for a collection of geometries. works recursively.
+     * constructor for the BVH
      * @param geometries the collection of geometries
+     * @param leafSize the maximal amount of primitives in a leaf
+     */
+    public BVH(Geometries geometries, int leafSize) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("Leaf size must be at least 1");
+        this.geometries = geometries;
+        this.leafSize = leafSize;
+        buildBVH();
+    }
+
+    /**
+     * Builds the BVH for the collection of geometries.
+     * the primitives are collected from all the nested collections, split recursively and then flattened
+     */
+    private void buildBVH() {
+        final long startTime = System.nanoTime();
+        List<Intersectable> bounded = new LinkedList<>();
+        geometries.collectPrimitives(bounded, unbounded);
+        addPrimitives(bounded);
+        rebuild();
+        buildTime = (System.nanoTime() - startTime) / 1e6;
+    }
+
+    /**
+     * adds geometries to the hierarchy without building it again.
+     * the new primitives are built into a subtree of their own, which is hung next to the node
+     * that grows the least by holding them
+     * @param added the added geometries, collections are added with all the primitives under them
+     */
+    public void insert(Intersectable... added) {
+        List<Intersectable> bounded = new LinkedList<>();
+        final int unboundedCount = unbounded.size();
+        Geometries.collectPrimitives(List.of(added), bounded, unbounded);
+        if (bounded.isEmpty()) {
+            if (unbounded.size() != unboundedCount)
+                updateBoundingBox();
+            return;
+        }
+        final int first = primitiveCount;
+        addPrimitives(bounded);
+        if (nodeCount == 0) {
+            rebuild();
+            return;
+        }
+
+        final int[] subset = new int[primitiveCount - first];
+        final double[] batch = new double[6];
+        BVHBuilder.resetBounds(batch, 0);
+        for (int i = 0; i < subset.length; i++) {
+            subset[i] = first + i;
+            BVHBuilder.growBounds(batch, 0, primitiveBounds, first + i);
+        }
+
+        // the new inner node takes the place of the sibling, and holds the sibling and the new subtree
+        final int sibling = findSibling(batch);
+        final int parent = nodeParents[sibling];
+        final int node = addNode();
+        nodeCounts[node] = 0;
+        nodeParents[node] = parent;
+        if (parent == -1)
+            root = node;
+        else
+            replaceChild(parent, sibling, node);
+        nodeLefts[node] = sibling;
+        nodeParents[sibling] = node;
+        // the subtree is built first, since it may grow (and replace) the arrays of the nodes
+        final int subtree = appendSubtree(subset, node);
+        nodeOffsets[node] = subtree;
+        orderChildren(node);
+        refitBounds(node);
+        nodeOverlaps[node] = overlap(node);
+        maxDepth++;
+        refitPath(parent);
+        updateBoundingBox();
+    }
+
+    /**
+     * updates the hierarchy after geometries changed their bounding boxes, the boxes of the nodes above them
+     * are refitted bottom-up, and a subtree whose quality dropped too much is rebuilt
+     * @param moved the geometries that changed
+     */
+    public void refit(Intersectable... moved) {
+        if (nodeCount == 0)
+            return;
+        if (primitiveIds == null) {
+            primitiveIds = new IdentityHashMap<>();
+            for (int i = 0; i < primitiveCount; i++)
+                primitiveIds.put(primitives[i], i);
+        }
+        for (Intersectable geo : moved) {
+            final Integer id = primitiveIds.get(geo);
+            if (id == null)
+                continue;
+            setPrimitiveBounds(id, geo.getBoundingBox());
+            // the leaf is looked up again for every primitive, since a rebuild moves the primitives to new leaves
+            refitPath(primitiveLeaves[id]);
+        }
+        updateBoundingBox();
+    }
+
+    /**
+     * adds primitives to the arrays of the primitives, without adding them to the tree
+     * @param added the primitives, all of them have a bounding box
+     */
+    private void addPrimitives(List<Intersectable> added) {
+        final int size = primitiveCount + added.size();
+        if (size > primitives.length) {
+            final int capacity = Math.max(size, 2 * primitives.length);
+            primitives = Arrays.copyOf(primitives, capacity);
+            primitiveBounds = Arrays.copyOf(primitiveBounds, 6 * capacity);
+            primitiveLeaves = Arrays.copyOf(primitiveLeaves, capacity);
+        }
+        for (Intersectable geo : added) {
+            primitives[primitiveCount] = geo;
+            setPrimitiveBounds(primitiveCount, geo.getBoundingBox());
+            if (primitiveIds != null)
+                primitiveIds.put(geo, primitiveCount);
+            primitiveCount++;
+        }
+    }
+
+    /**
+     * copies the bounding box of a primitive into the bounds of the primitives
+     * @param id the index of the primitive
+     * @param box the bounding box
+     */
+    private void setPrimitiveBounds(int id, BoundingBox box) {
+        Point min = box.getMin();
+        Point max = box.getMax();
+        primitiveBounds[6 * id] = min.getX();
+        primitiveBounds[6 * id + 1] = min.getY();
+        primitiveBounds[6 * id + 2] = min.getZ();
+        primitiveBounds[6 * id + 3] = max.getX();
+        primitiveBounds[6 * id + 4] = max.getY();
+        primitiveBounds[6 * id + 5] = max.getZ();
+    }
+
+    /**
+     * builds the whole tree again over all the primitives, dropping the nodes that are no longer in use
+     */
+    private void rebuild() {
+        nodeCount = 0;
+        removedCount = 0;
+        indexCount = 0;
+        maxDepth = 0;
+        if (primitiveCount > 0) {
+            final int[] all = new int[primitiveCount];
+            for (int i = 0; i < primitiveCount; i++)
+                all[i] = i;
+            root = appendSubtree(all, -1);
+        }
+        updateBoundingBox();
+    }
+
+    /**
+     * builds the subtree of a node again from the primitives under it.
+     * the new subtree is added at the end of the arrays, and when too many nodes in the arrays are
+     * no longer in use, the whole tree is built again instead
+     * @param node the root of the subtree
      */
-    private void buildBVH(Geometries geometries) {
-        if (geometries == null || geometries.getGeometries().isEmpty()) {
+    private void rebuild(int node) {
+        final int[] subset = new int[primitiveCount];
+        int size = 0;
+        int removed = 0;
+        int[] stack = new int[maxDepth + 2];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            final int current = stack[--top];
+            removed++;
+            if (nodeCounts[current] == 0) {
+                if (top + 2 > stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                stack[top++] = nodeLefts[current];
+                stack[top++] = nodeOffsets[current];
+            } else
+                for (int i = nodeOffsets[current]; i < nodeOffsets[current] + nodeCounts[current]; i++)
+                    subset[size++] = primitiveIndices[i];
+        }
+        removedCount += removed;
+        if (2 * removedCount > nodeCount) {
+            rebuild();
             return;
         }
 
-        for (Intersectable geo : geometries.getGeometries()) {
-            if (geo instanceof Geometries) {
-                buildBVH((Geometries) geo);
+        final int parent = nodeParents[node];
+        final int fresh = appendSubtree(Arrays.copyOf(subset, size), parent);
+        if (parent == -1)
+            root = fresh;
+        else
+            replaceChild(parent, node, fresh);
+    }
+
+    /**
+     * builds a subtree over some of the primitives and adds it at the end of the arrays
+     * @param subset the indices of the primitives
+     * @param parent the parent of the subtree, -1 for the root
+     * @return the index of the root of the subtree
+     */
+    private int appendSubtree(int[] subset, int parent) {
+        final double[] bounds = new double[6 * subset.length];
+        for (int i = 0; i < subset.length; i++)
+            System.arraycopy(primitiveBounds, 6 * subset[i], bounds, 6 * i, 6);
+        final BVHBuilder builder = new BVHBuilder(bounds, leafSize);
+
+        final int base = nodeCount;
+        final int count = builder.getNodeCount();
+        ensureNodeCapacity(base + count);
+        if (indexCount + subset.length > primitiveIndices.length)
+            primitiveIndices = Arrays.copyOf(primitiveIndices,
+                    Math.max(indexCount + subset.length, 2 * primitiveIndices.length));
+        final int[] indices = builder.getIndices();
+        for (int i = 0; i < indices.length; i++)
+            primitiveIndices[indexCount + i] = subset[indices[i]];
+
+        final double[] builtBounds = builder.getNodeBounds();
+        final int[] offsets = builder.getNodeOffsets();
+        final int[] counts = builder.getNodeCounts();
+        final int[] axes = builder.getNodeAxes();
+        System.arraycopy(builtBounds, 0, nodeBounds, 6 * base, 6 * count);
+        nodeParents[base] = parent;
+        for (int i = 0; i < count; i++) {
+            final int node = base + i;
+            nodeCounts[node] = counts[i];
+            if (counts[i] == 0) {
+                // the builder keeps the left child right after its parent
+                nodeLefts[node] = node + 1;
+                nodeOffsets[node] = base + offsets[i];
+                nodeAxes[node] = axes[i];
+                nodeParents[node + 1] = node;
+                nodeParents[base + offsets[i]] = node;
+            } else {
+                nodeOffsets[node] = indexCount + offsets[i];
+                for (int j = nodeOffsets[node]; j < nodeOffsets[node] + counts[i]; j++)
+                    primitiveLeaves[primitiveIndices[j]] = node;
             }
         }
+        for (int node = base; node < base + count; node++)
+            if (nodeCounts[node] == 0)
+                nodeOverlaps[node] = overlap(node);
 
-        BoundingBox bbox = computeBoundingBox(geometries);
-        geometries.setBoundingBox(bbox);
+        nodeCount += count;
+        indexCount += subset.length;
+        maxDepth = Math.max(maxDepth, depth(parent) + 1 + builder.getMaxDepth());
+        return base;
     }
 
     /**
-     * @param geometries the collection of geometries
-     * @return the bounding box of the geometries
+     * finds the node that a new subtree is hung next to, the one that adds the least area to the tree.
+     * the search goes down the children that grow the least, and stops once going deeper can't be cheaper
+     * @param batch the bounds of the new subtree
+     * @return the index of the node
      */
-    private BoundingBox computeBoundingBox(Geometries geometries) {
-        if (geometries.getGeometries().isEmpty()) {
-            return new BoundingBox(new Point(0, 0, 0), new Point(0, 0, 0));
+    private int findSibling(double[] batch) {
+        final double batchArea = BVHBuilder.halfArea(batch, 0);
+        int best = root;
+        double bestCost = Double.POSITIVE_INFINITY;
+        // the area the ancestors of the current node grow by
+        double inherited = 0;
+        int node = root;
+        while (true) {
+            final double unionArea = unionArea(node, batch);
+            if (unionArea + inherited < bestCost) {
+                best = node;
+                bestCost = unionArea + inherited;
+            }
+            if (nodeCounts[node] != 0)
+                return best;
+            inherited += unionArea - BVHBuilder.halfArea(nodeBounds, node);
+            if (batchArea + inherited >= bestCost)
+                return best;
+            final int left = nodeLefts[node];
+            final int right = nodeOffsets[node];
+            final double leftGrowth = unionArea(left, batch) - BVHBuilder.halfArea(nodeBounds, left);
+            final double rightGrowth = unionArea(right, batch) - BVHBuilder.halfArea(nodeBounds, right);
+            node = leftGrowth <= rightGrowth ? left : right;
         }
-        //BoundingBox bbox = geometries.getGeometries().get(0).getBoundingBox();
-        BoundingBox bbox = geometries.getBoundingBoxOfGeometry(0);
-        BoundingBox temp;
-        for (int i = 1; i < geometries.getGeometries().size(); i++) {
-            temp = geometries.getBoundingBoxOfGeometry(i);
-            if (temp != null)
-                bbox = BoundingBox.union(bbox, temp);
+    }
+
+    /**
+     * @param node a node
+     * @param batch a box
+     * @return half the surface area of the box that holds both the node and the box
+     */
+    private double unionArea(int node, double[] batch) {
+        final double[] union = batch.clone();
+        BVHBuilder.growBounds(union, 0, nodeBounds, node);
+        return BVHBuilder.halfArea(union, 0);
+    }
+
+    /**
+     * picks the split axis of an inserted inner node - the axis its children's centers are the farthest apart on,
+     * and swaps the children if needed, so the left one is on the lower side
+     * @param node the inner node
+     */
+    private void orderChildren(int node) {
+        final int left = nodeLefts[node];
+        final int right = nodeOffsets[node];
+        int axis = 0;
+        double farthest = -1;
+        for (int a = 0; a < 3; a++) {
+            // the sums of the two ends are twice the centers, which is enough for comparing
+            final double distance = Math.abs(nodeBounds[6 * right + a] + nodeBounds[6 * right + 3 + a]
+                    - nodeBounds[6 * left + a] - nodeBounds[6 * left + 3 + a]);
+            if (distance > farthest) {
+                farthest = distance;
+                axis = a;
+            }
+        }
+        nodeAxes[node] = axis;
+        if (nodeBounds[6 * right + axis] + nodeBounds[6 * right + 3 + axis]
+                < nodeBounds[6 * left + axis] + nodeBounds[6 * left + 3 + axis]) {
+            nodeLefts[node] = right;
+            nodeOffsets[node] = left;
+        }
+    }
+
+    /**
+     * refits the boxes from a node up to the root, and rebuilds the highest subtree on the way whose children
+     * overlap too much
+     * @param node the lowest node to refit, -1 for none
+     */
+    private void refitPath(int node) {
+        int degraded = -1;
+        for (int current = node; current != -1; current = nodeParents[current]) {
+            refitBounds(current);
+            if (nodeCounts[current] == 0 && overlap(current) > REBUILD_THRESHOLD * nodeOverlaps[current])
+                degraded = current;
         }
-        return bbox;
+        if (degraded != -1)
+            rebuild(degraded);
+    }
+
+    /**
+     * sets the box of a node to hold its children, or the primitives of a leaf
+     * @param node the node
+     */
+    private void refitBounds(int node) {
+        BVHBuilder.resetBounds(nodeBounds, node);
+        if (nodeCounts[node] == 0) {
+            BVHBuilder.growBounds(nodeBounds, node, nodeBounds, nodeLefts[node]);
+            BVHBuilder.growBounds(nodeBounds, node, nodeBounds, nodeOffsets[node]);
+        } else
+            for (int i = nodeOffsets[node]; i < nodeOffsets[node] + nodeCounts[node]; i++)
+                BVHBuilder.growBounds(nodeBounds, node, primitiveBounds, primitiveIndices[i]);
+    }
+
+    /**
+     * the overlap of the children of an inner node - the sum of their areas relative to the area of the node.
+     * it grows when the primitives under the node move apart or are mixed with far ones, which makes
+     * the node a bad filter for the rays
+     * @param node the node
+     * @return the overlap
+     */
+    private double overlap(int node) {
+        final double area = BVHBuilder.halfArea(nodeBounds, node);
+        if (area <= 0)
+            return 0;
+        return (BVHBuilder.halfArea(nodeBounds, nodeLefts[node])
+                + BVHBuilder.halfArea(nodeBounds, nodeOffsets[node])) / area;
+    }
+
+    /**
+     * replaces a child of an inner node
+     * @param parent the inner node
+     * @param child the current child
+     * @param replacement the new child
+     */
+    private void replaceChild(int parent, int child, int replacement) {
+        if (nodeLefts[parent] == child)
+            nodeLefts[parent] = replacement;
+        else
+            nodeOffsets[parent] = replacement;
+        nodeParents[replacement] = parent;
+    }
+
+    /**
+     * @param node a node, -1 for none
+     * @return the depth of the node, -1 for none
+     */
+    private int depth(int node) {
+        int depth = -1;
+        for (int current = node; current != -1; current = nodeParents[current])
+            depth++;
+        return depth;
+    }
+
+    /**
+     * adds a node at the end of the arrays
+     * @return the index of the node
+     */
+    private int addNode() {
+        ensureNodeCapacity(nodeCount + 1);
+        return nodeCount++;
+    }
+
+    /**
+     * grows the arrays of the nodes when they are too small
+     * @param size the amount of nodes the arrays should hold
+     */
+    private void ensureNodeCapacity(int size) {
+        if (size <= nodeLefts.length)
+            return;
+        final int capacity = Math.max(size, 2 * nodeLefts.length);
+        nodeBounds = Arrays.copyOf(nodeBounds, 6 * capacity);
+        nodeLefts = Arrays.copyOf(nodeLefts, capacity);
+        nodeOffsets = Arrays.copyOf(nodeOffsets, capacity);
+        nodeCounts = Arrays.copyOf(nodeCounts, capacity);
+        nodeParents = Arrays.copyOf(nodeParents, capacity);
+        nodeAxes = Arrays.copyOf(nodeAxes, capacity);
+        nodeOverlaps = Arrays.copyOf(nodeOverlaps, capacity);
+    }
+
+    /**
+     * sets the bounding box of the hierarchy to the box of the root.
+     * the collection gets the same box, unless it has unbounded primitives and so has no finite box
+     */
+    private void updateBoundingBox() {
+        if (nodeCount > 0)
+            boundingBox = new BoundingBox(
+                    new Point(nodeBounds[6 * root], nodeBounds[6 * root + 1], nodeBounds[6 * root + 2]),
+                    new Point(nodeBounds[6 * root + 3], nodeBounds[6 * root + 4], nodeBounds[6 * root + 5]));
+        geometries.setBoundingBox(unbounded.isEmpty() ? boundingBox : null);
+    }
+
+    /**
+     * a visitor of the primitives whose boxes a ray hits, it decides whether the traversal goes on
+     */
+    interface PrimitiveVisitor {
+        /**
+         * visits a primitive
+         * @param primitive the primitive
+         * @return true if the traversal can stop, false otherwise
+         */
+        boolean visit(Intersectable primitive);
     }
 
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
-        return findIntersections(root, ray, maxDistance);
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            List<GeoPoint> geoIntersections = geo.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+        }
+        traverse(ray, maxDistance, AccelerationStats.RayType.ALL_HITS, primitive -> {
+            List<GeoPoint> geoIntersections = primitive.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+            return false;
+        });
+        return intersections.isEmpty() ? null : intersections;
     }
 
-    private static List<GeoPoint> findIntersections(Geometries geometries, Ray ray, double maxDistance) {
-        if (geometries.getBoundingBox() == null || !geometries.getBoundingBox().intersects(ray, maxDistance)) {
-            return null;
+    /**
+     * finds the closest intersection, the tree is traversed front to back: at every inner node the boxes of
+     * both children are tested and the one the ray enters first is visited first, the other one waits with its
+     * entry distance. the distance limit shrinks to every closer intersection that is found, so a waiting
+     * subtree whose box starts beyond it is dropped without testing it again
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Intersection closest = null;
+        double closestDistance = maxDistance;
+        for (Intersectable geo : unbounded) {
+            Intersection intersection = geo.findClosestIntersection(ray, closestDistance);
+            if (intersection != null) {
+                closest = intersection;
+                closestDistance = intersection.t;
+            }
         }
+        if (nodeCount == 0)
+            return closest;
 
-        List<GeoPoint> intersections = new LinkedList<>();
-
-        for (Intersectable geo : geometries.getGeometries()) {
-            if (geo instanceof Geometries) {
-                List<GeoPoint> nestedIntersections = findIntersections((Geometries) geo, ray, maxDistance);
-                if (nestedIntersections != null) {
-                    intersections.addAll(nestedIntersections);
+        final double[] rayData = rayData(ray);
+        int visited = 1, tests = 0;
+        if (Double.isNaN(boxDistance(nodeBounds, root, rayData, closestDistance))) {
+            if (counters != null)
+                counters.record(AccelerationStats.RayType.CLOSEST_HIT, visited, tests);
+            return closest;
+        }
+        int[] stack = new int[maxDepth + 1];
+        double[] stackDistances = new double[maxDepth + 1];
+        int top = 0;
+        int node = root;
+        traversal:
+        while (true) {
+            final int count = nodeCounts[node];
+            if (count == 0) {
+                final int left = nodeLefts[node], right = nodeOffsets[node];
+                final double leftDistance = boxDistance(nodeBounds, left, rayData, closestDistance);
+                final double rightDistance = boxDistance(nodeBounds, right, rayData, closestDistance);
+                visited += 2;
+                if (Double.isNaN(leftDistance)) {
+                    if (!Double.isNaN(rightDistance)) {
+                        node = right;
+                        continue;
+                    }
+                } else if (Double.isNaN(rightDistance)) {
+                    node = left;
+                    continue;
+                } else {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                        stackDistances = Arrays.copyOf(stackDistances, stack.length);
+                    }
+                    // on a tie (the head inside both boxes) a ray that goes down the split axis reaches the
+                    // right (upper) child first
+                    final boolean rightFirst = rightDistance < leftDistance
+                            || rightDistance == leftDistance && ray.isNegative(nodeAxes[node]);
+                    stack[top] = rightFirst ? left : right;
+                    stackDistances[top++] = rightFirst ? leftDistance : rightDistance;
+                    node = rightFirst ? right : left;
+                    continue;
                 }
             } else {
-                if (geo.getBoundingBox() != null && !geo.getBoundingBox().intersects(ray, maxDistance))
+                final int offset = nodeOffsets[node];
+                for (int i = offset; i < offset + count; i++) {
+                    final int primitive = primitiveIndices[i];
+                    if (count > 1 && !hitsBox(primitiveBounds, primitive, rayData, closestDistance))
+                        continue;
+                    tests++;
+                    Intersection intersection = primitives[primitive].findClosestIntersection(ray, closestDistance);
+                    if (intersection != null && intersection.t < closestDistance) {
+                        closest = intersection;
+                        closestDistance = intersection.t;
+                    }
+                }
+            }
+            while (top > 0) {
+                node = stack[--top];
+                if (stackDistances[top] <= closestDistance)
+                    continue traversal;
+            }
+            if (counters != null)
+                counters.record(AccelerationStats.RayType.CLOSEST_HIT, visited, tests);
+            return closest;
+        }
+    }
+
+    /**
+     * finds the closest intersections of a packet of coherent rays, such as the primary rays of neighbouring
+     * pixels. the packet goes down the tree together: a node is skipped for the whole packet when an interval
+     * test of the packet's heads and directions against its box fails, and otherwise the rays are tested against
+     * it one by one from the first ray that is still active in the node, the rays before it missed the node's
+     * parent and are done with the subtree.
+     * a packet whose directions don't share their signs on all the axes has no common traversal order, so it
+     * falls back to tracing every ray on its own, and so does a packet of a single ray, which gains nothing
+     * from the packet's tests
+     * @param rays the rays of the packet
+     * @param maxDistance the maximum distance the rays can travel
+     * @return the closest intersection of every ray, null for a ray without one
+     */
+    public Intersection[] findClosestIntersections(Ray[] rays, double maxDistance) {
+        final int size = rays.length;
+        final Intersection[] closest = new Intersection[size];
+        final double[][] rayData = new double[size][];
+        // the bounds of the packet: [0] = min head x, y, z, [3] = max head, [6] = min inverse direction, [9] = max
+        final double[] packet = new double[12];
+        BVHBuilder.resetBounds(packet, 0);
+        BVHBuilder.resetBounds(packet, 1);
+        for (int i = 0; i < size; i++) {
+            rayData[i] = rayData(rays[i]);
+            for (int axis = 0; axis < 3; axis++) {
+                packet[axis] = Math.min(packet[axis], rayData[i][axis]);
+                packet[3 + axis] = Math.max(packet[3 + axis], rayData[i][axis]);
+                packet[6 + axis] = Math.min(packet[6 + axis], rayData[i][3 + axis]);
+                packet[9 + axis] = Math.max(packet[9 + axis], rayData[i][3 + axis]);
+            }
+        }
+        boolean coherent = size > 1;
+        for (int axis = 0; axis < 3; axis++)
+            coherent &= (packet[6 + axis] < 0) == (packet[9 + axis] < 0);
+        if (!coherent) {
+            for (int i = 0; i < size; i++)
+                closest[i] = findClosestIntersectionHelper(rays[i], maxDistance);
+            return closest;
+        }
+
+        final double[] closestDistances = new double[size];
+        for (int i = 0; i < size; i++) {
+            closestDistances[i] = maxDistance;
+            for (Intersectable geo : unbounded) {
+                Intersection intersection = geo.findClosestIntersection(rays[i], closestDistances[i]);
+                if (intersection != null) {
+                    closest[i] = intersection;
+                    closestDistances[i] = intersection.t;
+                }
+            }
+        }
+        if (nodeCount == 0)
+            return closest;
+
+        final int[] visited = new int[size];
+        final int[] tests = new int[size];
+        // the stack holds pairs of a node and the first ray that is active in it
+        int[] stack = new int[2 * (maxDepth + 1)];
+        int top = 0;
+        int node = root;
+        int first = 0;
+        while (true) {
+            // the farthest distance any ray of the packet still looks at
+            double packetDistance = 0;
+            for (int i = first; i < size; i++)
+                packetDistance = Math.max(packetDistance, closestDistances[i]);
+            if (packetHitsBox(nodeBounds, node, packet, packetDistance)) {
+                while (first < size) {
+                    visited[first]++;
+                    if (hitsBox(nodeBounds, node, rayData[first], closestDistances[first]))
+                        break;
+                    first++;
+                }
+            } else
+                first = size;
+            if (first < size) {
+                final int count = nodeCounts[node];
+                if (count == 0) {
+                    if (top + 2 > stack.length)
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    // all the rays go the same way along the split axis, so they share the order of the children
+                    final boolean down = packet[6 + nodeAxes[node]] < 0;
+                    stack[top++] = down ? nodeLefts[node] : nodeOffsets[node];
+                    stack[top++] = first;
+                    node = down ? nodeOffsets[node] : nodeLefts[node];
+                    continue;
+                }
+                final int offset = nodeOffsets[node];
+                for (int i = first; i < size; i++)
+                    for (int j = offset; j < offset + count; j++) {
+                        final int primitive = primitiveIndices[j];
+                        // the rays after the first one weren't tested against the leaf's box
+                        if ((i > first || count > 1)
+                                && !hitsBox(primitiveBounds, primitive, rayData[i], closestDistances[i]))
+                            continue;
+                        tests[i]++;
+                        Intersection intersection = primitives[primitive].findClosestIntersection(rays[i],
+                                closestDistances[i]);
+                        if (intersection != null && intersection.t < closestDistances[i]) {
+                            closest[i] = intersection;
+                            closestDistances[i] = intersection.t;
+                        }
+                    }
+            }
+            if (top == 0)
+                break;
+            first = stack[--top];
+            node = stack[--top];
+        }
+        if (counters != null)
+            for (int i = 0; i < size; i++)
+                counters.record(AccelerationStats.RayType.CLOSEST_HIT, visited[i], tests[i]);
+        return closest;
+    }
+
+    /**
+     * finds the closest intersection points of a packet of coherent rays
+     * @param rays the rays of the packet
+     * @param maxDistance the maximum distance the rays can travel
+     * @return the closest intersection point of every ray, null for a ray without one
+     * @see #findClosestIntersections(Ray[], double)
+     */
+    public GeoPoint[] findClosestGeoIntersections(Ray[] rays, double maxDistance) {
+        Intersection[] closest = findClosestIntersections(rays, maxDistance);
+        GeoPoint[] geoPoints = new GeoPoint[closest.length];
+        for (int i = 0; i < closest.length; i++)
+            geoPoints[i] = closest[i] == null ? null : closest[i].toGeoPoint();
+        return geoPoints;
+    }
+
+    /**
+     * finds how much light passes through the primitives along a ray, the traversal stops at the first
+     * primitive that blocks the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minKtr) {
+        final Double3[] transmittance = {ktr};
+        for (Intersectable geo : unbounded) {
+            transmittance[0] = geo.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            if (transmittance[0].lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        traverse(ray, maxDistance, AccelerationStats.RayType.SHADOW, primitive -> {
+            transmittance[0] = primitive.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            return transmittance[0].lowerThan(minKtr);
+        });
+        return transmittance[0].lowerThan(minKtr) ? Double3.ZERO : transmittance[0];
+    }
+
+    /**
+     * visits the primitives in the tree whose boxes a ray hits
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @param type the type of the ray, for counting the traversal
+     * @param visitor the visitor of the primitives
+     */
+    private void traverse(Ray ray, double maxDistance, AccelerationStats.RayType type, PrimitiveVisitor visitor) {
+        if (nodeCount == 0)
+            return;
+        final double[] rayData = rayData(ray);
+        // inserted subtrees can make the tree deeper than it was built, then the stack grows
+        int[] stack = new int[maxDepth + 1];
+        int top = 0;
+        int node = root;
+        int visited = 0, tests = 0;
+        traversal:
+        while (true) {
+            visited++;
+            if (hitsBox(nodeBounds, node, rayData, maxDistance)) {
+                final int count = nodeCounts[node];
+                if (count == 0) {
+                    // visiting the left child right away, the right one waits on the stack
+                    if (top == stack.length)
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stack[top++] = nodeOffsets[node];
+                    node = nodeLefts[node];
                     continue;
+                }
+                final int offset = nodeOffsets[node];
+                for (int i = offset; i < offset + count; i++) {
+                    final int primitive = primitiveIndices[i];
+                    // a leaf with more than one primitive has a box bigger than the primitive's own box
+                    if (count > 1 && !hitsBox(primitiveBounds, primitive, rayData, maxDistance))
+                        continue;
+                    tests++;
+                    if (visitor.visit(primitives[primitive]))
+                        break traversal;
+                }
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+        }
+        if (counters != null)
+            counters.record(type, visited, tests);
+    }
+
+    /**
+     * @param ray a ray
+     * @return the head of the ray and the inverse of its direction: [0] = x, [1] = y, [2] = z, [3] = 1 / dx...
+     */
+    public static double[] rayData(Ray ray) {
+        final Point head = ray.getHead();
+        return new double[]{head.getX(), head.getY(), head.getZ(),
+                ray.getInverseX(), ray.getInverseY(), ray.getInverseZ()};
+    }
+
+    /**
+     * the slab test of a ray against a box in an array of bounds.
+     * the near and far bounds on every axis are picked by the sign of the inverse direction, so a direction
+     * parallel to an axis (an infinite inverse) works without a special case
+     * @param bounds the array of bounds
+     * @param index the index of the box
+     * @param rayData the head and inverse direction of the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @return true if the ray hits the box within the distance, false otherwise
+     */
+    public static boolean hitsBox(double[] bounds, int index, double[] rayData, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double origin = rayData[axis];
+            final double inverse = rayData[3 + axis];
+            final int near = inverse < 0 ? 3 : 0;
+            final double tEnter = (bounds[6 * index + near + axis] - origin) * inverse;
+            final double tExit = (bounds[6 * index + 3 - near + axis] - origin) * inverse;
+            // a NaN (the head on the slab's border of an axis the ray is parallel to) leaves the range as is
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        return tNear <= tFar;
+    }
+
+    /**
+     * the slab test of a ray against a box in an array of bounds that also finds where the ray enters the box,
+     * for visiting the boxes in the order the ray reaches them, see {@link #hitsBox(double[], int, double[], double)}
+     * @param bounds the array of bounds
+     * @param index the index of the box
+     * @param rayData the head and inverse direction of the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @return the distance the ray enters the box at (0 if the head is inside it), NaN if the ray misses the box
+     * within the distance
+     */
+    public static double boxDistance(double[] bounds, int index, double[] rayData, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double origin = rayData[axis];
+            final double inverse = rayData[3 + axis];
+            final int near = inverse < 0 ? 3 : 0;
+            final double tEnter = (bounds[6 * index + near + axis] - origin) * inverse;
+            final double tExit = (bounds[6 * index + 3 - near + axis] - origin) * inverse;
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        return tNear <= tFar ? tNear : Double.NaN;
+    }
 
-                List<GeoPoint> geoIntersections = geo.findGeoIntersections(ray, maxDistance);
-                if (geoIntersections != null) {
-                    intersections.addAll(geoIntersections);
+    /**
+     * the slab test of a ray against a box in an array of bounds in single precision, see
+     * {@link #hitsBox(double[], int, double[], double)}. the bounds are widened to doubles and the test is
+     * calculated in doubles, so a box rounded outward to floats is never missed
+     * @param bounds the array of bounds
+     * @param index the index of the box
+     * @param rayData the head and inverse direction of the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @return true if the ray hits the box within the distance, false otherwise
+     */
+    public static boolean hitsBox(float[] bounds, int index, double[] rayData, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double origin = rayData[axis];
+            final double inverse = rayData[3 + axis];
+            final int near = inverse < 0 ? 3 : 0;
+            final double tEnter = (bounds[6 * index + near + axis] - origin) * inverse;
+            final double tExit = (bounds[6 * index + 3 - near + axis] - origin) * inverse;
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        return tNear <= tFar;
+    }
+
+    /**
+     * turns the counting of the traversals on or off. counting is off by default, since the counters are
+     * shared by all the rendering threads; turning it on starts the counts from zero
+     * @param count true to count the traversals, false otherwise
+     * @return the BVH itself
+     */
+    public BVH setCountTraversals(boolean count) {
+        counters = count ? new AccelerationStats.Counters() : null;
+        return this;
+    }
+
+    /**
+     * walks the tree and reports its shape and cost, and the traversals counted so far.
+     * the SAH cost is the expected amount of box and primitive tests of a ray that hits the root's box:
+     * every node costs one box test weighted by the chance a ray hitting the root hits it (the ratio of
+     * their areas), and a leaf also costs a test for every primitive in it
+     * @return the report
+     */
+    public AccelerationStats getStats() {
+        int leaves = 0, deepest = 0, biggest = 0;
+        long depthSum = 0;
+        double cost = 0;
+        final int[] sizes = new int[nodeCount];
+        if (nodeCount > 0) {
+            final double rootArea = BVHBuilder.halfArea(nodeBounds, root);
+            int[] stack = new int[2 * (maxDepth + 2)];
+            int top = 0;
+            stack[top++] = root;
+            stack[top++] = 0;
+            while (top > 0) {
+                final int depth = stack[--top];
+                final int node = stack[--top];
+                // a box without area (primitives on a single spot) is hit by every ray that hits the root
+                final double chance = rootArea == 0 ? 1 : BVHBuilder.halfArea(nodeBounds, node) / rootArea;
+                final int count = nodeCounts[node];
+                cost += chance * (1 + count);
+                if (count == 0) {
+                    if (top + 4 > stack.length)
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stack[top++] = nodeLefts[node];
+                    stack[top++] = depth + 1;
+                    stack[top++] = nodeOffsets[node];
+                    stack[top++] = depth + 1;
+                    continue;
                 }
+                sizes[leaves++] = count;
+                biggest = Math.max(biggest, count);
+                deepest = Math.max(deepest, depth);
+                depthSum += depth;
             }
         }
+        final int[] histogram = new int[biggest + 1];
+        for (int i = 0; i < leaves; i++)
+            histogram[sizes[i]]++;
+        final int inner = leaves == 0 ? 0 : leaves - 1;
+        return new AccelerationStats(leaves + inner, leaves, deepest, leaves == 0 ? 0 : (double) depthSum / leaves,
+                histogram, cost, buildTime, counters);
+    }
 
-        return intersections.isEmpty() ? null : intersections;
+    /**
+     * the slab test of a whole packet against a box, with interval arithmetic: on every axis the distances to
+     * the slab's planes are bounded over all the heads and all the inverse directions of the packet, so when
+     * the test fails no ray of the packet hits the box
+     * @param bounds the array of bounds
+     * @param index the index of the box
+     * @param packet the bounds of the packet: [0] = min head, [3] = max head, [6] = min inverse, [9] = max inverse
+     * @param maxDistance the maximum distance any ray of the packet can travel
+     * @return false if no ray of the packet can hit the box within the distance, true otherwise
+     */
+    private static boolean packetHitsBox(double[] bounds, int index, double[] packet, double maxDistance) {
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double low = packet[6 + axis];
+            final double high = packet[9 + axis];
+            // the inverse directions share their sign, so they share the near plane as well
+            final int near = low < 0 ? 3 : 0;
+            final double nearPlane = bounds[6 * index + near + axis];
+            final double farPlane = bounds[6 * index + 3 - near + axis];
+            final double nearFromMin = nearPlane - packet[axis], nearFromMax = nearPlane - packet[3 + axis];
+            final double farFromMin = farPlane - packet[axis], farFromMax = farPlane - packet[3 + axis];
+            final double tEnter = Math.min(Math.min(nearFromMin * low, nearFromMin * high),
+                    Math.min(nearFromMax * low, nearFromMax * high));
+            final double tExit = Math.max(Math.max(farFromMin * low, farFromMin * high),
+                    Math.max(farFromMax * low, farFromMax * high));
+            // a NaN (a head on the slab's border of an axis a ray is parallel to) leaves the range as is
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        return tNear <= tFar;
+    }
+
+    /**
+     * @return the time the last build of the hierarchy took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return the maximal amount of primitives in a leaf
+     */
+    public int getLeafSize() {
+        return leafSize;
     }
 
     @Override
     public BoundingBox getBoundingBox() {
-        return root.getBoundingBox();
+        return boundingBox;
     }
-}
\ No newline at end of file
+}
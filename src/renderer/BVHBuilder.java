@@ -0,0 +1,531 @@
+package renderer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * BVHBuilder builds a bounding volume hierarchy over a set of boxes, using the surface area heuristic (SAH)
+ * over binned centroids, and flattens it into arrays in depth-first order.
+ * big ranges are built as fork-join tasks: the two subtrees of a node are built in parallel, and at the top
+ * levels, where the ranges are the biggest, the bounds and the bins are computed in parallel chunks as well.
+ */
+public class BVHBuilder {
+    /** the amount of bins the centroids are sorted into when looking for a split */
+    private static final int BIN_COUNT = 12;
+    /** ranges with more boxes than this build their two subtrees in parallel */
+    private static final int PARALLEL_BUILD_THRESHOLD = 1 << 12;
+    /** ranges with more boxes than this compute their bounds and bins in parallel chunks */
+    private static final int PARALLEL_BINNING_THRESHOLD = 1 << 15;
+
+    /** the bounds of every box: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z */
+    private final double[] bounds;
+    /** the centroids of the boxes: [3 * i] = x, y, z */
+    private final double[] centroids;
+    private final int leafSize;
+
+    /** indices into the boxes, ordered so every leaf holds a continuous range of them */
+    private final int[] indices;
+    /** the amount of nodes in the flattened tree */
+    private int nodeCount = 0;
+    /** the bounds of every node, in the same layout as the boxes' bounds */
+    private double[] nodeBounds;
+    /** for an inner node - the index of its right child, for a leaf - the start of its range in the indices */
+    private int[] nodeOffsets;
+    /** the amount of boxes in every node, 0 for an inner node */
+    private int[] nodeCounts;
+    /** the axis every inner node was split on (0 = x, 1 = y, 2 = z) */
+    private int[] nodeAxes;
+    /** the depth of the deepest node */
+    private int maxDepth = 0;
+    /** the time the build took, in nanoseconds */
+    private final long buildTime;
+
+    /**
+     * a node of the hierarchy while it is built. an inner node has two children, a leaf holds a range of the boxes
+     */
+    private static class Node {
+        /** the bounds of everything under the node */
+        final double[] box;
+        Node left, right;
+        /** the range of the boxes of a leaf */
+        int start, count;
+        /** the axis an inner node was split on, its left child holds the lower centroids on it */
+        int axis;
+
+        Node(double[] box) {
+            this.box = box;
+        }
+
+        boolean isLeaf() {
+            return left == null;
+        }
+    }
+
+    /**
+     * the bins of a range, for all three axes
+     */
+    private static class Bins {
+        /** the amount of centroids in every bin: [axis * BIN_COUNT + bin] */
+        final int[] counts = new int[3 * BIN_COUNT];
+        /** the bounds of the boxes in every bin, by the same index as the counts */
+        final double[] bounds = new double[6 * 3 * BIN_COUNT];
+
+        Bins() {
+            for (int b = 0; b < 3 * BIN_COUNT; b++)
+                resetBounds(bounds, b);
+        }
+
+        /**
+         * adds the content of other bins into these bins
+         * @param other the other bins
+         */
+        void merge(Bins other) {
+            for (int b = 0; b < 3 * BIN_COUNT; b++) {
+                counts[b] += other.counts[b];
+                growBounds(bounds, b, other.bounds, b);
+            }
+        }
+    }
+
+    /**
+     * a task that builds a node over a range of the boxes
+     */
+    @SuppressWarnings("serial") // the build tasks are never serialized
+    private class BuildTask extends RecursiveTask<Node> {
+        private final int start, end;
+
+        BuildTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Node compute() {
+            return buildNode(start, end);
+        }
+    }
+
+    /**
+     * a task that computes the bounds of a range of the boxes and the bounds of their centroids,
+     * as 12 values: the bounds of the boxes and then the bounds of the centroids
+     */
+    @SuppressWarnings("serial")
+    private class BoundsTask extends RecursiveTask<double[]> {
+        private final int start, end;
+
+        BoundsTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (end - start <= PARALLEL_BINNING_THRESHOLD)
+                return rangeBounds(start, end);
+            int mid = (start + end) >>> 1;
+            BoundsTask left = new BoundsTask(start, mid);
+            left.fork();
+            double[] result = new BoundsTask(mid, end).compute();
+            double[] leftResult = left.join();
+            growBounds(result, 0, leftResult, 0);
+            growBounds(result, 1, leftResult, 1);
+            return result;
+        }
+    }
+
+    /**
+     * a task that sorts the centroids of a range of the boxes into bins
+     */
+    @SuppressWarnings("serial")
+    private class BinningTask extends RecursiveTask<Bins> {
+        private final int start, end;
+        private final double[] centroidBox;
+        private final double[] scales;
+
+        BinningTask(int start, int end, double[] centroidBox, double[] scales) {
+            this.start = start;
+            this.end = end;
+            this.centroidBox = centroidBox;
+            this.scales = scales;
+        }
+
+        @Override
+        protected Bins compute() {
+            if (end - start <= PARALLEL_BINNING_THRESHOLD)
+                return binRange(start, end, centroidBox, scales);
+            int mid = (start + end) >>> 1;
+            BinningTask left = new BinningTask(start, mid, centroidBox, scales);
+            left.fork();
+            Bins result = new BinningTask(mid, end, centroidBox, scales).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * constructor for the builder, it builds the hierarchy right away
+     * @param bounds the bounds of the boxes: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z
+     * @param leafSize the maximal amount of boxes in a leaf
+     */
+    public BVHBuilder(double[] bounds, int leafSize) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("Leaf size must be at least 1");
+        final long startTime = System.nanoTime();
+        final int amount = bounds.length / 6;
+        this.bounds = bounds;
+        this.leafSize = leafSize;
+        this.centroids = new double[3 * amount];
+        this.indices = new int[amount];
+
+        IntStream range = IntStream.range(0, amount);
+        (amount > PARALLEL_BINNING_THRESHOLD ? range.parallel() : range).forEach(i -> {
+            for (int axis = 0; axis < 3; axis++)
+                centroids[3 * i + axis] = (bounds[6 * i + axis] + bounds[6 * i + 3 + axis]) / 2;
+            indices[i] = i;
+        });
+
+        if (amount > 0) {
+            Node root = amount > PARALLEL_BUILD_THRESHOLD
+                    ? ForkJoinPool.commonPool().invoke(new BuildTask(0, amount))
+                    : buildNode(0, amount);
+            nodeCount = countNodes(root);
+            nodeBounds = new double[6 * nodeCount];
+            nodeOffsets = new int[nodeCount];
+            nodeCounts = new int[nodeCount];
+            nodeAxes = new int[nodeCount];
+            flatten(root, 0, 0);
+        }
+        buildTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * builds a node over a range of the boxes, splitting it by the SAH while it holds more than a leaf can
+     * @param start the start of the range (inclusive)
+     * @param end the end of the range (exclusive)
+     * @return the node
+     */
+    private Node buildNode(int start, int end) {
+        final int count = end - start;
+        final double[] ranges = count > PARALLEL_BINNING_THRESHOLD
+                ? new BoundsTask(start, end).invoke()
+                : rangeBounds(start, end);
+        final Node node = new Node(new double[]{ranges[0], ranges[1], ranges[2], ranges[3], ranges[4], ranges[5]});
+        node.start = start;
+        node.count = count;
+        if (count <= leafSize)
+            return node;
+
+        // the bounds of the centroids decide the extent of the bins
+        final double[] centroidBox = {ranges[6], ranges[7], ranges[8], ranges[9], ranges[10], ranges[11]};
+        final double[] scales = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = centroidBox[3 + axis] - centroidBox[axis];
+            // an axis the centroids don't spread on can't be split
+            scales[axis] = extent > 0 ? BIN_COUNT / extent : 0;
+        }
+        final Bins bins = count > PARALLEL_BINNING_THRESHOLD
+                ? new BinningTask(start, end, centroidBox, scales).invoke()
+                : binRange(start, end, centroidBox, scales);
+
+        int bestAxis = -1, bestSplit = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        final double[] rightAreas = new double[BIN_COUNT];
+        final int[] rightCounts = new int[BIN_COUNT];
+        final double[] sweep = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            if (scales[axis] == 0)
+                continue;
+            final int first = axis * BIN_COUNT;
+            // sweeping from the right to get the area and count to the right of every split
+            resetBounds(sweep, 0);
+            int sweepCount = 0;
+            for (int b = BIN_COUNT - 1; b > 0; b--) {
+                sweepCount += bins.counts[first + b];
+                growBounds(sweep, 0, bins.bounds, first + b);
+                rightCounts[b] = sweepCount;
+                rightAreas[b] = halfArea(sweep, 0);
+            }
+            // sweeping from the left and evaluating every split between bin b - 1 and bin b
+            resetBounds(sweep, 0);
+            sweepCount = 0;
+            for (int b = 1; b < BIN_COUNT; b++) {
+                sweepCount += bins.counts[first + b - 1];
+                growBounds(sweep, 0, bins.bounds, first + b - 1);
+                if (sweepCount == 0 || rightCounts[b] == 0)
+                    continue;
+                double cost = halfArea(sweep, 0) * sweepCount + rightAreas[b] * rightCounts[b];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestSplit = b;
+                }
+            }
+        }
+
+        final int mid;
+        if (bestAxis != -1) {
+            node.axis = bestAxis;
+            mid = partition(start, end, bestAxis, centroidBox[bestAxis], scales[bestAxis], bestSplit);
+        } else {
+            // the costs can't be compared (an unbounded box), or all the centroids are at the same spot
+            node.axis = longestAxis(centroidBox);
+            mid = medianSplit(start, end, node.axis);
+        }
+
+        if (count > PARALLEL_BUILD_THRESHOLD) {
+            BuildTask left = new BuildTask(start, mid);
+            left.fork();
+            node.right = buildNode(mid, end);
+            node.left = left.join();
+        } else {
+            node.left = buildNode(start, mid);
+            node.right = buildNode(mid, end);
+        }
+        node.count = 0;
+        return node;
+    }
+
+    /**
+     * @param start the start of the range (inclusive)
+     * @param end the end of the range (exclusive)
+     * @return the bounds of a range of the boxes and the bounds of their centroids, as 12 values
+     */
+    private double[] rangeBounds(int start, int end) {
+        final double[] result = new double[12];
+        resetBounds(result, 0);
+        resetBounds(result, 1);
+        for (int i = start; i < end; i++) {
+            final int box = indices[i];
+            growBounds(result, 0, bounds, box);
+            for (int axis = 0; axis < 3; axis++) {
+                // comparing instead of Math.min/max skips the NaN centroids of unbounded boxes
+                final double c = centroids[3 * box + axis];
+                if (c < result[6 + axis]) result[6 + axis] = c;
+                if (c > result[9 + axis]) result[9 + axis] = c;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * sorts the centroids of a range of the boxes into bins on all three axes
+     * @param start the start of the range (inclusive)
+     * @param end the end of the range (exclusive)
+     * @param centroidBox the bounds of the centroids of the range
+     * @param scales the amount of bins per unit of length on every axis, 0 for an axis that isn't binned
+     * @return the bins
+     */
+    private Bins binRange(int start, int end, double[] centroidBox, double[] scales) {
+        final Bins bins = new Bins();
+        for (int i = start; i < end; i++) {
+            final int box = indices[i];
+            for (int axis = 0; axis < 3; axis++) {
+                if (scales[axis] == 0)
+                    continue;
+                int b = axis * BIN_COUNT + binIndex(centroids[3 * box + axis], centroidBox[axis], scales[axis]);
+                bins.counts[b]++;
+                growBounds(bins.bounds, b, bounds, box);
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * @param centroid the centroid coordinate on the axis of the bins
+     * @param min the lowest centroid coordinate
+     * @param scale the amount of bins per unit of length
+     * @return the bin the centroid falls into
+     */
+    private static int binIndex(double centroid, double min, double scale) {
+        int b = (int) ((centroid - min) * scale);
+        return b < 0 ? 0 : Math.min(b, BIN_COUNT - 1);
+    }
+
+    /**
+     * reorders a range of the boxes so the ones in the bins before the split come first
+     * @return the index of the first box after the split
+     */
+    private int partition(int start, int end, int axis, double min, double scale, int split) {
+        int i = start, j = end - 1;
+        while (i <= j) {
+            if (binIndex(centroids[3 * indices[i] + axis], min, scale) < split) {
+                i++;
+            } else {
+                int temp = indices[i];
+                indices[i] = indices[j];
+                indices[j--] = temp;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @param box a box
+     * @return the axis the box is the longest on
+     */
+    private static int longestAxis(double[] box) {
+        int axis = 0;
+        double longest = -1;
+        for (int a = 0; a < 3; a++) {
+            double extent = box[3 + a] - box[a];
+            if (extent > longest) {
+                longest = extent;
+                axis = a;
+            }
+        }
+        return axis;
+    }
+
+    /**
+     * splits a range of the boxes in half by their centroids on an axis, the longest one of the centroids' bounds.
+     * used when the SAH can't find a split
+     * @return the index of the first box of the second half
+     */
+    private int medianSplit(int start, int end, int axis) {
+        final int mid = start + (end - start) / 2;
+        // quick select, so the boxes before the middle have centroids not bigger than the ones after it
+        int low = start, high = end - 1;
+        while (low < high) {
+            final double pivot = centroids[3 * indices[(low + high) >>> 1] + axis];
+            int i = low, j = high;
+            while (i <= j) {
+                while (Double.compare(centroids[3 * indices[i] + axis], pivot) < 0) i++;
+                while (Double.compare(centroids[3 * indices[j] + axis], pivot) > 0) j--;
+                if (i <= j) {
+                    int temp = indices[i];
+                    indices[i++] = indices[j];
+                    indices[j--] = temp;
+                }
+            }
+            if (mid <= j) high = j;
+            else if (mid >= i) low = i;
+            else break;
+        }
+        return mid;
+    }
+
+    /**
+     * @param node a node of the tree while it is built
+     * @return the amount of nodes under the node, including itself
+     */
+    private static int countNodes(Node node) {
+        return node.isLeaf() ? 1 : 1 + countNodes(node.left) + countNodes(node.right);
+    }
+
+    /**
+     * writes a node and everything under it into the arrays, in depth-first order
+     * @param node the node
+     * @param index the index of the node in the arrays
+     * @param depth the depth of the node
+     * @return the index right after the last node under the node
+     */
+    private int flatten(Node node, int index, int depth) {
+        System.arraycopy(node.box, 0, nodeBounds, 6 * index, 6);
+        maxDepth = Math.max(maxDepth, depth);
+        if (node.isLeaf()) {
+            nodeOffsets[index] = node.start;
+            nodeCounts[index] = node.count;
+            return index + 1;
+        }
+        int right = flatten(node.left, index + 1, depth + 1);
+        nodeOffsets[index] = right;
+        nodeAxes[index] = node.axis;
+        return flatten(node.right, right, depth + 1);
+    }
+
+    /**
+     * sets a box in an array of bounds to an empty box
+     * @param target the array of bounds
+     * @param index the index of the box
+     */
+    public static void resetBounds(double[] target, int index) {
+        for (int axis = 0; axis < 3; axis++) {
+            target[6 * index + axis] = Double.POSITIVE_INFINITY;
+            target[6 * index + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * grows a box in an array of bounds to hold a box from another array of bounds
+     * @param target the array of the box that grows
+     * @param index the index of the box that grows
+     * @param source the array of the box that is added
+     * @param sourceIndex the index of the box that is added
+     */
+    public static void growBounds(double[] target, int index, double[] source, int sourceIndex) {
+        for (int axis = 0; axis < 3; axis++) {
+            target[6 * index + axis] = Math.min(target[6 * index + axis], source[6 * sourceIndex + axis]);
+            target[6 * index + 3 + axis] = Math.max(target[6 * index + 3 + axis], source[6 * sourceIndex + 3 + axis]);
+        }
+    }
+
+    /**
+     * @param bounds an array of bounds
+     * @param index the index of the box
+     * @return half the surface area of the box, which is enough for comparing costs
+     */
+    static double halfArea(double[] bounds, int index) {
+        double dx = bounds[6 * index + 3] - bounds[6 * index];
+        double dy = bounds[6 * index + 4] - bounds[6 * index + 1];
+        double dz = bounds[6 * index + 5] - bounds[6 * index + 2];
+        return dx < 0 ? 0 : dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * @return indices into the boxes, ordered so every leaf holds a continuous range of them
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return the amount of nodes in the flattened tree
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the bounds of every node: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z
+     */
+    public double[] getNodeBounds() {
+        return nodeBounds;
+    }
+
+    /**
+     * @return for an inner node - the index of its right child (the left one is right after it),
+     * for a leaf - the start of its range in the indices
+     */
+    public int[] getNodeOffsets() {
+        return nodeOffsets;
+    }
+
+    /**
+     * @return the amount of boxes in every node, 0 for an inner node
+     */
+    public int[] getNodeCounts() {
+        return nodeCounts;
+    }
+
+    /**
+     * @return the axis every inner node was split on (0 = x, 1 = y, 2 = z), its left child is on the lower side
+     */
+    public int[] getNodeAxes() {
+        return nodeAxes;
+    }
+
+    /**
+     * @return the depth of the deepest node
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the time the build took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime / 1e6;
+    }
+}
@@ -3,6 +3,7 @@ package renderer;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.Vec3;
 import primitives.Color;
 
 import java.util.LinkedList;
@@ -28,6 +29,8 @@ public class Camera implements Cloneable {
     private double height = 0;
     private Point pC;
     private boolean isParallel = false;
+    /** the size of the side of a square packet of pixels that is traced together, 1 to trace every pixel alone */
+    private int packetSize = 1;
 
     /**
      * Camera constructor
@@ -93,17 +96,17 @@ public class Camera implements Cloneable {
 
         double xj = (j - ((nX - 1) / 2d)) * rX;
         double yi = -(i - ((nY-1) / 2d)) * rY;
-        Point pIJ = pC;
+        // the pixel's point is calculated in a scratch triad, only the ray's direction is created
+        Vec3 pIJ = new Vec3().set(pC);
 
         // If xj or yi are not zero, add the corresponding vector to the point
         if (!isZero(yi)) {
-            pIJ = pIJ.add(vUp.scale(yi));
+            pIJ.addScaled(vUp, yi);
         }
         if (!isZero(xj)) {
-            pIJ = pIJ.add(vRight.scale(xj));
+            pIJ.addScaled(vRight, xj);
         }
-        Vector vIJ = pIJ.subtract(location);
-        return new Ray(location, vIJ);
+        return pIJ.subtract(location).toRay(location);
     }
 
     /**
@@ -112,7 +115,13 @@ public class Camera implements Cloneable {
     public Camera renderImage(){
         final int Nx = imageWriter.getNx();
         final int Ny = imageWriter.getNy();
-        if (isParallel) {
+        if (packetSize > 1) {
+            final int packetsX = (Nx + packetSize - 1) / packetSize;
+            final int packetsY = (Ny + packetSize - 1) / packetSize;
+            IntStream packets = IntStream.range(0, packetsX * packetsY);
+            (isParallel ? packets.parallel() : packets)
+                    .forEach(p -> castPacket(Nx, Ny, p % packetsX * packetSize, p / packetsX * packetSize));
+        } else if (isParallel) {
             IntStream.range(0, Ny).parallel()
                     .forEach(i -> IntStream.range(0, Nx).parallel()
                             .forEach(j -> castRay(Nx, Ny, j, i)));
@@ -137,6 +146,26 @@ public class Camera implements Cloneable {
         imageWriter.writePixel(j, i, pixelColor);
     }
 
+    /**
+     * Cast the rays of a square packet of pixels together, the packet is cut at the edges of the image
+     * @param Nx number of pixels in the x-axis
+     * @param Ny number of pixels in the y-axis
+     * @param j0 x index of the packet's first pixel
+     * @param i0 y index of the packet's first pixel
+     */
+    private void castPacket(int Nx, int Ny, int j0, int i0) {
+        final int width = Math.min(packetSize, Nx - j0);
+        final int height = Math.min(packetSize, Ny - i0);
+        Ray[] rays = new Ray[width * height];
+        for (int i = 0; i < height; i++)
+            for (int j = 0; j < width; j++)
+                rays[i * width + j] = constructRay(Nx, Ny, j0 + j, i0 + i);
+        Color[] colors = rayTracer.traceRays(rays);
+        for (int i = 0; i < height; i++)
+            for (int j = 0; j < width; j++)
+                imageWriter.writePixel(j0 + j, i0 + i, colors[i * width + j]);
+    }
+
     /**
      * Print the grid
      */
@@ -277,6 +306,18 @@ public class Camera implements Cloneable {
             return this;
         }
 
+        /**
+         * Builder sets the size of the packets of pixels the camera traces together,
+         * e.g. 4 for packets of 4x4 pixels, or 1 to trace every pixel on its own
+         */
+        public Builder setPacketSize(int packetSize) {
+            // Check if the size is valid
+            if (packetSize < 1)
+                throw new IllegalArgumentException("Packet size must be positive");
+            camera.packetSize = packetSize;
+            return this;
+        }
+
         /**
          * Builder builds the camera
          */
@@ -358,16 +399,16 @@ public class Camera implements Cloneable {
         final Point head = ray.getHead();
         final double gridSpacing = radius * 2 / numEdgeSamples;
         double x, y, radiusSquared = radius * radius;
-        Point randomPoint;
+        final Vec3 toRandomPoint = new Vec3();
         final Point centerCircle = head.add(dir.scale(distance));
         // the 2 vectors that create the virtual grid for the beam
-        Vector nX, nY;
-        // if the direction of the ray is Y, the nX will be X and nY will be Z
-        if (dir.equals(Vector.Y)) {
+        Vector nX = dir.crossProductOrNull(Vector.Y), nY;
+        // if the direction of the ray is along Y, the nX will be X and nY will be Z
+        if (nX == null) {
             nX = new Vector(1, 0, 0);
             nY = new Vector(0, 0, 1);
-        } else { // if the direction of the ray is not Y, the nX will be the cross product of the direction and Y
-            nX = dir.crossProduct(Vector.Y).normalize();
+        } else { // if the direction of the ray is not along Y, the nX will be the cross product of the direction and Y
+            nX = nX.normalize();
             nY = dir.crossProduct(nX).normalize();
         }
 
@@ -385,15 +426,15 @@ public class Camera implements Cloneable {
                 if (x * x + y * y <= radiusSquared) {
                     x += (Math.random() - 0.5) * gridSpacing;
                     y += (Math.random() - 0.5) * gridSpacing;
-                    try {
-                        randomPoint = centerCircle.add(nX.scale(x)).add(nY.scale(y));
-                        v = randomPoint.subtract(head).normalize();
-                        double nv = n.dotProduct(v); // Dot product of normal and new ray direction
-                        if (nv * nd > 0)
-                            rays.add(new Ray(head, v));
-                    } catch (Exception e) {
-                        j--;  // Retry the same point, randomization can cause the point to become Vector.ZERO
+                    toRandomPoint.set(centerCircle).addScaled(nX, x).addScaled(nY, y).subtract(head);
+                    if (toRandomPoint.isZero()) {
+                        j--;  // Retry the same point, randomization can bring the point to the head of the ray
+                        continue;
                     }
+                    v = toRandomPoint.normalize().toVector();
+                    double nv = n.dotProduct(v); // Dot product of normal and new ray direction
+                    if (nv * nd > 0)
+                        rays.add(new Ray(head, v));
                 }
             }
         }
@@ -0,0 +1,421 @@
+package renderer;
+
+import geometries.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Grid class represents a uniform grid over a collection of geometries - an alternative to the BVH that is
+ * much cheaper to build, and a good fit for many primitives that are evenly spread in the scene.
+ * the box of the scene is cut into equal cells, every cell lists the primitives whose boxes overlap it,
+ * and a ray walks the cells it passes through in order with a 3D-DDA.
+ */
+public class Grid extends Intersectable {
+    /** the amount of cells per primitive the resolution aims for */
+    private static final double CELLS_PER_PRIMITIVE = 3;
+    /** the maximal amount of cells on an axis */
+    private static final int MAX_RESOLUTION = 128;
+
+    /** the primitives with a finite bounding box, which are in the cells */
+    private final Intersectable[] primitives;
+    /** primitives without a finite bounding box (e.g. a plane), they are tested against every ray */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+
+    /** the bounds of the grid: [0] = min x, y, z, [3] = max x, y, z */
+    private final double[] bounds = new double[6];
+    /** the amount of cells on every axis */
+    private final int[] resolution = new int[3];
+    /** the size of a cell on every axis */
+    private final double[] cellSize = new double[3];
+    /** the start of every cell's primitives in the cell items, the last value is the end of the last cell */
+    private int[] cellStarts;
+    /** the indices of the primitives in every cell, one cell after the other */
+    private int[] cellItems;
+
+    /** the time the build took, in milliseconds */
+    private final double buildTime;
+    /** the mailboxes of the threads, so a primitive that spreads over a few cells is tested once per ray */
+    private final ThreadLocal<Mailbox> mailboxes;
+    /** the counters of the traversals, null when they are not counted */
+    private AccelerationStats.Counters counters = null;
+
+    /**
+     * constructor for the Grid, the resolution is picked from the amount of primitives and the size of the scene
+     * @param geometries the collection of geometries
+     */
+    public Grid(Geometries geometries) {
+        final long startTime = System.nanoTime();
+        List<Intersectable> bounded = new LinkedList<>();
+        geometries.collectPrimitives(bounded, unbounded);
+        primitives = bounded.toArray(new Intersectable[0]);
+        mailboxes = ThreadLocal.withInitial(() -> new Mailbox(primitives.length));
+
+        if (primitives.length > 0) {
+            final double[] primitiveBounds = new double[6 * primitives.length];
+            BVHBuilder.resetBounds(bounds, 0);
+            for (int i = 0; i < primitives.length; i++) {
+                BoundingBox box = primitives[i].getBoundingBox();
+                Point min = box.getMin();
+                Point max = box.getMax();
+                primitiveBounds[6 * i] = min.getX();
+                primitiveBounds[6 * i + 1] = min.getY();
+                primitiveBounds[6 * i + 2] = min.getZ();
+                primitiveBounds[6 * i + 3] = max.getX();
+                primitiveBounds[6 * i + 4] = max.getY();
+                primitiveBounds[6 * i + 5] = max.getZ();
+                BVHBuilder.growBounds(bounds, 0, primitiveBounds, i);
+            }
+            pickResolution();
+            fillCells(primitiveBounds);
+
+            boundingBox = new BoundingBox(new Point(bounds[0], bounds[1], bounds[2]),
+                    new Point(bounds[3], bounds[4], bounds[5]));
+            geometries.setBoundingBox(unbounded.isEmpty() ? boundingBox : null);
+        }
+        buildTime = (System.nanoTime() - startTime) / 1e6;
+    }
+
+    /**
+     * picks the amount of cells on every axis, so the cells are about cubes and there are about
+     * {@link #CELLS_PER_PRIMITIVE} cells for every primitive
+     */
+    private void pickResolution() {
+        double longest = 0;
+        for (int axis = 0; axis < 3; axis++)
+            longest = Math.max(longest, bounds[3 + axis] - bounds[axis]);
+        if (longest == 0)
+            longest = 1;
+        // a flat scene still needs a thickness for the cells
+        final double minExtent = longest / MAX_RESOLUTION;
+        final double[] extents = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            extents[axis] = bounds[3 + axis] - bounds[axis];
+            if (extents[axis] < minExtent) {
+                double center = (bounds[axis] + bounds[3 + axis]) / 2;
+                bounds[axis] = center - minExtent / 2;
+                bounds[3 + axis] = center + minExtent / 2;
+                extents[axis] = minExtent;
+            }
+        }
+        final double cellsPerLength = Math.cbrt(CELLS_PER_PRIMITIVE * primitives.length
+                / (extents[0] * extents[1] * extents[2]));
+        for (int axis = 0; axis < 3; axis++) {
+            resolution[axis] = Math.max(1, Math.min(MAX_RESOLUTION, (int) Math.ceil(extents[axis] * cellsPerLength)));
+            cellSize[axis] = extents[axis] / resolution[axis];
+        }
+    }
+
+    /**
+     * lists every primitive in all the cells its bounding box overlaps
+     * @param primitiveBounds the bounds of the primitives
+     */
+    private void fillCells(double[] primitiveBounds) {
+        final int cellCount = resolution[0] * resolution[1] * resolution[2];
+        cellStarts = new int[cellCount + 1];
+        final int[] range = new int[6];
+        // counting the primitives of every cell, and then placing them
+        for (int i = 0; i < primitives.length; i++) {
+            cellRange(primitiveBounds, i, range);
+            for (int z = range[2]; z <= range[5]; z++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int x = range[0]; x <= range[3]; x++)
+                        cellStarts[cellIndex(x, y, z) + 1]++;
+        }
+        for (int cell = 0; cell < cellCount; cell++)
+            cellStarts[cell + 1] += cellStarts[cell];
+        cellItems = new int[cellStarts[cellCount]];
+        final int[] filled = new int[cellCount];
+        for (int i = 0; i < primitives.length; i++) {
+            cellRange(primitiveBounds, i, range);
+            for (int z = range[2]; z <= range[5]; z++)
+                for (int y = range[1]; y <= range[4]; y++)
+                    for (int x = range[0]; x <= range[3]; x++) {
+                        int cell = cellIndex(x, y, z);
+                        cellItems[cellStarts[cell] + filled[cell]++] = i;
+                    }
+        }
+    }
+
+    /**
+     * finds the range of cells a primitive's box overlaps
+     * @param primitiveBounds the bounds of the primitives
+     * @param primitive the index of the primitive
+     * @param range the range of cells on every axis: [0] = first x, y, z, [3] = last x, y, z
+     */
+    private void cellRange(double[] primitiveBounds, int primitive, int[] range) {
+        for (int axis = 0; axis < 3; axis++) {
+            range[axis] = cellOf(primitiveBounds[6 * primitive + axis], axis);
+            range[3 + axis] = cellOf(primitiveBounds[6 * primitive + 3 + axis], axis);
+        }
+    }
+
+    /**
+     * @param coordinate a coordinate on an axis
+     * @param axis the axis
+     * @return the cell on the axis that holds the coordinate, clamped into the grid
+     */
+    private int cellOf(double coordinate, int axis) {
+        int cell = (int) ((coordinate - bounds[axis]) / cellSize[axis]);
+        return cell < 0 ? 0 : Math.min(cell, resolution[axis] - 1);
+    }
+
+    /**
+     * @return the index of a cell in the cell arrays
+     */
+    private int cellIndex(int x, int y, int z) {
+        return (z * resolution[1] + y) * resolution[0] + x;
+    }
+
+    /**
+     * the part of the grid a ray walks through: the distance it enters the grid at and the distance it leaves at
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @return the distances, or null if the ray misses the grid within the distance
+     */
+    private double[] clip(Ray ray, double maxDistance) {
+        final double[] rayData = BVH.rayData(ray);
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final double inverse = rayData[3 + axis];
+            final int near = inverse < 0 ? 3 : 0;
+            final double tEnter = (bounds[near + axis] - rayData[axis]) * inverse;
+            final double tExit = (bounds[3 - near + axis] - rayData[axis]) * inverse;
+            // a NaN (the head on the grid's border of an axis the ray is parallel to) leaves the range as is
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        return tNear <= tFar ? new double[]{tNear, tFar} : null;
+    }
+
+    /**
+     * a visitor of the primitives of a cell, it decides whether the walk through the grid goes on
+     */
+    private interface CellVisitor {
+        /**
+         * visits a primitive that the ray didn't test yet
+         * @param primitive the primitive
+         */
+        void visit(Intersectable primitive);
+
+        /**
+         * @param cellExit the distance the ray leaves the current cell at
+         * @return true if the walk can stop after the current cell, false otherwise
+         */
+        boolean done(double cellExit);
+    }
+
+    /**
+     * walks through the cells a ray passes in order (3D-DDA), visiting every primitive in them once
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @param type the type of the ray, for counting the walk
+     * @param visitor the visitor of the primitives
+     */
+    private void walk(Ray ray, double maxDistance, AccelerationStats.RayType type, CellVisitor visitor) {
+        if (primitives.length == 0)
+            return;
+        final double[] range = clip(ray, maxDistance);
+        if (range == null) {
+            if (counters != null)
+                counters.record(type, 0, 0);
+            return;
+        }
+
+        final Point head = ray.getHead();
+        final Vector direction = ray.getDirection();
+        final double[] origin = {head.getX(), head.getY(), head.getZ()};
+        final double[] dir = {direction.getX(), direction.getY(), direction.getZ()};
+        final int[] cell = new int[3];
+        final int[] step = new int[3];
+        final double[] tMax = new double[3];
+        final double[] tDelta = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            cell[axis] = cellOf(origin[axis] + dir[axis] * range[0], axis);
+            if (dir[axis] > 0) {
+                step[axis] = 1;
+                tMax[axis] = (bounds[axis] + (cell[axis] + 1) * cellSize[axis] - origin[axis]) / dir[axis];
+                tDelta[axis] = cellSize[axis] / dir[axis];
+            } else if (dir[axis] < 0) {
+                step[axis] = -1;
+                tMax[axis] = (bounds[axis] + cell[axis] * cellSize[axis] - origin[axis]) / dir[axis];
+                tDelta[axis] = -cellSize[axis] / dir[axis];
+            } else {
+                tMax[axis] = Double.POSITIVE_INFINITY;
+                tDelta[axis] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        final Mailbox mailbox = mailboxes.get();
+        mailbox.nextRay();
+        int visited = 0, tests = 0;
+        while (true) {
+            visited++;
+            final int index = cellIndex(cell[0], cell[1], cell[2]);
+            for (int i = cellStarts[index]; i < cellStarts[index + 1]; i++) {
+                final int primitive = cellItems[i];
+                if (mailbox.mark(primitive)) {
+                    tests++;
+                    visitor.visit(primitives[primitive]);
+                }
+            }
+
+            final int axis = tMax[0] < tMax[1]
+                    ? (tMax[0] < tMax[2] ? 0 : 2)
+                    : (tMax[1] < tMax[2] ? 1 : 2);
+            if (visitor.done(tMax[axis]) || tMax[axis] > range[1])
+                break;
+            cell[axis] += step[axis];
+            if (cell[axis] < 0 || cell[axis] >= resolution[axis])
+                break;
+            tMax[axis] += tDelta[axis];
+        }
+        if (counters != null)
+            counters.record(type, visited, tests);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        final List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            List<GeoPoint> geoIntersections = geo.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.ALL_HITS, new CellVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                List<GeoPoint> geoIntersections = primitive.findGeoIntersections(ray, maxDistance);
+                if (geoIntersections != null)
+                    intersections.addAll(geoIntersections);
+            }
+
+            @Override
+            public boolean done(double cellExit) {
+                return false;
+            }
+        });
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    /**
+     * finds the closest intersection, the walk through the grid stops at the first cell that ends
+     * after an intersection that was already found
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double maxDistance) {
+        final Intersection[] closest = {null};
+        final double[] closestDistance = {maxDistance};
+        for (Intersectable geo : unbounded) {
+            Intersection intersection = geo.findClosestIntersection(ray, closestDistance[0]);
+            if (intersection != null) {
+                closest[0] = intersection;
+                closestDistance[0] = intersection.t;
+            }
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.CLOSEST_HIT, new CellVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                Intersection intersection = primitive.findClosestIntersection(ray, closestDistance[0]);
+                if (intersection != null && intersection.t < closestDistance[0]) {
+                    closest[0] = intersection;
+                    closestDistance[0] = intersection.t;
+                }
+            }
+
+            @Override
+            public boolean done(double cellExit) {
+                // every primitive closer than the end of the cell was already tested
+                return closest[0] != null && closestDistance[0] <= cellExit;
+            }
+        });
+        return closest[0];
+    }
+
+    /**
+     * finds how much light passes through the primitives along a ray, the walk through the grid stops
+     * at the first primitive that blocks the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minKtr) {
+        final Double3[] transmittance = {ktr};
+        for (Intersectable geo : unbounded) {
+            transmittance[0] = geo.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            if (transmittance[0].lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.SHADOW, new CellVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                if (!transmittance[0].lowerThan(minKtr))
+                    transmittance[0] = primitive.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            }
+
+            @Override
+            public boolean done(double cellExit) {
+                return transmittance[0].lowerThan(minKtr);
+            }
+        });
+        return transmittance[0].lowerThan(minKtr) ? Double3.ZERO : transmittance[0];
+    }
+
+    /**
+     * @return the amount of cells on every axis: [0] = x, [1] = y, [2] = z
+     */
+    public int[] getResolution() {
+        return resolution.clone();
+    }
+
+    /**
+     * turns the counting of the walks on or off, see {@link BVH#setCountTraversals(boolean)}.
+     * the nodes of a walk are the cells it passes through
+     * @param count true to count the walks, false otherwise
+     * @return the grid itself
+     */
+    public Grid setCountTraversals(boolean count) {
+        counters = count ? new AccelerationStats.Counters() : null;
+        return this;
+    }
+
+    /**
+     * reports the cells of the grid and their cost, and the walks counted so far.
+     * the grid has no tree - every cell is a leaf at depth 0. all the cells have the same size, so a ray that
+     * hits the grid's box passes through each of them by the same chance (the ratio of their areas),
+     * and the SAH cost counts a visit and a test for every primitive in a cell, weighted by that chance
+     * @return the report
+     */
+    public AccelerationStats getStats() {
+        final int cellCount = primitives.length == 0 ? 0 : resolution[0] * resolution[1] * resolution[2];
+        int biggest = 0;
+        for (int cell = 0; cell < cellCount; cell++)
+            biggest = Math.max(biggest, cellStarts[cell + 1] - cellStarts[cell]);
+        final int[] histogram = new int[biggest + 1];
+        for (int cell = 0; cell < cellCount; cell++)
+            histogram[cellStarts[cell + 1] - cellStarts[cell]]++;
+        double cost = 0;
+        if (cellCount > 0) {
+            final double rootArea = BVHBuilder.halfArea(bounds, 0);
+            final double cellArea = cellSize[0] * cellSize[1] + cellSize[1] * cellSize[2] + cellSize[2] * cellSize[0];
+            final double chance = rootArea == 0 ? 1 : cellArea / rootArea;
+            cost = chance * (cellCount + cellItems.length);
+        }
+        return new AccelerationStats(cellCount, cellCount, 0, 0, histogram, cost, buildTime, counters);
+    }
+
+    /**
+     * @return the time the build of the grid took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+}
@@ -0,0 +1,659 @@
+package renderer;
+
+import geometries.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * KdTree class represents a kd-tree over a collection of geometries - an alternative to the BVH that splits
+ * the space instead of the primitives, which pays off in static scenes of many flat polygons (rooms, buildings).
+ * every split plane is picked with the surface area heuristic (SAH), sweeping over the exact bounds of the
+ * primitives on every axis ("perfect splits"): a polygon that is cut by a plane is clipped into the two sides,
+ * so its bounds in every node are as tight as they can be.
+ * the tree is flattened into arrays in depth-first order like the BVH, and a ray walks through the leaves
+ * it passes front to back, so the closest intersection search stops at the first leaf that holds it.
+ */
+public class KdTree extends Intersectable {
+    /** the cost of visiting an inner node, relative to the cost of intersecting a primitive */
+    private static final double TRAVERSAL_COST = 1;
+    /** the cost of intersecting a primitive */
+    private static final double INTERSECTION_COST = 1.5;
+    /** the part of the cost that is saved by a split that leaves one side empty */
+    private static final double EMPTY_BONUS = 0.2;
+    /** the maximal depth of the tree, whatever the amount of primitives is */
+    private static final int MAX_DEPTH = 64;
+    /** the axis of a leaf in the node axes */
+    private static final int LEAF = 3;
+    /** the relative margin the bounds of a clipped polygon are widened by, against rounding errors */
+    private static final double CLIP_MARGIN = 1e-9;
+
+    /** the primitives with a finite bounding box, which are in the tree */
+    private final Intersectable[] primitives;
+    /** primitives without a finite bounding box (e.g. a plane), they are tested against every ray */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+    /** the bounds of the tree: [0] = min x, y, z, [3] = max x, y, z */
+    private final double[] bounds = new double[6];
+    /** the maximal depth the tree is built to */
+    private final int depthLimit;
+
+    /** the amount of nodes in the flattened tree */
+    private int nodeCount = 0;
+    /** the split axis of every inner node (0 = x, 1 = y, 2 = z), {@link #LEAF} for a leaf */
+    private int[] nodeAxes = new int[0];
+    /** the position of the split plane of every inner node */
+    private double[] nodeSplits = new double[0];
+    /** for an inner node - the index of its right child, for a leaf - the start of its range in the leaf items */
+    private int[] nodeOffsets = new int[0];
+    /** the amount of primitives in every leaf, 0 for an inner node */
+    private int[] nodeCounts = new int[0];
+    /** the indices of the primitives of every leaf, one leaf after the other */
+    private int[] leafItems = new int[0];
+    /** the amount of used leaf items */
+    private int leafItemCount = 0;
+    /** the depth of the deepest node, which bounds the size of the traversal stack */
+    private int maxDepth = 0;
+    /** the time the build took, in milliseconds */
+    private final double buildTime;
+
+    /** the mailboxes of the threads, so a primitive that is in a few leaves is tested once per ray */
+    private final ThreadLocal<Mailbox> mailboxes;
+    /** the counters of the traversals, null when they are not counted */
+    private AccelerationStats.Counters counters = null;
+
+    /**
+     * the best split plane of a node
+     */
+    private static class Split {
+        /** the axis of the plane */
+        int axis;
+        /** the position of the plane on the axis */
+        double position;
+        /** true if the primitives that lie in the plane go to the left child, false if to the right one */
+        boolean planarLeft;
+    }
+
+    /**
+     * a visitor of the primitives of a leaf, it decides whether the walk through the tree goes on
+     */
+    private interface LeafVisitor {
+        /**
+         * visits a primitive that the ray didn't test yet
+         * @param primitive the primitive
+         */
+        void visit(Intersectable primitive);
+
+        /**
+         * @param leafExit the distance the ray leaves the current leaf at
+         * @return true if the walk can stop after the current leaf, false otherwise
+         */
+        boolean done(double leafExit);
+    }
+
+    /**
+     * constructor for the KdTree
+     * @param geometries the collection of geometries
+     */
+    public KdTree(Geometries geometries) {
+        final long startTime = System.nanoTime();
+        List<Intersectable> bounded = new LinkedList<>();
+        geometries.collectPrimitives(bounded, unbounded);
+        primitives = bounded.toArray(new Intersectable[0]);
+        mailboxes = ThreadLocal.withInitial(() -> new Mailbox(primitives.length));
+        depthLimit = (int) Math.min(MAX_DEPTH,
+                Math.round(8 + 1.3 * Math.log(Math.max(1, primitives.length)) / Math.log(2)));
+
+        if (primitives.length > 0) {
+            final double[] primitiveBounds = new double[6 * primitives.length];
+            final int[] items = new int[primitives.length];
+            BVHBuilder.resetBounds(bounds, 0);
+            for (int i = 0; i < primitives.length; i++) {
+                BoundingBox box = primitives[i].getBoundingBox();
+                Point min = box.getMin();
+                Point max = box.getMax();
+                primitiveBounds[6 * i] = min.getX();
+                primitiveBounds[6 * i + 1] = min.getY();
+                primitiveBounds[6 * i + 2] = min.getZ();
+                primitiveBounds[6 * i + 3] = max.getX();
+                primitiveBounds[6 * i + 4] = max.getY();
+                primitiveBounds[6 * i + 5] = max.getZ();
+                BVHBuilder.growBounds(bounds, 0, primitiveBounds, i);
+                items[i] = i;
+            }
+            build(items, primitiveBounds, bounds.clone(), 0);
+
+            boundingBox = new BoundingBox(new Point(bounds[0], bounds[1], bounds[2]),
+                    new Point(bounds[3], bounds[4], bounds[5]));
+            geometries.setBoundingBox(unbounded.isEmpty() ? boundingBox : null);
+        }
+        buildTime = (System.nanoTime() - startTime) / 1e6;
+    }
+
+    /**
+     * builds the subtree of a node, the node is added to the arrays before its children (depth-first)
+     * @param items the indices of the primitives in the node
+     * @param itemBounds the bounds of the primitives clipped into the node, in the order of the items
+     * @param box the bounds of the node
+     * @param depth the depth of the node
+     */
+    private void build(int[] items, double[] itemBounds, double[] box, int depth) {
+        final int node = addNode();
+        maxDepth = Math.max(maxDepth, depth);
+        final int count = items.length;
+        final Split split = count <= 1 || depth >= depthLimit ? null : findSplit(itemBounds, count, box);
+        if (split == null) {
+            addLeaf(node, items);
+            return;
+        }
+
+        final int axis = split.axis;
+        final double position = split.position;
+        final double[] leftBox = box.clone();
+        leftBox[3 + axis] = position;
+        final double[] rightBox = box.clone();
+        rightBox[axis] = position;
+
+        int[] leftItems = new int[count];
+        double[] leftBounds = new double[6 * count];
+        int leftCount = 0;
+        int[] rightItems = new int[count];
+        double[] rightBounds = new double[6 * count];
+        int rightCount = 0;
+        for (int i = 0; i < count; i++) {
+            final double min = itemBounds[6 * i + axis];
+            final double max = itemBounds[6 * i + 3 + axis];
+            final boolean left, right;
+            if (min == position && max == position) {
+                left = split.planarLeft;
+                right = !split.planarLeft;
+            } else {
+                left = min < position;
+                right = max > position;
+            }
+            if (left && right) {
+                // a primitive on both sides is clipped into each of them, and may turn out to miss one of them
+                if (clip(items[i], itemBounds, i, leftBox, leftBounds, leftCount))
+                    leftItems[leftCount++] = items[i];
+                if (clip(items[i], itemBounds, i, rightBox, rightBounds, rightCount))
+                    rightItems[rightCount++] = items[i];
+            } else if (left) {
+                System.arraycopy(itemBounds, 6 * i, leftBounds, 6 * leftCount, 6);
+                leftItems[leftCount++] = items[i];
+            } else {
+                System.arraycopy(itemBounds, 6 * i, rightBounds, 6 * rightCount, 6);
+                rightItems[rightCount++] = items[i];
+            }
+        }
+
+        nodeAxes[node] = axis;
+        nodeSplits[node] = position;
+        build(Arrays.copyOf(leftItems, leftCount), leftBounds, leftBox, depth + 1);
+        nodeOffsets[node] = nodeCount;
+        build(Arrays.copyOf(rightItems, rightCount), rightBounds, rightBox, depth + 1);
+    }
+
+    /**
+     * finds the split plane with the lowest SAH cost, sweeping over the bounds of the primitives on every axis.
+     * the candidate planes are the borders of the primitives, and the primitives that lie in a plane are tried
+     * on both of its sides
+     * @param itemBounds the bounds of the primitives clipped into the node
+     * @param count the amount of primitives
+     * @param box the bounds of the node
+     * @return the best split, or null if no split is cheaper than a leaf
+     */
+    private Split findSplit(double[] itemBounds, int count, double[] box) {
+        final double area = BVHBuilder.halfArea(box, 0);
+        if (area <= 0)
+            return null;
+        Split best = null;
+        double bestCost = INTERSECTION_COST * count;
+        final double[] starts = new double[count];
+        final double[] ends = new double[count];
+        final double[] planars = new double[count];
+        for (int axis = 0; axis < 3; axis++) {
+            final double boxMin = box[axis];
+            final double boxMax = box[3 + axis];
+            if (boxMax <= boxMin)
+                continue;
+            int startCount = 0, endCount = 0, planarCount = 0;
+            for (int i = 0; i < count; i++) {
+                final double min = itemBounds[6 * i + axis];
+                final double max = itemBounds[6 * i + 3 + axis];
+                if (min == max)
+                    planars[planarCount++] = min;
+                else {
+                    starts[startCount++] = min;
+                    ends[endCount++] = max;
+                }
+            }
+            Arrays.sort(starts, 0, startCount);
+            Arrays.sort(ends, 0, endCount);
+            Arrays.sort(planars, 0, planarCount);
+
+            // the extents of the node on the other two axes, for the areas of the two sides
+            final double width = box[3 + (axis + 1) % 3] - box[(axis + 1) % 3];
+            final double height = box[3 + (axis + 2) % 3] - box[(axis + 2) % 3];
+            int left = 0, right = count;
+            int s = 0, e = 0, p = 0;
+            while (s < startCount || e < endCount || p < planarCount) {
+                double position = Double.POSITIVE_INFINITY;
+                if (s < startCount) position = starts[s];
+                if (e < endCount && ends[e] < position) position = ends[e];
+                if (p < planarCount && planars[p] < position) position = planars[p];
+                int startsHere = 0, endsHere = 0, planarsHere = 0;
+                while (s < startCount && starts[s] == position) { s++; startsHere++; }
+                while (e < endCount && ends[e] == position) { e++; endsHere++; }
+                while (p < planarCount && planars[p] == position) { p++; planarsHere++; }
+
+                right -= endsHere + planarsHere;
+                if (position > boxMin && position < boxMax) {
+                    final double leftArea = width * height + (position - boxMin) * (width + height);
+                    final double rightArea = width * height + (boxMax - position) * (width + height);
+                    final double leftShare = leftArea / area;
+                    final double rightShare = rightArea / area;
+                    final double planarLeftCost = cost(leftShare, rightShare, left + planarsHere, right);
+                    final double planarRightCost = cost(leftShare, rightShare, left, right + planarsHere);
+                    if (planarLeftCost < bestCost || planarRightCost < bestCost) {
+                        if (best == null)
+                            best = new Split();
+                        best.axis = axis;
+                        best.position = position;
+                        best.planarLeft = planarLeftCost <= planarRightCost;
+                        bestCost = Math.min(planarLeftCost, planarRightCost);
+                    }
+                }
+                left += startsHere + planarsHere;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * the SAH cost of a split
+     * @param leftShare the chance of a ray through the node to pass through the left side
+     * @param rightShare the chance of a ray through the node to pass through the right side
+     * @param left the amount of primitives on the left side
+     * @param right the amount of primitives on the right side
+     * @return the cost
+     */
+    private static double cost(double leftShare, double rightShare, int left, int right) {
+        final double cost = TRAVERSAL_COST + INTERSECTION_COST * (leftShare * left + rightShare * right);
+        return left == 0 || right == 0 ? (1 - EMPTY_BONUS) * cost : cost;
+    }
+
+    /**
+     * clips the bounds of a primitive into the box of a child node.
+     * a polygon is clipped itself, so its bounds in the child are exact
+     * @param primitive the index of the primitive
+     * @param source the bounds of the primitives in the parent node
+     * @param sourceIndex the index of the primitive's bounds in the source
+     * @param box the box of the child node
+     * @param target the bounds of the primitives in the child node
+     * @param targetIndex the index the clipped bounds are written at
+     * @return true if the primitive overlaps the child node, false otherwise
+     */
+    private boolean clip(int primitive, double[] source, int sourceIndex, double[] box, double[] target,
+                         int targetIndex) {
+        for (int axis = 0; axis < 3; axis++) {
+            target[6 * targetIndex + axis] = Math.max(source[6 * sourceIndex + axis], box[axis]);
+            target[6 * targetIndex + 3 + axis] = Math.min(source[6 * sourceIndex + 3 + axis], box[3 + axis]);
+            if (target[6 * targetIndex + axis] > target[6 * targetIndex + 3 + axis])
+                return false;
+        }
+        return !(primitives[primitive] instanceof Polygon polygon) || clipPolygon(polygon, box, target, targetIndex);
+    }
+
+    /**
+     * clips a polygon into a box (Sutherland-Hodgman, one face of the box after the other),
+     * and narrows the bounds to the bounds of the clipped polygon
+     * @param polygon the polygon
+     * @param box the box
+     * @param target the bounds to narrow
+     * @param targetIndex the index of the bounds in the target
+     * @return true if anything is left of the polygon in the box, false otherwise
+     */
+    private static boolean clipPolygon(Polygon polygon, double[] box, double[] target, int targetIndex) {
+        List<double[]> points = new LinkedList<>();
+        for (Point vertex : polygon.getVertices())
+            points.add(new double[]{vertex.getX(), vertex.getY(), vertex.getZ()});
+        for (int face = 0; face < 6; face++) {
+            final int axis = face % 3;
+            final double plane = box[face];
+            final boolean keepAbove = face < 3;
+            List<double[]> clipped = new LinkedList<>();
+            double[] previous = points.getLast();
+            boolean previousInside = keepAbove ? previous[axis] >= plane : previous[axis] <= plane;
+            for (double[] current : points) {
+                final boolean inside = keepAbove ? current[axis] >= plane : current[axis] <= plane;
+                if (inside != previousInside) {
+                    final double t = (plane - previous[axis]) / (current[axis] - previous[axis]);
+                    final double[] crossing = new double[3];
+                    for (int i = 0; i < 3; i++)
+                        crossing[i] = previous[i] + t * (current[i] - previous[i]);
+                    crossing[axis] = plane;
+                    clipped.add(crossing);
+                }
+                if (inside)
+                    clipped.add(current);
+                previous = current;
+                previousInside = inside;
+            }
+            if (clipped.isEmpty())
+                return false;
+            points = clipped;
+        }
+
+        final double[] clippedBounds = new double[6];
+        BVHBuilder.resetBounds(clippedBounds, 0);
+        for (double[] point : points)
+            for (int axis = 0; axis < 3; axis++) {
+                clippedBounds[axis] = Math.min(clippedBounds[axis], point[axis]);
+                clippedBounds[3 + axis] = Math.max(clippedBounds[3 + axis], point[axis]);
+            }
+        for (int axis = 0; axis < 3; axis++) {
+            final double margin = CLIP_MARGIN * Math.max(1, Math.max(Math.abs(clippedBounds[axis]),
+                    Math.abs(clippedBounds[3 + axis])));
+            target[6 * targetIndex + axis] = Math.max(target[6 * targetIndex + axis], clippedBounds[axis] - margin);
+            target[6 * targetIndex + 3 + axis] = Math.min(target[6 * targetIndex + 3 + axis],
+                    clippedBounds[3 + axis] + margin);
+        }
+        return true;
+    }
+
+    /**
+     * adds a node to the arrays, growing them when they are full
+     * @return the index of the node
+     */
+    private int addNode() {
+        if (nodeCount == nodeAxes.length) {
+            final int capacity = Math.max(16, 2 * nodeCount);
+            nodeAxes = Arrays.copyOf(nodeAxes, capacity);
+            nodeSplits = Arrays.copyOf(nodeSplits, capacity);
+            nodeOffsets = Arrays.copyOf(nodeOffsets, capacity);
+            nodeCounts = Arrays.copyOf(nodeCounts, capacity);
+        }
+        return nodeCount++;
+    }
+
+    /**
+     * turns a node into a leaf that holds primitives
+     * @param node the index of the node
+     * @param items the indices of the primitives
+     */
+    private void addLeaf(int node, int[] items) {
+        if (leafItemCount + items.length > leafItems.length)
+            leafItems = Arrays.copyOf(leafItems, Math.max(2 * leafItems.length, leafItemCount + items.length));
+        System.arraycopy(items, 0, leafItems, leafItemCount, items.length);
+        nodeAxes[node] = LEAF;
+        nodeOffsets[node] = leafItemCount;
+        nodeCounts[node] = items.length;
+        leafItemCount += items.length;
+    }
+
+    /**
+     * walks through the leaves a ray passes front to back, visiting every primitive in them once
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @param type the type of the ray, for counting the walk
+     * @param visitor the visitor of the primitives
+     */
+    private void walk(Ray ray, double maxDistance, AccelerationStats.RayType type, LeafVisitor visitor) {
+        if (nodeCount == 0)
+            return;
+        final Point head = ray.getHead();
+        final Vector direction = ray.getDirection();
+        final double[] origin = {head.getX(), head.getY(), head.getZ()};
+        final double[] dir = {direction.getX(), direction.getY(), direction.getZ()};
+        final double[] inverse = {ray.getInverseX(), ray.getInverseY(), ray.getInverseZ()};
+
+        double tNear = 0;
+        double tFar = maxDistance;
+        for (int axis = 0; axis < 3; axis++) {
+            final int near = inverse[axis] < 0 ? 3 : 0;
+            final double tEnter = (bounds[near + axis] - origin[axis]) * inverse[axis];
+            final double tExit = (bounds[3 - near + axis] - origin[axis]) * inverse[axis];
+            // a NaN (the head on the tree's border of an axis the ray is parallel to) leaves the range as is
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+        }
+        if (tNear > tFar) {
+            if (counters != null)
+                counters.record(type, 0, 0);
+            return;
+        }
+
+        // the far children that wait for their turn, with the part of the ray that passes through them
+        final int[] stackNodes = new int[maxDepth + 1];
+        final double[] stackNear = new double[maxDepth + 1];
+        final double[] stackFar = new double[maxDepth + 1];
+        int top = 0;
+        int node = 0;
+        final Mailbox mailbox = mailboxes.get();
+        mailbox.nextRay();
+        int visited = 0, tests = 0;
+        while (true) {
+            while (nodeAxes[node] != LEAF) {
+                visited++;
+                final int axis = nodeAxes[node];
+                final double split = nodeSplits[node];
+                final double tSplit = (split - origin[axis]) * inverse[axis];
+                final boolean leftFirst = origin[axis] < split || (origin[axis] == split && dir[axis] <= 0);
+                final int first = leftFirst ? node + 1 : nodeOffsets[node];
+                final int second = leftFirst ? nodeOffsets[node] : node + 1;
+                if (Double.isNaN(tSplit)) {
+                    // the ray goes inside the split plane, the primitives in it may be on either side
+                    stackNodes[top] = second;
+                    stackNear[top] = tNear;
+                    stackFar[top++] = tFar;
+                    node = first;
+                } else if (tSplit > tFar || tSplit <= 0)
+                    node = first;
+                else if (tSplit < tNear)
+                    node = second;
+                else {
+                    stackNodes[top] = second;
+                    stackNear[top] = tSplit;
+                    stackFar[top++] = tFar;
+                    node = first;
+                    tFar = tSplit;
+                }
+            }
+
+            visited++;
+            final int offset = nodeOffsets[node];
+            for (int i = offset; i < offset + nodeCounts[node]; i++) {
+                final int primitive = leafItems[i];
+                if (mailbox.mark(primitive)) {
+                    tests++;
+                    visitor.visit(primitives[primitive]);
+                }
+            }
+            if (visitor.done(tFar) || top == 0)
+                break;
+            node = stackNodes[--top];
+            tNear = stackNear[top];
+            tFar = stackFar[top];
+        }
+        if (counters != null)
+            counters.record(type, visited, tests);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        final List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            List<GeoPoint> geoIntersections = geo.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.ALL_HITS, new LeafVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                List<GeoPoint> geoIntersections = primitive.findGeoIntersections(ray, maxDistance);
+                if (geoIntersections != null)
+                    intersections.addAll(geoIntersections);
+            }
+
+            @Override
+            public boolean done(double leafExit) {
+                return false;
+            }
+        });
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    /**
+     * finds the closest intersection, the walk through the tree stops at the first leaf that ends
+     * after an intersection that was already found
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double maxDistance) {
+        final Intersection[] closest = {null};
+        final double[] closestDistance = {maxDistance};
+        for (Intersectable geo : unbounded) {
+            Intersection intersection = geo.findClosestIntersection(ray, closestDistance[0]);
+            if (intersection != null) {
+                closest[0] = intersection;
+                closestDistance[0] = intersection.t;
+            }
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.CLOSEST_HIT, new LeafVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                Intersection intersection = primitive.findClosestIntersection(ray, closestDistance[0]);
+                if (intersection != null && intersection.t < closestDistance[0]) {
+                    closest[0] = intersection;
+                    closestDistance[0] = intersection.t;
+                }
+            }
+
+            @Override
+            public boolean done(double leafExit) {
+                // every primitive closer than the end of the leaf was already tested
+                return closest[0] != null && closestDistance[0] <= leafExit;
+            }
+        });
+        return closest[0];
+    }
+
+    /**
+     * finds how much light passes through the primitives along a ray, the walk through the tree stops
+     * at the first primitive that blocks the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minKtr) {
+        final Double3[] transmittance = {ktr};
+        for (Intersectable geo : unbounded) {
+            transmittance[0] = geo.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            if (transmittance[0].lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        walk(ray, maxDistance, AccelerationStats.RayType.SHADOW, new LeafVisitor() {
+            @Override
+            public void visit(Intersectable primitive) {
+                if (!transmittance[0].lowerThan(minKtr))
+                    transmittance[0] = primitive.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            }
+
+            @Override
+            public boolean done(double leafExit) {
+                return transmittance[0].lowerThan(minKtr);
+            }
+        });
+        return transmittance[0].lowerThan(minKtr) ? Double3.ZERO : transmittance[0];
+    }
+
+    /**
+     * turns the counting of the walks on or off, see {@link BVH#setCountTraversals(boolean)}
+     * @param count true to count the walks, false otherwise
+     * @return the kd-tree itself
+     */
+    public KdTree setCountTraversals(boolean count) {
+        counters = count ? new AccelerationStats.Counters() : null;
+        return this;
+    }
+
+    /**
+     * walks the tree and reports its shape and cost, and the walks counted so far.
+     * the SAH cost is the expected amount of node visits and primitive tests of a ray that hits the tree's box:
+     * every node costs a visit weighted by the chance a ray hitting the tree's box passes through its cell
+     * (the ratio of their areas), and a leaf also costs a test for every primitive in it
+     * @return the report
+     */
+    public AccelerationStats getStats() {
+        int leaves = 0, deepest = 0, biggest = 0;
+        long depthSum = 0;
+        double cost = 0;
+        final int[] sizes = new int[nodeCount];
+        if (nodeCount > 0) {
+            final double rootArea = BVHBuilder.halfArea(bounds, 0);
+            // the nodes waiting for their turn with their depths, and their cells at the same places
+            final int[] stack = new int[2 * (maxDepth + 2)];
+            final double[] cells = new double[6 * (maxDepth + 2)];
+            System.arraycopy(bounds, 0, cells, 0, 6);
+            int top = 1;
+            while (top > 0) {
+                final int entry = --top;
+                final int node = stack[2 * entry];
+                final int depth = stack[2 * entry + 1];
+                final double chance = rootArea == 0 ? 1 : BVHBuilder.halfArea(cells, entry) / rootArea;
+                final int axis = nodeAxes[node];
+                if (axis != LEAF) {
+                    cost += chance;
+                    // the left child takes the lower part of the cell in its place, the right one the upper part
+                    System.arraycopy(cells, 6 * entry, cells, 6 * (entry + 1), 6);
+                    cells[6 * entry + 3 + axis] = nodeSplits[node];
+                    cells[6 * (entry + 1) + axis] = nodeSplits[node];
+                    stack[2 * entry] = node + 1;
+                    stack[2 * entry + 1] = depth + 1;
+                    stack[2 * entry + 2] = nodeOffsets[node];
+                    stack[2 * entry + 3] = depth + 1;
+                    top += 2;
+                    continue;
+                }
+                final int count = nodeCounts[node];
+                cost += chance * (1 + count);
+                sizes[leaves++] = count;
+                biggest = Math.max(biggest, count);
+                deepest = Math.max(deepest, depth);
+                depthSum += depth;
+            }
+        }
+        final int[] histogram = new int[biggest + 1];
+        for (int i = 0; i < leaves; i++)
+            histogram[sizes[i]]++;
+        return new AccelerationStats(nodeCount, leaves, deepest, leaves == 0 ? 0 : (double) depthSum / leaves,
+                histogram, cost, buildTime, counters);
+    }
+
+    /**
+     * @return the amount of nodes in the tree
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the depth of the deepest node in the tree
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the time the build of the tree took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+}
@@ -0,0 +1,44 @@
+package renderer;
+
+import java.util.Arrays;
+
+/**
+ * a mailbox of the primitives of an acceleration structure for the rays of one thread - the last ray that tested
+ * every primitive, so a primitive that is listed in a few cells (or leaves) is tested once per ray
+ */
+class Mailbox {
+    /** the id of the last ray that tested every primitive */
+    private final int[] lastRay;
+    /** the id of the current ray */
+    private int ray = 0;
+
+    /**
+     * constructor for the mailbox
+     * @param size the amount of primitives
+     */
+    Mailbox(int size) {
+        lastRay = new int[size];
+    }
+
+    /**
+     * starts a new ray, every primitive can be tested once again
+     */
+    void nextRay() {
+        if (++ray == Integer.MAX_VALUE) {
+            Arrays.fill(lastRay, 0);
+            ray = 1;
+        }
+    }
+
+    /**
+     * marks a primitive as tested by the current ray
+     * @param primitive the index of the primitive
+     * @return true if the current ray didn't test the primitive before, false otherwise
+     */
+    boolean mark(int primitive) {
+        if (lastRay[primitive] == ray)
+            return false;
+        lastRay[primitive] = ray;
+        return true;
+    }
+}
@@ -26,4 +26,17 @@ public abstract class RayTracerBase {
      * @return the color of the intersection point
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces a packet of coherent rays (e.g. the primary rays of neighbouring pixels) and returns their colors.
+     * by default every ray is traced on its own, tracers that can trace the packet together should override it
+     * @param rays the rays to be traced
+     * @return the color of every ray
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int i = 0; i < rays.length; i++)
+            colors[i] = traceRay(rays[i]);
+        return colors;
+    }
 }
@@ -1,13 +1,18 @@
 package renderer;
 
-import geometries.Intersectable.GeoPoint;
+import geometries.Geometry;
+import geometries.Intersection;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * SimpleRayTracer class is a basic ray tracer that traces rays in a scene
@@ -19,7 +24,63 @@ public class SimpleRayTracer extends RayTracerBase{
     private static final int MAX_CALC_COLOR_LEVEL = 5;
     private static final double MIN_CALC_COLOR_K = 0.001;
     private static final Double3 INITIAL_K = Double3.ONE;
+    /** the amount of bits of every axis of the cell of a secondary ray's head in its sorting key */
+    private static final int CELL_BITS = 10;
 
+    /** whether the secondary rays of a packet are collected, sorted and traced level by level */
+    private boolean sortSecondaryRays = false;
+
+    /**
+     * a secondary ray that waits to be traced for a pixel of a packet, with everything the
+     * recursion would have passed down to it
+     */
+    private static class SecondaryRay {
+        /** the index of the ray's pixel in the packet */
+        final int pixel;
+        final Ray ray;
+        /** the part of the ray's color that reaches the pixel */
+        final Double3 weight;
+        /** the attenuation factor of the ray, as in the recursion */
+        final Double3 k;
+        /** the level of recursion of the ray */
+        final int level;
+        /** the key the rays are sorted by */
+        long key;
+
+        SecondaryRay(int pixel, Ray ray, Double3 weight, Double3 k, int level) {
+            this.pixel = pixel;
+            this.ray = ray;
+            this.weight = weight;
+            this.k = k;
+            this.level = level;
+        }
+    }
+
+
+    /**
+     * the shading context of a hit - everything the local and the global effects need of the hit, calculated
+     * once when the hit is shaded instead of again by every effect
+     */
+    private static class Hit {
+        final Geometry geometry;
+        final Point point;
+        /** the direction of the ray that hit the geometry */
+        final Vector v;
+        /** the normal to the geometry at the point */
+        final Vector n;
+        /** the dot product of n and v */
+        final double nv;
+        final Material material;
+
+        Hit(Intersection intersection) {
+            geometry = intersection.geometry;
+            point = intersection.getPoint();
+            v = intersection.getRay().getDirection();
+            n = geometry.getNormal(point);
+            nv = n.dotProduct(v);
+            material = geometry.getMaterial();
+        }
+    }
 
     /**
      * Constructor for SimpleRayTracer
@@ -29,14 +90,26 @@ public class SimpleRayTracer extends RayTracerBase{
         super(scene);
     }
 
+    /**
+     * Set whether the secondary rays of a packet are sorted before they are traced.
+     * the rays of a packet are then traced level by level instead of depth-first: all the reflected and
+     * refracted rays of a level are collected, sorted by their direction's octant and the Morton code of their
+     * head's cell, and traced in that order, so rays that walk the same parts of the BVH follow each other
+     * @param sortSecondaryRays true to sort the secondary rays, false to trace them depth-first
+     * @return the ray tracer itself
+     */
+    public SimpleRayTracer setSortSecondaryRays(boolean sortSecondaryRays) {
+        this.sortSecondaryRays = sortSecondaryRays;
+        return this;
+    }
+
     /**
      * Find the closest intersection point of a ray with the scene
      * @param ray the ray to intersect with the scene
      * @return the closest intersection point
      */
-    private GeoPoint findClosestIntersection(Ray ray) {
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        return ray.findClosestGeoPoint(intersections);
+    private Intersection findClosestIntersection(Ray ray) {
+        return scene.geometries.findClosestIntersection(ray, Double.POSITIVE_INFINITY);
     }
 
     /**
@@ -46,108 +119,226 @@ public class SimpleRayTracer extends RayTracerBase{
      */
     @Override
     public Color traceRay(Ray ray) {
-        GeoPoint closestPoint = findClosestIntersection(ray);
-        return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
+        Intersection closest = findClosestIntersection(ray);
+        return closest == null ? scene.background : calcColor(new Hit(closest));
+    }
+
+    /**
+     * Trace a packet of rays in the scene, their closest intersections are found together
+     * @param rays the rays to trace
+     * @return the color of every ray
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        Intersection[] closest = scene.geometries.findClosestIntersections(rays, Double.POSITIVE_INFINITY);
+        Color[] colors = new Color[rays.length];
+        if (!sortSecondaryRays) {
+            for (int i = 0; i < rays.length; i++)
+                colors[i] = closest[i] == null ? scene.background : calcColor(new Hit(closest[i]));
+            return colors;
+        }
+
+        List<SecondaryRay> level = new ArrayList<>();
+        for (int i = 0; i < rays.length; i++)
+            colors[i] = closest[i] == null ? scene.background
+                    : calcPathColor(new Hit(closest[i]), i, Double3.ONE, MAX_CALC_COLOR_LEVEL, INITIAL_K, level)
+                    .add(scene.ambientLight.getIntensity());
+        while (!level.isEmpty()) {
+            SecondaryRay[] sorted = sortSecondaryRays(level);
+            level = new ArrayList<>();
+            for (SecondaryRay secondary : sorted) {
+                Intersection hit = findClosestIntersection(secondary.ray);
+                colors[secondary.pixel] = colors[secondary.pixel].add(hit == null
+                        ? scene.background.scale(secondary.weight)
+                        : calcPathColor(new Hit(hit), secondary.pixel, secondary.weight, secondary.level,
+                        secondary.k, level));
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * Calculate the local effects of an intersection point for a pixel of a packet, and collect the secondary rays
+     * the recursion would have traced from it
+     * @param hit the closest hit
+     * @param pixel the index of the ray's pixel in the packet
+     * @param weight the part of the point's color that reaches the pixel
+     * @param level the level of recursion
+     * @param k the attenuation factor
+     * @param secondaryRays the list the secondary rays are added to
+     * @return the local color of the point, as it reaches the pixel
+     */
+    private Color calcPathColor(Hit hit, int pixel, Double3 weight, int level, Double3 k,
+                                List<SecondaryRay> secondaryRays) {
+        Color color = calcLocalEffects(hit).scale(weight);
+        if (level == 1)
+            return color;
+        Ray[] effectRays = {constructRefractedRay(hit), constructReflectedRay(hit)};
+        Double3[] kxs = {hit.material.kT, hit.material.kR};
+        for (int effect = 0; effect < 2; effect++) {
+            Double3 kkx = kxs[effect].product(k);
+            if (kkx.lowerThan(MIN_CALC_COLOR_K))
+                continue;
+            List<Ray> rays = effectRays(effectRays[effect], hit, level);
+            Double3 rayWeight = weight.product(kxs[effect]).reduce(rays.size());
+            for (Ray secondary : rays)
+                secondaryRays.add(new SecondaryRay(pixel, secondary, rayWeight, kkx, level - 1));
+        }
+        return color;
+    }
+
+    /**
+     * Sort secondary rays so rays that go to the same octant from nearby heads are next to each other.
+     * the key of a ray is the octant of its direction, followed by the Morton code of its head's cell
+     * in a grid over the heads of all the rays
+     * @param rays the secondary rays
+     * @return the sorted rays
+     */
+    private static SecondaryRay[] sortSecondaryRays(List<SecondaryRay> rays) {
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (SecondaryRay secondary : rays) {
+            Point head = secondary.ray.getHead();
+            double[] coordinates = {head.getX(), head.getY(), head.getZ()};
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], coordinates[axis]);
+                bounds[3 + axis] = Math.max(bounds[3 + axis], coordinates[axis]);
+            }
+        }
+        for (SecondaryRay secondary : rays)
+            secondary.key = sortKey(secondary.ray, bounds);
+        SecondaryRay[] sorted = rays.toArray(new SecondaryRay[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(secondary -> secondary.key));
+        return sorted;
+    }
+
+    /**
+     * Calculate the sorting key of a secondary ray: the octant of its direction in the highest bits,
+     * followed by the Morton code of its head's cell in a grid over the bounds of the heads
+     * @param ray the secondary ray
+     * @param bounds the bounds of the heads of the rays: [0] = min x, y, z, [3] = max x, y, z
+     * @return the key
+     */
+    static long sortKey(Ray ray, double[] bounds) {
+        final int cells = (1 << CELL_BITS) - 1;
+        Point head = ray.getHead();
+        double[] coordinates = {head.getX(), head.getY(), head.getZ()};
+        long morton = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = bounds[3 + axis] - bounds[axis];
+            long cell = extent == 0 ? 0 : (long) ((coordinates[axis] - bounds[axis]) / extent * cells);
+            morton |= spreadBits(cell) << axis;
+        }
+        return (long) ray.getSigns() << 3 * CELL_BITS | morton;
+    }
+
+    /**
+     * Spread the bits of a cell's index, so there are two zero bits between every two of its bits
+     * @param cell the index of the cell on an axis, up to {@link #CELL_BITS} bits
+     * @return the spread bits
+     */
+    static long spreadBits(long cell) {
+        long spread = 0;
+        for (int bit = 0; bit < CELL_BITS; bit++)
+            spread |= (cell >> bit & 1) << 3 * bit;
+        return spread;
     }
 
     /**
      * Calculate the color of the intersection point
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @return the color of the intersection point
      */
-    private Color calcColor(GeoPoint geoPoint, Ray ray) {
-        return calcColor(geoPoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.ambientLight.getIntensity());
+    private Color calcColor(Hit hit) {
+        return calcColor(hit, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.ambientLight.getIntensity());
     }
 
     /**
      * Calculate the color of the intersection point (called from calcColor version without the level and k parameters)
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @param level the level of recursion
      * @param k the attenuation factor
      * @return the color of the intersection point
      */
-    private Color calcColor(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
-        Color color = calcLocalEffects(geoPoint, ray);
-        return level == 1 ? color : color.add(calcGlobalEffects(geoPoint, ray, level, k));
+    private Color calcColor(Hit hit, int level, Double3 k) {
+        Color color = calcLocalEffects(hit);
+        return level == 1 ? color : color.add(calcGlobalEffects(hit, level, k));
     }
 
     /**
      * Calculate the diffusive and specular effects of the intersection point
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @return the color of the intersection point
      */
-    private Color calcLocalEffects(GeoPoint geoPoint, Ray ray) {
-        Vector v = ray.getDirection();
-        Vector n = geoPoint.geometry.getNormal(geoPoint.point);
-        double nv = alignZero(n.dotProduct(v));
-        if (nv == 0) {
+    private Color calcLocalEffects(Hit hit) {
+        if (isZero(hit.nv)) {
             return Color.BLACK;
         }
 
-        Material material = geoPoint.geometry.getMaterial();
-        Color color = geoPoint.geometry.getEmission();
+        Vector n = hit.n, v = hit.v;
+        Material material = hit.material;
+        // the colors are summed in scratch triads, instead of a new color for every step of every light
+        Vec3 color = new Vec3().set(hit.geometry.getEmission());
+        Vec3 lightIntensity = new Vec3(), factor = new Vec3();
         for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(geoPoint.point);
+            Vector l = lightSource.getL(hit.point);
             double nl = alignZero(n.dotProduct(l));
-            if (nl * nv > 0) {
-                Double3 ktr = transparency(geoPoint, lightSource, l, n);
+            if (nl * hit.nv > 0) {
+                Double3 ktr = transparency(hit, lightSource, l);
                 if (ktr != Double3.ZERO) {
-                    Color lightIntensity = lightSource.getIntensity(geoPoint.point).scale(ktr);
-                    color = color.add(
-                        lightIntensity.scale(calcDiffusive(material.kD, nl).add(
-                                calcSpecular(material.kS, l, n, nl, v, material.nShininess))));
+                    lightIntensity.set(lightSource.getIntensity(hit.point)).product(ktr);
+                    factor.set(material.kD).scale(calcDiffusive(nl));
+                    double specular = calcSpecular(l, n, nl, v, material.nShininess);
+                    if (specular != 0)
+                        factor.addScaled(material.kS, specular);
+                    color.addProduct(lightIntensity, factor);
                 }
             }
         }
-        return color;
+        return color.toColor();
     }
 
     /**
      * Calculate the diffusive effect of the intersection point
-     * @param kD the diffusive attenuation factor
      * @param nl the dot product of n and l
-     * @return the color of the intersection point
+     * @return the scale of the diffusive attenuation factor
      */
-    private Double3 calcDiffusive(Double3 kD, double nl) {
-        return kD.scale(Math.abs(nl));
+    private double calcDiffusive(double nl) {
+        return Math.abs(nl);
     }
 
     /**
      * Calculate the specular effect of the intersection point
-     * @param kS the specular attenuation factor
      * @param l the light vector
      * @param n the normal vector
      * @param nl the dot product of n and l
      * @param v the view vector
      * @param nShininess the shininess factor
-     * @return the color of the intersection point
+     * @return the scale of the specular attenuation factor, 0 if the reflected light doesn't reach the viewer
      */
-    private Double3 calcSpecular(Double3 kS, Vector l, Vector n, double nl, Vector v, int nShininess) {
-        Vector r = l.subtract(n.scale(2 * nl));
-        double minusVR = -alignZero(r.dotProduct(v));
+    private double calcSpecular(Vector l, Vector n, double nl, Vector v, int nShininess) {
+        // r = l - 2 * nl * n, by its coordinates
+        double rx = l.getX() - n.getX() * (2 * nl);
+        double ry = l.getY() - n.getY() * (2 * nl);
+        double rz = l.getZ() - n.getZ() * (2 * nl);
+        double minusVR = -alignZero(rx * v.getX() + ry * v.getY() + rz * v.getZ());
         if (minusVR <= 0) {
-            return Double3.ZERO;
+            return 0;
         }
-        return kS.scale(Math.pow(minusVR, nShininess));
+        return Math.pow(minusVR, nShininess);
     }
 
 
     /**
      * Calculate the global effects of the intersection point (calls calcGlobalEffect 2 times, for refracted/reflected rays)
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @param level the level of recursion
      * @param k the attenuation factor
      * @return the color of the intersection point
      */
-    private Color calcGlobalEffects(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
-        Material material = geoPoint.geometry.getMaterial();
-        Vector n = geoPoint.geometry.getNormal(geoPoint.point);
-        return calcGlobalEffect(constructRefractedRay(geoPoint, ray), material.kT, level, k, n, material)
-            .add(calcGlobalEffect(constructReflectedRay(geoPoint, ray), material.kR, level, k, n, material));
+    private Color calcGlobalEffects(Hit hit, int level, Double3 k) {
+        return calcGlobalEffect(constructRefractedRay(hit), hit.material.kT, level, k, hit)
+            .add(calcGlobalEffect(constructReflectedRay(hit), hit.material.kR, level, k, hit));
     }
 
     /**
@@ -156,67 +347,61 @@ public class SimpleRayTracer extends RayTracerBase{
      * @param kx the attenuation factor
      * @param level the level of recursion
      * @param k the attenuation factor
+     * @param hit the hit the ray leaves from
      * @return the color of the intersection point
      */
-    private Color calcGlobalEffect(Ray ray, Double3 kx, int level, Double3 k, Vector n, Material m) {
+    private Color calcGlobalEffect(Ray ray, Double3 kx, int level, Double3 k, Hit hit) {
         Double3 kkx = kx.product(k);
-        List rays;
         if (kkx.lowerThan(MIN_CALC_COLOR_K))
             return Color.BLACK;
-        if (level == MAX_CALC_COLOR_LEVEL) {
-            rays = Camera.generateRayBeam(ray, n, m.blurDistance, m.blurRadius, m.numEdgeRays);
-        } else {
-            rays = List.of(ray);
-        }
-        return avgColors(rays, level, kkx).scale(kx);
+        return avgColors(effectRays(ray, hit, level), level, kkx).scale(kx);
+    }
+
+    /**
+     * Get the rays of a global effect, a beam around the ray for the first level or the ray itself
+     * @param ray the reflected or refracted ray
+     * @param hit the hit the ray leaves from
+     * @param level the level of recursion
+     * @return the rays of the effect
+     */
+    private List<Ray> effectRays(Ray ray, Hit hit, int level) {
+        Material m = hit.material;
+        if (level == MAX_CALC_COLOR_LEVEL)
+            return Camera.generateRayBeam(ray, hit.n, m.blurDistance, m.blurRadius, m.numEdgeRays);
+        return List.of(ray);
     }
 
     /**
      * Construct a reflected ray from the intersection point
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @return the reflected ray
      */
-    private Ray constructReflectedRay(GeoPoint geoPoint, Ray ray) {
-        Vector v = ray.getDirection();
-        Vector n = geoPoint.geometry.getNormal(geoPoint.point);
-        Vector r = v.subtract(n.scale(2 * n.dotProduct(v)));
-        return new Ray(geoPoint.point, r, n);
+    private Ray constructReflectedRay(Hit hit) {
+        Vector r = hit.v.subtract(hit.n.scale(2 * hit.nv));
+        return new Ray(hit.point, r, hit.n);
     }
 
     /**
      * Construct a refracted ray from the intersection point
-     * @param geoPoint the closest intersection point
-     * @param ray the ray that intersects the point
+     * @param hit the closest hit
      * @return the refracted ray
      */
-    private Ray constructRefractedRay(GeoPoint geoPoint, Ray ray) {
-        return new Ray(geoPoint.point, ray.getDirection(), geoPoint.geometry.getNormal(geoPoint.point));
+    private Ray constructRefractedRay(Hit hit) {
+        return new Ray(hit.point, hit.v, hit.n);
     }
 
     /**
      * Calculate the transparency of the intersection point
-     * @param geoPoint the closest intersection point
+     * @param hit the closest hit
      * @param ls the light source
      * @param l the light vector
-     * @param n the normal vector
      * @return the transparency of the intersection point
      */
-    private Double3 transparency(GeoPoint geoPoint, LightSource ls, Vector l, Vector n) {
+    private Double3 transparency(Hit hit, LightSource ls, Vector l) {
         Vector lightDirection = l.scale(-1); // from point to light source
-        Ray lightRay = new Ray(geoPoint.point, lightDirection, n);
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay, ls.getDistance(geoPoint.point));
-        if (intersections == null) {
-            return Double3.ONE;
-        }
-        Double3 ktr = Double3.ONE;
-        for (GeoPoint gp : intersections) {
-            ktr = ktr.product(gp.geometry.getMaterial().kT);
-            if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
-                return Double3.ZERO;
-            }
-        }
-        return ktr;
+        Ray lightRay = new Ray(hit.point, lightDirection, hit.n);
+        return scene.geometries.findTransmittance(lightRay, ls.getDistance(hit.point), Double3.ONE,
+                MIN_CALC_COLOR_K);
     }
 
     /**
@@ -229,8 +414,8 @@ public class SimpleRayTracer extends RayTracerBase{
     private Color avgColors(List<Ray> rays, int level, Double3 k) {
         Color color = Color.BLACK;
         for (Ray ray : rays) {
-            GeoPoint closestPoint = findClosestIntersection(ray);
-            color = color.add(closestPoint == null ? scene.background : calcColor(closestPoint, ray, level-1, k));
+            Intersection closest = findClosestIntersection(ray);
+            color = color.add(closest == null ? scene.background : calcColor(new Hit(closest), level-1, k));
         }
         return color.reduce(rays.size());
     }
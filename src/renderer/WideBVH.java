@@ -0,0 +1,500 @@
+package renderer;
+
+import geometries.*;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * WideBVH class represents a bounding volume hierarchy whose nodes have up to 4 (or any other width) children,
+ * for static scenes where the traversal is what matters.
+ * it is built as a binary SAH tree (see {@link BVHBuilder}), which is then collapsed: every wide node takes the
+ * children of a binary node, and keeps opening the biggest inner one of them until it has as many as it can hold.
+ * the boxes of the children of a node are kept structure-of-arrays - a separate array for every bound, with the
+ * children of a node next to each other - so all of them are tested against a ray in one tight loop over
+ * the lanes, without branches between them, which the JIT can compile into vector instructions.
+ * unlike the {@link BVH}, the tree can't be updated, it has to be built again.
+ */
+public class WideBVH extends Intersectable {
+    /** the default amount of children of a node */
+    public static final int DEFAULT_WIDTH = 4;
+    /** the maximal width, a wider node doesn't fit in a vector register anyway */
+    public static final int MAX_WIDTH = 8;
+    /** the reference of a lane without a child */
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    /** the maximal amount of children of a node */
+    private final int width;
+    /** the primitives with a finite bounding box, ordered so every leaf holds a continuous range of them */
+    private final Intersectable[] primitives;
+    /** the bounds of the primitives: [6 * i] = min x, y, z, [6 * i + 3] = max x, y, z */
+    private final double[] primitiveBounds;
+    /** primitives without a finite bounding box (e.g. a plane), they are tested against every ray */
+    private final List<Intersectable> unbounded = new LinkedList<>();
+
+    /** the bounds of the children of the nodes, by the lane: [node * width + lane] */
+    private double[] minX, minY, minZ, maxX, maxY, maxZ;
+    /** the child in every lane: an inner node's index, a leaf's -(index + 1), or {@link #EMPTY} */
+    private int[] children;
+    /** the start of every leaf's range in the primitives */
+    private int[] leafStarts;
+    /** the amount of primitives in every leaf */
+    private int[] leafCounts;
+    private int nodeCount = 0;
+    private int leafCount = 0;
+    /** the depth of the deepest node */
+    private int maxDepth = 0;
+    /** the time the build took, in milliseconds */
+    private final double buildTime;
+    /** the counters of the traversals, null when they are not counted */
+    private AccelerationStats.Counters counters = null;
+
+    /**
+     * constructor for the WideBVH, with the default width and leaf size
+     * @param geometries the collection of geometries
+     */
+    public WideBVH(Geometries geometries) {
+        this(geometries, DEFAULT_WIDTH, BVH.DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * constructor for the WideBVH
+     * @param geometries the collection of geometries
+     * @param width the maximal amount of children of a node
+     * @param leafSize the maximal amount of primitives in a leaf
+     */
+    public WideBVH(Geometries geometries, int width, int leafSize) {
+        if (width < 2 || width > MAX_WIDTH)
+            throw new IllegalArgumentException("A node must hold between 2 and " + MAX_WIDTH + " children");
+        if (leafSize < 1)
+            throw new IllegalArgumentException("Leaf size must be at least 1");
+        final long startTime = System.nanoTime();
+        this.width = width;
+        List<Intersectable> bounded = new LinkedList<>();
+        geometries.collectPrimitives(bounded, unbounded);
+        final Intersectable[] collected = bounded.toArray(new Intersectable[0]);
+        final double[] bounds = new double[6 * collected.length];
+        for (int i = 0; i < collected.length; i++) {
+            BoundingBox box = collected[i].getBoundingBox();
+            Point min = box.getMin();
+            Point max = box.getMax();
+            bounds[6 * i] = min.getX();
+            bounds[6 * i + 1] = min.getY();
+            bounds[6 * i + 2] = min.getZ();
+            bounds[6 * i + 3] = max.getX();
+            bounds[6 * i + 4] = max.getY();
+            bounds[6 * i + 5] = max.getZ();
+        }
+        final BVHBuilder builder = new BVHBuilder(bounds, leafSize);
+
+        // the primitives are ordered by the builder, so the leaves point straight into them
+        final int[] indices = builder.getIndices();
+        primitives = new Intersectable[collected.length];
+        primitiveBounds = new double[bounds.length];
+        for (int i = 0; i < indices.length; i++) {
+            primitives[i] = collected[indices[i]];
+            System.arraycopy(bounds, 6 * indices[i], primitiveBounds, 6 * i, 6);
+        }
+
+        // every wide node opens at least one binary inner node, and there is one more binary leaf than inner node
+        final int binaryCount = builder.getNodeCount();
+        final int capacity = width * Math.max(1, binaryCount / 2);
+        minX = new double[capacity];
+        minY = new double[capacity];
+        minZ = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        maxZ = new double[capacity];
+        children = new int[capacity];
+        leafStarts = new int[binaryCount / 2 + 1];
+        leafCounts = new int[binaryCount / 2 + 1];
+        if (binaryCount > 0)
+            collapse(builder, new int[]{0}, 1, 0);
+
+        if (primitives.length > 0) {
+            final double[] total = new double[6];
+            BVHBuilder.resetBounds(total, 0);
+            for (int i = 0; i < primitives.length; i++)
+                BVHBuilder.growBounds(total, 0, primitiveBounds, i);
+            boundingBox = new BoundingBox(new Point(total[0], total[1], total[2]),
+                    new Point(total[3], total[4], total[5]));
+        }
+        geometries.setBoundingBox(unbounded.isEmpty() ? boundingBox : null);
+        buildTime = (System.nanoTime() - startTime) / 1e6;
+    }
+
+    /**
+     * builds a wide node over some nodes of the binary tree. the node keeps opening its biggest inner
+     * child into the child's two children while it has room for them
+     * @param builder the builder of the binary tree
+     * @param lanes the binary nodes the node starts with, with room for the node's width
+     * @param laneCount the amount of binary nodes the node starts with
+     * @param depth the depth of the node
+     * @return the index of the node
+     */
+    private int collapse(BVHBuilder builder, int[] lanes, int laneCount, int depth) {
+        final double[] binaryBounds = builder.getNodeBounds();
+        final int[] binaryOffsets = builder.getNodeOffsets();
+        final int[] binaryCounts = builder.getNodeCounts();
+        final int[] opened = Arrays.copyOf(lanes, width);
+        int count = laneCount;
+        while (count < width) {
+            int biggest = -1;
+            double biggestArea = -1;
+            for (int lane = 0; lane < count; lane++) {
+                final double area = BVHBuilder.halfArea(binaryBounds, opened[lane]);
+                if (binaryCounts[opened[lane]] == 0 && area > biggestArea) {
+                    biggest = lane;
+                    biggestArea = area;
+                }
+            }
+            if (biggest == -1)
+                break;
+            final int binary = opened[biggest];
+            // the left child of a binary node is right after it in the flattened tree
+            opened[biggest] = binary + 1;
+            opened[count++] = binaryOffsets[binary];
+        }
+
+        final int node = nodeCount++;
+        maxDepth = Math.max(maxDepth, depth);
+        final int base = node * width;
+        for (int lane = 0; lane < width; lane++) {
+            final int index = base + lane;
+            if (lane >= count) {
+                // an empty lane has an inverted box, so no ray hits it
+                minX[index] = minY[index] = minZ[index] = Double.POSITIVE_INFINITY;
+                maxX[index] = maxY[index] = maxZ[index] = Double.NEGATIVE_INFINITY;
+                children[index] = EMPTY;
+                continue;
+            }
+            final int binary = opened[lane];
+            minX[index] = binaryBounds[6 * binary];
+            minY[index] = binaryBounds[6 * binary + 1];
+            minZ[index] = binaryBounds[6 * binary + 2];
+            maxX[index] = binaryBounds[6 * binary + 3];
+            maxY[index] = binaryBounds[6 * binary + 4];
+            maxZ[index] = binaryBounds[6 * binary + 5];
+            if (binaryCounts[binary] > 0) {
+                leafStarts[leafCount] = binaryOffsets[binary];
+                leafCounts[leafCount] = binaryCounts[binary];
+                children[index] = -(++leafCount);
+            } else
+                children[index] = collapse(builder, new int[]{binary + 1, binaryOffsets[binary]}, 2, depth + 1);
+        }
+        return node;
+    }
+
+    /**
+     * tests the boxes of all the children of a node against a ray. the bounds each lane enters and exits
+     * through were picked for the whole ray, so the loop over the lanes has no branches but the min and max
+     * @param node the node
+     * @param ray the ray's state
+     * @param maxDistance the maximum distance the ray can travel
+     * @return a mask of the lanes whose boxes the ray hits, the distance to every box is left in the ray's state
+     */
+    private int hitLanes(int node, RayState ray, double maxDistance) {
+        final int base = node * width;
+        int mask = 0;
+        for (int lane = 0; lane < width; lane++) {
+            final int index = base + lane;
+            double tNear = 0;
+            double tFar = maxDistance;
+            // a NaN (the head on the slab's border of an axis the ray is parallel to) leaves the range as is
+            double tEnter = (ray.nearX[index] - ray.x) * ray.inverseX;
+            double tExit = (ray.farX[index] - ray.x) * ray.inverseX;
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+            tEnter = (ray.nearY[index] - ray.y) * ray.inverseY;
+            tExit = (ray.farY[index] - ray.y) * ray.inverseY;
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+            tEnter = (ray.nearZ[index] - ray.z) * ray.inverseZ;
+            tExit = (ray.farZ[index] - ray.z) * ray.inverseZ;
+            if (tEnter > tNear) tNear = tEnter;
+            if (tExit < tFar) tFar = tExit;
+            ray.distances[lane] = tNear;
+            if (tNear <= tFar)
+                mask |= 1 << lane;
+        }
+        return mask;
+    }
+
+    /**
+     * the state of a ray while it goes through the tree: its head, the inverse of its direction and the bounds
+     * it enters and exits every box through, which depend only on the signs of its direction
+     */
+    private class RayState {
+        final double x, y, z;
+        final double inverseX, inverseY, inverseZ;
+        final double[] nearX, nearY, nearZ, farX, farY, farZ;
+        /** the head and inverse direction in the layout of {@link BVH#rayData(Ray)}, for the primitives' boxes */
+        final double[] rayData;
+        /** the distances to the boxes of the last node's lanes */
+        final double[] distances = new double[width];
+
+        RayState(Ray ray) {
+            rayData = BVH.rayData(ray);
+            x = rayData[0];
+            y = rayData[1];
+            z = rayData[2];
+            inverseX = rayData[3];
+            inverseY = rayData[4];
+            inverseZ = rayData[5];
+            nearX = inverseX < 0 ? maxX : minX;
+            farX = inverseX < 0 ? minX : maxX;
+            nearY = inverseY < 0 ? maxY : minY;
+            farY = inverseY < 0 ? minY : maxY;
+            nearZ = inverseZ < 0 ? maxZ : minZ;
+            farZ = inverseZ < 0 ? minZ : maxZ;
+        }
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double maxDistance) {
+        List<GeoPoint> intersections = new LinkedList<>();
+        for (Intersectable geo : unbounded) {
+            List<GeoPoint> geoIntersections = geo.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+        }
+        traverse(ray, maxDistance, AccelerationStats.RayType.ALL_HITS, primitive -> {
+            List<GeoPoint> geoIntersections = primitive.findGeoIntersections(ray, maxDistance);
+            if (geoIntersections != null)
+                intersections.addAll(geoIntersections);
+            return false;
+        });
+        return intersections.isEmpty() ? null : intersections;
+    }
+
+    /**
+     * finds the closest intersection, the children of every node are visited from the closest box to the farthest,
+     * and a child whose box starts beyond the closest intersection found so far is skipped
+     */
+    @Override
+    protected Intersection findClosestIntersectionHelper(Ray ray, double maxDistance) {
+        Intersection closest = null;
+        double closestDistance = maxDistance;
+        for (Intersectable geo : unbounded) {
+            Intersection intersection = geo.findClosestIntersection(ray, closestDistance);
+            if (intersection != null) {
+                closest = intersection;
+                closestDistance = intersection.t;
+            }
+        }
+        if (nodeCount == 0)
+            return closest;
+
+        final RayState state = new RayState(ray);
+        int[] stack = new int[(width - 1) * (maxDepth + 1) + 1];
+        double[] stackDistances = new double[stack.length];
+        final int[] hitChildren = new int[width];
+        final double[] hitDistances = new double[width];
+        int top = 0;
+        stack[top] = 0;
+        stackDistances[top++] = 0;
+        int visited = 0, tests = 0;
+        while (top > 0) {
+            final int child = stack[--top];
+            if (stackDistances[top] > closestDistance)
+                continue;
+            if (child >= 0) {
+                visited++;
+                int mask = hitLanes(child, state, closestDistance);
+                // the hit children are sorted from the farthest to the closest, so the closest is on top of the stack
+                int hits = 0;
+                for (int lane = 0; mask != 0; lane++, mask >>>= 1) {
+                    if ((mask & 1) == 0)
+                        continue;
+                    final double distance = state.distances[lane];
+                    int i = hits++;
+                    for (; i > 0 && hitDistances[i - 1] < distance; i--) {
+                        hitChildren[i] = hitChildren[i - 1];
+                        hitDistances[i] = hitDistances[i - 1];
+                    }
+                    hitChildren[i] = children[child * width + lane];
+                    hitDistances[i] = distance;
+                }
+                if (top + hits > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stackDistances = Arrays.copyOf(stackDistances, stack.length);
+                }
+                for (int i = 0; i < hits; i++) {
+                    stack[top] = hitChildren[i];
+                    stackDistances[top++] = hitDistances[i];
+                }
+                continue;
+            }
+            final int leaf = -child - 1;
+            final int start = leafStarts[leaf];
+            final int count = leafCounts[leaf];
+            for (int primitive = start; primitive < start + count; primitive++) {
+                if (count > 1 && !BVH.hitsBox(primitiveBounds, primitive, state.rayData, closestDistance))
+                    continue;
+                tests++;
+                Intersection intersection = primitives[primitive].findClosestIntersection(ray, closestDistance);
+                if (intersection != null && intersection.t < closestDistance) {
+                    closest = intersection;
+                    closestDistance = intersection.t;
+                }
+            }
+        }
+        if (counters != null)
+            counters.record(AccelerationStats.RayType.CLOSEST_HIT, visited, tests);
+        return closest;
+    }
+
+    /**
+     * finds how much light passes through the primitives along a ray, the traversal stops at the first
+     * primitive that blocks the ray
+     */
+    @Override
+    protected Double3 findTransmittanceHelper(Ray ray, double maxDistance, Double3 ktr, double minKtr) {
+        final Double3[] transmittance = {ktr};
+        for (Intersectable geo : unbounded) {
+            transmittance[0] = geo.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            if (transmittance[0].lowerThan(minKtr))
+                return Double3.ZERO;
+        }
+        traverse(ray, maxDistance, AccelerationStats.RayType.SHADOW, primitive -> {
+            transmittance[0] = primitive.findTransmittance(ray, maxDistance, transmittance[0], minKtr);
+            return transmittance[0].lowerThan(minKtr);
+        });
+        return transmittance[0].lowerThan(minKtr) ? Double3.ZERO : transmittance[0];
+    }
+
+    /**
+     * visits the primitives in the tree whose boxes a ray hits, in no particular order
+     * @param ray the ray
+     * @param maxDistance the maximum distance the ray can travel
+     * @param type the type of the ray, for counting the traversal
+     * @param visitor the visitor of the primitives
+     */
+    private void traverse(Ray ray, double maxDistance, AccelerationStats.RayType type, BVH.PrimitiveVisitor visitor) {
+        if (nodeCount == 0)
+            return;
+        final RayState state = new RayState(ray);
+        int[] stack = new int[(width - 1) * (maxDepth + 1) + 1];
+        int top = 0;
+        stack[top++] = 0;
+        int visited = 0, tests = 0;
+        traversal:
+        while (top > 0) {
+            final int child = stack[--top];
+            if (child >= 0) {
+                visited++;
+                int mask = hitLanes(child, state, maxDistance);
+                if (top + width > stack.length)
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                for (int lane = 0; mask != 0; lane++, mask >>>= 1)
+                    if ((mask & 1) != 0)
+                        stack[top++] = children[child * width + lane];
+                continue;
+            }
+            final int leaf = -child - 1;
+            final int start = leafStarts[leaf];
+            final int count = leafCounts[leaf];
+            for (int primitive = start; primitive < start + count; primitive++) {
+                if (count > 1 && !BVH.hitsBox(primitiveBounds, primitive, state.rayData, maxDistance))
+                    continue;
+                tests++;
+                if (visitor.visit(primitives[primitive]))
+                    break traversal;
+            }
+        }
+        if (counters != null)
+            counters.record(type, visited, tests);
+    }
+
+    /**
+     * turns the counting of the traversals on or off, see {@link BVH#setCountTraversals(boolean)}
+     * @param count true to count the traversals, false otherwise
+     * @return the wide BVH itself
+     */
+    public WideBVH setCountTraversals(boolean count) {
+        counters = count ? new AccelerationStats.Counters() : null;
+        return this;
+    }
+
+    /**
+     * walks the tree and reports its shape and cost, and the traversals counted so far.
+     * the children of a node are tested together, so the SAH cost counts a single test for every inner node
+     * (weighted by the chance a ray hitting the root hits it), and a test for every primitive in a leaf
+     * @return the report
+     */
+    public AccelerationStats getStats() {
+        int deepest = 0, biggest = 0;
+        long depthSum = 0;
+        double cost = 0;
+        if (nodeCount > 0) {
+            final double rootArea = BVHBuilder.halfArea(new double[]{boundingBox.getMin().getX(),
+                    boundingBox.getMin().getY(), boundingBox.getMin().getZ(), boundingBox.getMax().getX(),
+                    boundingBox.getMax().getY(), boundingBox.getMax().getZ()}, 0);
+            final double[] box = new double[6];
+            int[] stack = new int[2 * ((width - 1) * (maxDepth + 1) + 2)];
+            int top = 0;
+            // the root is hit by every ray that hits the tree's box
+            stack[top++] = 0;
+            stack[top++] = 0;
+            cost += 1;
+            while (top > 0) {
+                final int depth = stack[--top];
+                final int node = stack[--top];
+                for (int lane = 0; lane < width; lane++) {
+                    final int index = node * width + lane;
+                    final int child = children[index];
+                    if (child == EMPTY)
+                        continue;
+                    box[0] = minX[index];
+                    box[1] = minY[index];
+                    box[2] = minZ[index];
+                    box[3] = maxX[index];
+                    box[4] = maxY[index];
+                    box[5] = maxZ[index];
+                    final double chance = rootArea == 0 ? 1 : BVHBuilder.halfArea(box, 0) / rootArea;
+                    if (child >= 0) {
+                        cost += chance;
+                        if (top + 2 > stack.length)
+                            stack = Arrays.copyOf(stack, 2 * stack.length);
+                        stack[top++] = child;
+                        stack[top++] = depth + 1;
+                        continue;
+                    }
+                    final int count = leafCounts[-child - 1];
+                    cost += chance * count;
+                    biggest = Math.max(biggest, count);
+                    deepest = Math.max(deepest, depth + 1);
+                    depthSum += depth + 1;
+                }
+            }
+        }
+        final int[] histogram = new int[biggest + 1];
+        for (int leaf = 0; leaf < leafCount; leaf++)
+            histogram[leafCounts[leaf]]++;
+        return new AccelerationStats(nodeCount + leafCount, leafCount, deepest,
+                leafCount == 0 ? 0 : (double) depthSum / leafCount, histogram, cost, buildTime, counters);
+    }
+
+    /**
+     * @return the time the build took, in milliseconds
+     */
+    public double getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return the maximal amount of children of a node
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return boundingBox;
+    }
+}
@@ -4,6 +4,7 @@ import geometries.Geometries;
 import lighting.AmbientLight;
 import lighting.LightSource;
 import primitives.Color;
+import renderer.AccelerationStructure;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +17,9 @@ public class Scene {
     public AmbientLight ambientLight = AmbientLight.NONE;
     public Geometries geometries = new Geometries();
     public List<LightSource> lights = new LinkedList<>();
+    public AccelerationStructure accelerationStructure = AccelerationStructure.BVH;
+    /** whether the triangle meshes of the scene are kept in single precision */
+    public boolean singlePrecision = false;
 
     /**
      * consructor for the scene, takes the name of the scene only. rest
@@ -62,12 +66,62 @@ public class Scene {
         return this;
     }
 
+    /**
+     * @param accelerationStructure the acceleration structure that is built over the geometries of the scene
+     * @return the scene
+     */
+    public Scene setAccelerationStructure(AccelerationStructure accelerationStructure) {
+        this.accelerationStructure = accelerationStructure;
+        return this;
+    }
+
+    /**
+     * @param singlePrecision true to keep the triangle meshes of the scene in single precision - half the memory,
+     *                        with their intersections still calculated in double precision, false to keep them in
+     *                        double precision. the meshes are switched when the acceleration structure is built
+     * @return the scene
+     */
+    public Scene setSinglePrecision(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+        return this;
+    }
+
+    /**
+     * switches the triangle meshes of the scene to the precision the scene is set to, before an acceleration
+     * structure is built over them. the meshes that are already in that precision aren't touched
+     */
+    private void applyPrecision() {
+        geometries.setSinglePrecision(singlePrecision);
+    }
+
+    /**
+     * builds the chosen acceleration structure for the geometries in the scene
+     */
+    public void buildAccelerationStructure() {
+        if (geometries != null) {
+            applyPrecision();
+            geometries.buildAccelerator(accelerationStructure);
+        }
+    }
+
     /**
      * builds the BVH tree for the geometries in the scene
      */
     public void buildBVH() {
         if (geometries != null) {
+            applyPrecision();
             geometries.buildBVH();
         }
     }
+
+    /**
+     * builds the BVH tree for the geometries in the scene
+     * @param leafSize the maximal amount of primitives in a leaf of the tree
+     */
+    public void buildBVH(int leafSize) {
+        if (geometries != null) {
+            applyPrecision();
+            geometries.buildBVH(leafSize);
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BoundingBox
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class BoundingBoxTests {
+    /** a box of the points between (0,0,0) and (2,2,2) */
+    private final BoundingBox box = new BoundingBox(new Point(0, 0, 0), new Point(2, 2, 2));
+
+    /**
+     * Test method for {@link geometries.BoundingBox#intersects(primitives.Ray, double, double[])}.
+     */
+    @Test
+    void testIntersects() {
+        final double[] range = new double[2];
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray passes through the box, the range is where it enters and leaves
+        assertTrue(box.intersects(new Ray(new Point(1, 1, -3), new Vector(0, 0, 1)), Double.POSITIVE_INFINITY, range),
+                "ERROR: the ray through the box misses it");
+        assertArrayEquals(new double[]{3, 5}, range, 1e-10, "ERROR: wrong range inside the box");
+        // TC02: the ray goes down the axes, away from its head
+        assertTrue(box.intersects(new Ray(new Point(3, 3, 3), new Vector(-1, -1, -1)), 10, range),
+                "ERROR: the ray going down the axes misses the box");
+        assertArrayEquals(new double[]{Math.sqrt(3), 3 * Math.sqrt(3)}, range, 1e-10,
+                "ERROR: wrong range inside the box");
+        // TC03: the ray passes beside the box
+        assertFalse(box.intersects(new Ray(new Point(3, 1, -3), new Vector(0, 0, 1)), Double.POSITIVE_INFINITY),
+                "ERROR: the ray beside the box hits it");
+        // TC04: the box is behind the ray
+        assertFalse(box.intersects(new Ray(new Point(1, 1, 3), new Vector(0, 0, 1)), Double.POSITIVE_INFINITY),
+                "ERROR: the box behind the ray is hit");
+        // TC05: the box is beyond the maximum distance
+        assertFalse(box.intersects(new Ray(new Point(1, 1, -3), new Vector(0, 0, 1)), 2.5),
+                "ERROR: the box beyond the distance is hit");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the head is inside the box, the range starts at the head and ends at the distance
+        assertTrue(box.intersects(new Ray(new Point(1, 1, 1), new Vector(1, 0, 0)), 0.5, range),
+                "ERROR: the ray from inside the box misses it");
+        assertArrayEquals(new double[]{0, 0.5}, range, 1e-10, "ERROR: wrong range from inside the box");
+        // TC12: the ray is parallel to an axis and slides on a face of the box
+        assertTrue(box.intersects(new Ray(new Point(0, 1, -3), new Vector(0, 0, 1)), Double.POSITIVE_INFINITY),
+                "ERROR: the ray on the face misses the box");
+    }
+}
@@ -3,6 +3,9 @@ package geometries;
 import org.junit.jupiter.api.Test;
 import primitives.*;
 
+import java.util.Comparator;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -36,4 +39,78 @@ class CylinderTests {
         //TC14: testing point at the edge of bottom base
         assertEquals(new Vector(0, 0, 1), cylinder.getNormal(new Point(10, 0, 0)), "wrong normal to cylinder");
     }
-}
\ No newline at end of file
+
+    /**test method for {@link geometries.Cylinder#findIntersections(primitives.Ray)} */
+    @Test
+    void testFindIntersections() {
+        Cylinder cylinder = new Cylinder(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)), 2);
+        //============ Equivalence Partitions Tests ==============
+        // TC01: the ray crosses the side twice
+        assertEquals(List.of(new Point(-1, 0, 1), new Point(1, 0, 1)),
+                sorted(cylinder.findIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0)))),
+                "Wrong intersections with the side");
+        // TC02: the ray goes through both bases
+        assertEquals(List.of(new Point(0.5, 0, 0), new Point(0.5, 0, 2)),
+                sorted(cylinder.findIntersections(new Ray(new Point(0.5, 0, -1), new Vector(0, 0, 1)))),
+                "Wrong intersections with the bases");
+        // TC03: the ray enters through the side and leaves through the top base
+        assertEquals(2, cylinder.findIntersections(new Ray(new Point(-2, 0, 0.5), new Vector(1, 0, 1))).size(),
+                "Wrong number of points");
+        // TC04: the ray starts inside and leaves through the side
+        assertEquals(List.of(new Point(1, 0, 1)),
+                cylinder.findIntersections(new Ray(new Point(0, 0, 1), new Vector(1, 0, 0))),
+                "Wrong intersection from inside");
+        // TC05: the ray misses the cylinder
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, 3), new Vector(1, 0, 0))),
+                "Ray passes above the cylinder");
+        // TC06: the ray passes the infinite tube outside the cylinder's height
+        assertNull(cylinder.findIntersections(new Ray(new Point(-2, 0, 5), new Vector(1, 0, 0))),
+                "Ray crosses the tube beyond the cylinder");
+        // =============== Boundary Values Tests ==================
+        // TC11: the ray is parallel to the axis outside the radius
+        assertNull(cylinder.findIntersections(new Ray(new Point(2, 0, -1), new Vector(0, 0, 1))),
+                "Ray parallel to the axis outside the cylinder");
+        // TC12: the ray goes along the axis
+        assertEquals(List.of(new Point(0, 0, 0), new Point(0, 0, 2)),
+                sorted(cylinder.findIntersections(new Ray(new Point(0, 0, -1), new Vector(0, 0, 1)))),
+                "Wrong intersections along the axis");
+        // TC13: the ray goes through the edges of both bases, each found once
+        assertEquals(List.of(new Point(1, 0, 0), new Point(-1, 0, 2)),
+                sorted(cylinder.findIntersections(new Ray(new Point(-2, 0, 3), new Vector(1, 0, -1)))),
+                "Wrong intersections on the base edges");
+        // TC14: the distance limit stops before the second point
+        assertEquals(1, cylinder.findGeoIntersections(new Ray(new Point(-2, 0, 1), new Vector(1, 0, 0)), 2).size(),
+                "distance limit was ignored");
+    }
+
+    /**test method for {@link geometries.Cylinder#getBoundingBox()} */
+    @Test
+    void testGetBoundingBox() {
+        //============ Equivalence Partitions Tests ==============
+        // TC01: a cylinder along the z-axis
+        Cylinder straight = new Cylinder(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)), 2);
+        assertEquals(new Point(-1, -1, 0), straight.getBoundingBox().getMin(), "wrong bounding box");
+        assertEquals(new Point(1, 1, 2), straight.getBoundingBox().getMax(), "wrong bounding box");
+        // TC02: a tilted cylinder, its bases reach radius * sin of their angle to each axis
+        Cylinder tilted = new Cylinder(1, new Ray(new Point(0, 0, 0), new Vector(1, 1, 0)), Math.sqrt(2));
+        double d = Math.sqrt(0.5);
+        assertEquals(new Point(-d, -d, -1), tilted.getBoundingBox().getMin(), "wrong bounding box");
+        assertEquals(new Point(1 + d, 1 + d, 1), tilted.getBoundingBox().getMax(), "wrong bounding box");
+        // =============== Boundary Values Tests ==================
+        // TC11: clipping the cylinder keeps only the part inside the region
+        straight.setClipRegion(new BoundingBox(new Point(-5, -5, 1), new Point(5, 5, 5)));
+        assertEquals(new Point(-1, -1, 1), straight.getBoundingBox().getMin(), "wrong bounding box of a clipped cylinder");
+        assertEquals(new Point(1, 1, 2), straight.getBoundingBox().getMax(), "wrong bounding box of a clipped cylinder");
+    }
+
+    /**
+     * sorts intersection points by their z and x coordinates
+     * @param points the intersection points
+     * @return the sorted points
+     */
+    private static List<Point> sorted(List<Point> points) {
+        return points.stream()
+                .sorted(Comparator.comparingDouble(Point::getZ).thenComparingDouble(Point::getX))
+                .toList();
+    }
+}
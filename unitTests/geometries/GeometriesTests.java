@@ -105,4 +105,73 @@ class GeometriesTests {
         // TC15: The ray intersects all spheres in BVH
         assertEquals(6, totalGeo.findIntersections(rei2).size(), "ray intersects all geometries in BVH");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmittance(primitives.Ray, double, primitives.Double3, double)}.
+     */
+    @Test
+    void testFindTransmittance() {
+        final Geometry glass1 = new Sphere(new Point(0, 0, 0), 1).setMaterial(new Material().setKt(0.5));
+        final Geometry glass2 = new Sphere(new Point(3, 0, 0), 1).setMaterial(new Material().setKt(0.5));
+        final Geometry wall = new Polygon(new Point(6, -1, -1), new Point(6, 1, -1), new Point(6, 1, 1),
+                new Point(6, -1, 1));
+        final Ray ray = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        final Geometries scene = new Geometries(glass1, glass2, wall);
+        final Geometries sceneBVH = new Geometries(glass1, glass2, wall);
+        sceneBVH.buildBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray passes through four transparent surfaces before the wall
+        assertEquals(new Double3(0.0625), scene.findTransmittance(ray, 10, Double3.ONE, 0.001),
+                "wrong transmittance through transparent spheres");
+        assertEquals(new Double3(0.0625), sceneBVH.findTransmittance(ray, 10, Double3.ONE, 0.001),
+                "wrong transmittance through transparent spheres in BVH");
+        // TC02: the ray is blocked by the opaque wall
+        assertSame(Double3.ZERO, scene.findTransmittance(ray, 20, Double3.ONE, 0.001), "the wall should block the ray");
+        assertSame(Double3.ZERO, sceneBVH.findTransmittance(ray, 20, Double3.ONE, 0.001),
+                "the wall should block the ray in BVH");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the transmittance drops below the minimum before the wall
+        assertSame(Double3.ZERO, sceneBVH.findTransmittance(ray, 10, Double3.ONE, 0.1),
+                "a transmittance below the minimum should block the ray");
+        // TC12: nothing is on the ray within the distance
+        assertSame(Double3.ONE, sceneBVH.findTransmittance(ray, 3, Double3.ONE, 0.001),
+                "nothing should block a short ray");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestIntersection(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindClosestIntersection() {
+        Sphere sphere = new Sphere(new Point(0, 0, 5), 1);
+        Triangle triangle = new Triangle(new Point(-1, -1, 2), new Point(1, -1, 2), new Point(0, 1, 2));
+        Plane plane = new Plane(new Point(0, 0, 10), new Vector(0, 0, 1));
+        Geometries geometries = new Geometries(sphere, triangle, plane);
+        Geometries withBVH = new Geometries(sphere, triangle, plane);
+        withBVH.buildBVH();
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        Ray aside = new Ray(new Point(3, 0, 0), new Vector(0, 0, 1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The closest of the geometries is found, with its distance along the ray
+        Intersection closest = geometries.findClosestIntersection(ray, Double.POSITIVE_INFINITY);
+        assertSame(triangle, closest.geometry, "wrong closest geometry");
+        assertEquals(2, closest.t, 1e-10, "wrong distance of the closest intersection");
+        assertEquals(new Point(0, 0, 2), closest.getPoint(), "wrong closest point");
+        // TC02: The acceleration structure finds the same intersection
+        Intersection accelerated = withBVH.findClosestIntersection(ray, Double.POSITIVE_INFINITY);
+        assertSame(triangle, accelerated.geometry, "BVH found a different closest geometry");
+        assertEquals(2, accelerated.t, 1e-10, "BVH found a different distance");
+        // TC03: The ray misses the bounded geometries and hits the plane
+        assertSame(plane, withBVH.findClosestIntersection(aside, Double.POSITIVE_INFINITY).geometry,
+                "the plane should be the closest geometry");
+        // =============== Boundary Values Tests ==================
+        // TC11: All the geometries are farther than the distance limit
+        assertNull(geometries.findClosestIntersection(ray, 1.5), "distance limit was ignored");
+        assertNull(withBVH.findClosestIntersection(ray, 1.5), "distance limit was ignored by the BVH");
+        // TC12: An empty collection has no intersection
+        assertNull(new Geometries().findClosestIntersection(ray, Double.POSITIVE_INFINITY),
+                "empty collection has an intersection");
+    }
+}
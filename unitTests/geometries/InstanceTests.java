@@ -0,0 +1,100 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Instances
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class InstanceTests {
+    /** a unit sphere at the origin, shared by the instances of the tests */
+    private final Geometries ball = new Geometries(new Sphere(new Point(0, 0, 0), 1));
+
+    /**
+     * Test method for {@link geometries.Instance#Instance(geometries.Intersectable, primitives.Transform)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the box of the instance is the shared box moved by the transformation
+        final Instance instance = new Instance(ball,
+                Transform.scaling(2, 1, 1).then(Transform.translation(new Vector(10, 0, 0))));
+        assertEquals(new Point(8, -1, -1), instance.getBoundingBox().getMin(), "wrong instance box");
+        assertEquals(new Point(12, 1, 1), instance.getBoundingBox().getMax(), "wrong instance box");
+        // TC02: the shared collection gets an acceleration structure of its own
+        assertTrue(ball.hasAccelerator(), "shared collection has no acceleration structure");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an instance of an unbounded geometry is unbounded
+        assertFalse(new Instance(new Plane(new Point(0, 0, 0), new Vector(0, 0, 1)), Transform.IDENTITY).isBounded(),
+                "instance of a plane is bounded");
+        // TC12: an instance must have a geometry and a transformation
+        assertThrows(IllegalArgumentException.class, () -> new Instance(ball, null),
+                "instance without a transformation doesn't throw an exception");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findGeoIntersections(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        final Instance instance = new Instance(ball,
+                Transform.scaling(2, 2, 2).then(Transform.translation(new Vector(10, 0, 0))));
+        final Ray ray = new Ray(new Point(10, 0, 5), new Vector(0, 0, -1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray crosses the scaled and moved sphere
+        var intersections = instance.findGeoIntersections(ray);
+        assertEquals(2, intersections.size(), "wrong amount of intersections");
+        assertTrue(intersections.stream().anyMatch(gp -> gp.point.equals(new Point(10, 0, 2))),
+                "the intersection isn't moved to the scene");
+        // TC02: the normal is moved to the scene
+        assertEquals(new Vector(0, 0, 1),
+                instance.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY).geometry.getNormal(new Point(10, 0, 2)),
+                "wrong normal of the instance");
+        // TC03: the ray misses the instance where the shared sphere is
+        assertNull(instance.findGeoIntersections(new Ray(new Point(0, 0, 5), new Vector(0, 0, -1))),
+                "ray shouldn't intersect the shared sphere in its own place");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the distance limit is in the scene - the near point is at 3, the far at 7
+        assertEquals(1, instance.findGeoIntersections(ray, 5).size(), "distance limit was moved wrong");
+        assertNull(instance.findClosestGeoIntersection(ray, 2.5), "distance limit was moved wrong");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#setMaterial(primitives.Material)}.
+     */
+    @Test
+    void testSetMaterial() {
+        final Material glass = new Material().setKt(0.5);
+        final Instance instance = new Instance(ball, Transform.IDENTITY).setMaterial(glass);
+        final Ray ray = new Ray(new Point(0, 0, 5), new Vector(0, 0, -1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the instance's material replaces the material of the shared geometry
+        assertSame(glass, instance.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY).geometry.getMaterial(),
+                "the instance's material wasn't used");
+        // TC02: light passes the instance through its own material, twice through the sphere
+        assertEquals(new Double3(0.25), instance.findTransmittance(ray, Double.POSITIVE_INFINITY, Double3.ONE, 0.001),
+                "wrong transmittance of the instance");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#setTransform(primitives.Transform)}.
+     */
+    @Test
+    void testSetTransform() {
+        final Instance instance = new Instance(ball, Transform.IDENTITY);
+        final Geometries scene = new Geometries(instance, new Sphere(new Point(50, 0, 0), 1));
+        scene.buildBVH();
+        final Ray ray = new Ray(new Point(20, 0, 5), new Vector(0, 0, -1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the moved instance is found by the refitted BVH
+        assertNull(scene.findIntersections(ray), "ray shouldn't intersect the instance before it moved");
+        instance.setTransform(Transform.translation(new Vector(20, 0, 0)));
+        scene.refit(instance);
+        assertEquals(2, scene.findIntersections(ray).size(), "the moved instance wasn't found");
+    }
+}
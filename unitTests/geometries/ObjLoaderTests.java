@@ -0,0 +1,78 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import primitives.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing ObjLoader
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class ObjLoaderTests {
+    @TempDir
+    Path folder;
+
+    /**
+     * writes an OBJ file
+     * @param content the content of the file
+     * @return the path of the file
+     * @throws IOException if the file can't be written
+     */
+    private Path write(String content) throws IOException {
+        return Files.writeString(folder.resolve("mesh.obj"), content);
+    }
+
+    /**
+     * Test method for {@link geometries.ObjLoader#load(java.nio.file.Path)}.
+     */
+    @Test
+    void testLoad() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a square made of a quad face, with comments, texture and normal indices and other lines
+        final TriangleMesh square = ObjLoader.load(write("""
+                # a square
+                o square
+                v -1.5 -1.5 0
+                v 1.5e0 -1.5 0.0
+                v  1.5  1.5  -0
+                v -1.5 +1.5 0
+                vn 0 0 1
+                vt 0 0
+                f 1/1/1 2/1/1 3//1 4
+                """));
+        assertEquals(4, square.getVertexCount(), "wrong amount of vertices");
+        assertEquals(2, square.getTriangleCount(), "a quad should be split into two triangles");
+        assertEquals(new Point(1.5, 1.5, 0), square.getBoundingBox().getMax(), "wrong coordinates");
+        assertNotNull(square.findGeoIntersections(new Ray(new Point(-1, 1, 1), new Vector(0, 0, -1))),
+                "the second triangle of the quad is missing");
+        // TC02: negative indices count back from the last vertex, and lines can end with \r\n
+        final TriangleMesh triangle = ObjLoader.load(write("v 0 0 0\r\nv 1 0 0\r\nv 0 1 0\r\nf -3 -2 -1\r\n"));
+        assertEquals(1, triangle.getTriangleCount(), "wrong amount of triangles");
+        // TC03: a malformed number
+        assertThrows(IllegalArgumentException.class, () -> ObjLoader.load(write("v 0 x 0\n")),
+                "malformed number doesn't throw an exception");
+        // TC04: a missing file
+        assertThrows(IllegalStateException.class, () -> ObjLoader.load(folder.resolve("missing.obj")),
+                "missing file doesn't throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a face must have at least 3 vertices
+        assertThrows(IllegalArgumentException.class, () -> ObjLoader.load(write("v 0 0 0\nv 1 0 0\nf 1 2\n")),
+                "face of 2 vertices doesn't throw an exception");
+        // TC12: a face of a vertex that isn't in the file
+        assertThrows(IllegalArgumentException.class, () -> ObjLoader.load(write("v 0 0 0\nv 1 0 0\nf 1 2 3\n")),
+                "missing vertex doesn't throw an exception");
+        // TC13: small fractions are read exactly, and the last line doesn't need a line end
+        final TriangleMesh precise = ObjLoader.load(write("v 0.1 0.0001 -2.5e-3\nv 0 0 -1\nv 0.05 0 -1\nf 1 2 3"));
+        final Point max = precise.getBoundingBox().getMax();
+        assertEquals(0.1, max.getX(), 0, "0.1 wasn't read exactly");
+        assertEquals(0.0001, max.getY(), 0, "0.0001 wasn't read exactly");
+        assertEquals(-2.5e-3, max.getZ(), 0, "-2.5e-3 wasn't read exactly");
+    }
+}
@@ -10,6 +10,8 @@ import primitives.Ray;
 import primitives.Vector;
 import geometries.Intersectable.GeoPoint;
 
+import java.util.List;
+
 /**
  * Testing Polygons
  * @author Dan
@@ -125,6 +127,14 @@ public class PolygonTests {
         // TC03: Outside against vertex
         final var result03 = polygon.findIntersections(new Ray(p03, v001));
         assertNull(result03, "Ray starts outside the polygon, against a vertex and doesn't intersect it");
+        // TC04: Inside a tilted polygon facing mostly along x, its vertices ordered clockwise
+        final Polygon tilted = new Polygon(new Point(0, 0, 0), new Point(1, 0, 4), new Point(1, 4, 4),
+                new Point(0, 4, 0));
+        assertEquals(List.of(new Point(0.5, 2, 2)),
+                tilted.findIntersections(new Ray(new Point(3, 2, 2), new Vector(-1, 0, 0))), "Ray crosses tilted polygon");
+        // TC05: Outside a tilted polygon, against an edge
+        assertNull(tilted.findIntersections(new Ray(new Point(3, 5, 2), new Vector(-1, 0, 0))),
+                "Ray passes outside the tilted polygon");
 
         // =============== Boundary Values Tests ==================
         // TC11: On edge
@@ -187,4 +187,53 @@ class SphereTests {
         //TC03: ray doesn't intersect the sphere
         assertNull(result3, "Ray doesn't intersect the sphere");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}.
+     */
+    @Test
+    public void testFindClosestGeoIntersection() {
+        final Sphere sphere = new Sphere(new Point(1, 0, 0), 1d);
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: ray starts before the sphere, the near point is the closest
+        assertEquals(new Point(0, 0, 0), sphere.findClosestGeoIntersection(
+                new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0)), Double.POSITIVE_INFINITY).point, "Wrong closest point");
+        //TC02: ray starts inside the sphere, the far point is the closest
+        assertEquals(new Point(2, 0, 0), sphere.findClosestGeoIntersection(
+                new Ray(new Point(0.5, 0, 0), new Vector(1, 0, 0)), Double.POSITIVE_INFINITY).point, "Wrong closest point");
+        //TC03: ray starts after the sphere
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(3, 0, 0), new Vector(1, 0, 0)),
+                Double.POSITIVE_INFINITY), "Ray doesn't intersect the sphere");
+        // =============== Boundary Values Tests ==================
+        //TC11: the near point is farther than the distance
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0)), 0.5),
+                "distance limit was ignored");
+        //TC12: ray is tangent to the sphere
+        assertNull(sphere.findClosestGeoIntersection(new Ray(new Point(0, 1, -1), new Vector(0, 0, 1)),
+                Double.POSITIVE_INFINITY), "tangent ray doesn't intersect the sphere");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmittance(primitives.Ray, double, primitives.Double3, double)}.
+     */
+    @Test
+    public void testFindTransmittance() {
+        final Sphere sphere = new Sphere(new Point(1, 0, 0), 1d);
+        sphere.setMaterial(new Material().setKt(0.5));
+        final Ray ray = new Ray(new Point(-1, 0, 0), new Vector(1, 0, 0));
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: the light passes through both sides of the sphere
+        assertEquals(new Double3(0.25), sphere.findTransmittance(ray, 10, Double3.ONE, 0.001),
+                "Wrong transmittance through the sphere");
+        //TC02: the light source is inside the sphere, only one side is crossed
+        assertEquals(new Double3(0.5), sphere.findTransmittance(ray, 1.5, Double3.ONE, 0.001),
+                "Wrong transmittance into the sphere");
+        //TC03: the ray misses the sphere
+        assertEquals(Double3.ONE, sphere.findTransmittance(new Ray(new Point(-1, 3, 0), new Vector(1, 0, 0)), 10,
+                Double3.ONE, 0.001), "Ray doesn't pass through the sphere");
+        // =============== Boundary Values Tests ==================
+        //TC11: the light is blocked once it is under the minimum
+        assertEquals(Double3.ZERO, sphere.findTransmittance(ray, 10, Double3.ONE, 0.3),
+                "Ray should be blocked by the sphere");
+    }
+}
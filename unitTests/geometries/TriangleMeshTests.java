@@ -0,0 +1,172 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TriangleMeshes
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class TriangleMeshTests {
+    /**
+     * creates a flat grid of squares on the plane z = 0, every square split into two triangles
+     * @param size the amount of squares on a side
+     * @return the mesh
+     */
+    private static TriangleMesh grid(int size) {
+        double[] vertices = new double[3 * (size + 1) * (size + 1)];
+        for (int y = 0; y <= size; y++)
+            for (int x = 0; x <= size; x++) {
+                vertices[3 * (y * (size + 1) + x)] = x;
+                vertices[3 * (y * (size + 1) + x) + 1] = y;
+            }
+        int[] triangles = new int[6 * size * size];
+        for (int y = 0, i = 0; y < size; y++)
+            for (int x = 0; x < size; x++) {
+                int corner = y * (size + 1) + x;
+                triangles[i++] = corner;
+                triangles[i++] = corner + 1;
+                triangles[i++] = corner + size + 2;
+                triangles[i++] = corner;
+                triangles[i++] = corner + size + 2;
+                triangles[i++] = corner + size + 1;
+            }
+        return new TriangleMesh(vertices, triangles);
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the mesh shares its vertices between the triangles
+        final TriangleMesh mesh = grid(10);
+        assertEquals(121, mesh.getVertexCount(), "wrong amount of vertices");
+        assertEquals(200, mesh.getTriangleCount(), "wrong amount of triangles");
+        assertEquals(new Point(10, 10, 0), mesh.getBoundingBox().getMax(), "wrong bounding box");
+        // TC02: a triangle with a missing vertex
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new int[]{0, 1, 3}),
+                "a missing vertex doesn't throw an exception");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the arrays must be made of triples
+        assertThrows(IllegalArgumentException.class,
+                () -> new TriangleMesh(new double[]{0, 0, 0, 1}, new int[0]), "broken vertex doesn't throw");
+        // TC12: an empty mesh has no bounding box
+        assertNull(new TriangleMesh(new double[0], new int[0]).getBoundingBox(), "empty mesh has a bounding box");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#getNormal(primitives.Point)}.
+     */
+    @Test
+    void testGetNormal() {
+        // two faces of a corner: one on the plane z = 0, one on the plane y = 0
+        final TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1},
+                new int[]{0, 1, 2, 0, 3, 1});
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a point on the first face
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.2, 0.3, 0)), "wrong normal of the first face");
+        // TC02: a point on the second face
+        assertEquals(new Vector(0, 1, 0), mesh.getNormal(new Point(0.5, 0, 0.3)), "wrong normal of the second face");
+        // TC03: a point that isn't on the mesh
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(0.3, 0.3, 0.3)),
+                "a point off the mesh doesn't throw an exception");
+        // TC04: a point on a mesh in single precision
+        assertEquals(new Vector(0, 0, 1), grid(8).setSinglePrecision(true).getNormal(new Point(3.7, 5.2, 0)),
+                "wrong normal in single precision");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a point rounded slightly off the face
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(new Point(0.2, 0.3, 1e-9)), "wrong normal near the face");
+        // TC12: a point just outside the edge of the face
+        assertThrows(IllegalArgumentException.class, () -> mesh.getNormal(new Point(0.6, 0.6, 0)),
+                "a point beyond the edge doesn't throw an exception");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findGeoIntersections(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindGeoIntersections() {
+        final TriangleMesh mesh = grid(10);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray crosses one triangle, the normal is the triangle's
+        final var intersections = mesh.findGeoIntersections(new Ray(new Point(3.7, 5.2, 2), new Vector(0, 0, -1)));
+        assertEquals(List.of(new Point(3.7, 5.2, 0)), intersections.stream().map(gp -> gp.point).toList(),
+                "wrong intersection");
+        assertEquals(new Vector(0, 0, 1), intersections.getFirst().geometry.getNormal(new Point(3.7, 5.2, 0)),
+                "wrong normal");
+        // TC02: the ray misses the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(11, 5, 2), new Vector(0, 0, -1))),
+                "ray shouldn't intersect the mesh");
+        // TC03: the ray goes away from the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(5, 5, 2), new Vector(0, 0, 1))),
+                "ray shouldn't intersect the mesh");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a ray through an edge shared by two triangles doesn't slip between them
+        assertNotNull(mesh.findClosestGeoIntersection(new Ray(new Point(3.5, 3.5, 2), new Vector(0, 0, -1)),
+                Double.POSITIVE_INFINITY), "ray slipped through a shared edge");
+        // TC12: the mesh is farther than the distance limit
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(3.7, 5.2, 2), new Vector(0, 0, -1)), 1.5),
+                "distance limit was ignored");
+        // TC13: the ray is parallel to the mesh
+        assertNull(mesh.findGeoIntersections(new Ray(new Point(-1, 5.2, 0), new Vector(1, 0, 0))),
+                "ray parallel to the mesh shouldn't intersect it");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findClosestGeoIntersection(primitives.Ray, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        // two layers of the grid, the second one moved up
+        final double[] vertices = {0, 0, 0, 4, 0, 0, 0, 4, 0, 0, 0, 1, 4, 0, 1, 0, 4, 1};
+        final TriangleMesh mesh = new TriangleMesh(vertices, new int[]{0, 1, 2, 3, 4, 5});
+        final Ray ray = new Ray(new Point(1, 1, -2), new Vector(0, 0, 1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest of the two layers
+        assertEquals(new Point(1, 1, 0), mesh.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY).point,
+                "wrong closest intersection");
+        // TC02: the closest intersection is the first of all the intersections
+        assertEquals(new Point(1, 1, 0), mesh.findGeoIntersections(ray).stream()
+                .min(Comparator.comparingDouble(gp -> gp.point.distance(ray.getHead()))).orElseThrow().point,
+                "closest intersection differs from the intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#setSinglePrecision(boolean)}.
+     */
+    @Test
+    void testSetSinglePrecision() {
+        final TriangleMesh mesh = grid(8).setSinglePrecision(true);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same intersections as in double precision
+        assertTrue(mesh.isSinglePrecision(), "mesh isn't in single precision");
+        final Ray ray = new Ray(new Point(2.3, 3.1, 1), new Vector(0.2, 0.1, -1));
+        assertEquals(grid(8).findIntersections(ray), mesh.findIntersections(ray),
+                "wrong intersections in single precision");
+        // TC02: the box of a mesh whose coordinates aren't floats holds the rounded triangle
+        final TriangleMesh tenth = new TriangleMesh(new double[]{0.1, 0.1, 0, 0.7, 0.1, 0, 0.1, 0.7, 0},
+                new int[]{0, 1, 2}).setSinglePrecision(true);
+        assertEquals((float) 0.1, tenth.getBoundingBox().getMin().getX(), 0, "wrong box in single precision");
+        assertNotNull(tenth.findGeoIntersections(new Ray(new Point((float) 0.1, 0.4, 1), new Vector(0, 0, -1))),
+                "ray along the box's border misses the triangle");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a ray through the edge between two triangles doesn't slip between them
+        assertNotNull(mesh.findGeoIntersections(new Ray(new Point(1.5, 1.5, 1), new Vector(0, 0, -1))),
+                "ray through a shared edge misses the mesh");
+        // TC12: switching back to double precision keeps the rounded coordinates
+        assertFalse(tenth.setSinglePrecision(false).isSinglePrecision(), "mesh is still in single precision");
+        assertEquals((float) 0.1, tenth.getBoundingBox().getMin().getX(), 0, "coordinates weren't kept");
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import primitives.Point;
 import primitives.Ray;
+import primitives.Transform;
 import primitives.Vector;
 import geometries.Intersectable.GeoPoint;
 
@@ -170,4 +171,38 @@ class TriangleTests {
         // TC03: Outside box
         assertNull(result3, "Ray starts outside the box and doesn't intersect the triangle");
     }
-}
\ No newline at end of file
+
+    /**
+     * test method for {@link Intersection#getBarycentrics()} of the intersections with a triangle
+     */
+    @Test
+    void testGetBarycentrics() {
+        final Triangle triangle = new Triangle(
+                new Point(-2, 0, 0),
+                new Point(2, 0, 0),
+                new Point(0, 4, 0));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a point inside the triangle is a blend of all the vertices
+        assertArrayEquals(new double[]{0.25, 0.5, 0.25},
+                triangle.findClosestIntersection(new Ray(new Point(0.5, 1, 1), new Vector(0, 0, -1)), 10)
+                        .getBarycentrics(), 1e-10, "wrong barycentric coordinates");
+        // TC02: the coordinates depend on the point only, not on the direction of the ray
+        assertArrayEquals(new double[]{0.25, 0.5, 0.25},
+                triangle.findClosestIntersection(new Ray(new Point(1.5, 3, -2), new Vector(-1, -2, 2)), 10)
+                        .getBarycentrics(), 1e-10, "wrong barycentric coordinates of an oblique ray");
+        // TC03: an intersection with a geometry that isn't a triangle has no barycentric coordinates
+        assertNull(new Polygon(new Point(-2, 0, 0), new Point(2, 0, 0), new Point(2, 4, 0), new Point(-2, 4, 0))
+                        .findClosestIntersection(new Ray(new Point(0.5, 1, 1), new Vector(0, 0, -1)), 10)
+                        .getBarycentrics(), "a polygon has barycentric coordinates");
+        // ================= Boundary Values Tests ==================
+        // TC11: a point close to a vertex is made of it almost only
+        assertArrayEquals(new double[]{0, 0, 1},
+                triangle.findClosestIntersection(new Ray(new Point(0, 3.9999, 1), new Vector(0, 0, -1)), 10)
+                        .getBarycentrics(), 1e-4, "wrong barycentric coordinates near a vertex");
+        // TC12: a transformed instance of the triangle keeps the coordinates of its point
+        assertArrayEquals(new double[]{0.25, 0.5, 0.25},
+                new Instance(triangle, Transform.translation(new Vector(0, 0, -5)))
+                        .findClosestIntersection(new Ray(new Point(0.5, 1, 1), new Vector(0, 0, -1)), 10)
+                        .getBarycentrics(), 1e-10, "an instance lost the barycentric coordinates");
+    }
+}
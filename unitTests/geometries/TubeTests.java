@@ -89,4 +89,25 @@ class TubeTests {
         assertEquals(2, result16.size(), "Wrong number of points");
         assertEquals(exp2, result16, "Ray goes through the origin point");
     }
-}
\ No newline at end of file
+
+    /**test method for {@link geometries.Tube#setClipRegion(geometries.BoundingBox)} */
+    @Test
+    void testSetClipRegion() {
+        Tube tube = new Tube(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1)))
+                .setClipRegion(new BoundingBox(new Point(-5, -5, 0), new Point(5, 5, 10)));
+        //============ Equivalence Partitions Tests ==============
+        // TC01: the box of a clipped tube is the part of the tube inside the region
+        assertEquals(new Point(-1, -1, 0), tube.getBoundingBox().getMin(), "wrong bounding box of a clipped tube");
+        assertEquals(new Point(1, 1, 10), tube.getBoundingBox().getMax(), "wrong bounding box of a clipped tube");
+        // TC02: the ray crosses the tube inside the region
+        assertEquals(2, tube.findIntersections(new Ray(new Point(-5, 0, 5), new Vector(1, 0, 0))).size(),
+                "Wrong number of points");
+        // TC03: the ray crosses the tube outside the region
+        assertNull(tube.findIntersections(new Ray(new Point(-5, 0, 20), new Vector(1, 0, 0))),
+                "Ray crosses the tube outside the clip region");
+        // =============== Boundary Values Tests ==================
+        // TC11: an unclipped tube has no bounding box
+        assertNull(new Tube(1, new Ray(new Point(0, 0, 0), new Vector(0, 0, 1))).getBoundingBox(),
+                "an infinite tube has a bounding box");
+    }
+}
@@ -21,6 +21,36 @@ class RayTests {
         assertThrows(IllegalArgumentException.class, () -> ray.getPoint(0));
     }
 
+    @Test
+    void testGetPointOrNull() {
+// ============ Equivalence Partitions Tests ==============
+        Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
+        // TC01: Positive distance, the same point as getPoint
+        assertEquals(ray.getPoint(2), ray.getPointOrNull(2));
+        // ================== Boundary Values Tests ==================
+        // TC11: zero distance
+        assertNull(ray.getPointOrNull(0));
+    }
+
+    @Test
+    void testGetSigns() {
+// ============ Equivalence Partitions Tests ==============
+        Ray ray = new Ray(Point.ZERO, new Vector(-3, 4, -12));
+        // TC01: the inverse of the normalized direction and a bit for every negative component
+        assertEquals(-13d / 3, ray.getInverseX(), 1e-10);
+        assertEquals(13d / 4, ray.getInverseY(), 1e-10);
+        assertEquals(-13d / 12, ray.getInverseZ(), 1e-10);
+        assertEquals(0b101, ray.getSigns());
+        assertTrue(ray.isNegative(2));
+        assertFalse(ray.isNegative(1));
+        // ================== Boundary Values Tests ==================
+        // TC11: a direction parallel to an axis has infinite inverses
+        Ray parallel = new Ray(Point.ZERO, new Vector(0, -2, 0));
+        assertEquals(Double.POSITIVE_INFINITY, parallel.getInverseX());
+        assertEquals(-1d, parallel.getInverseY());
+        assertEquals(0b010, parallel.getSigns());
+    }
+
     @Test
     void testFindClosestPoint() {
         Ray ray = new Ray(Point.ZERO, new Vector(1, 0, 0));
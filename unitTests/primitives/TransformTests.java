@@ -0,0 +1,90 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Transforms
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class TransformTests {
+    /**
+     * Test method for {@link primitives.Transform#transformPoint(primitives.Point)}.
+     */
+    @Test
+    void testTransformPoint() {
+        final Point p = new Point(1, 2, 3);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a translation moves the point
+        assertEquals(new Point(2, 2, 1), Transform.translation(new Vector(1, 0, -2)).transformPoint(p),
+                "ERROR: translation moved the point wrong");
+        // TC02: a scaling multiplies the coordinates
+        assertEquals(new Point(2, -2, 9), Transform.scaling(2, -1, 3).transformPoint(p),
+                "ERROR: scaling moved the point wrong");
+        // TC03: a quarter turn around the z-axis takes x to y
+        assertEquals(new Point(-2, 1, 3), Transform.rotation(new Vector(0, 0, 1), Math.PI / 2).transformPoint(p),
+                "ERROR: rotation moved the point wrong");
+        // TC04: combined transformations are applied by their order
+        assertEquals(new Point(3, 6, 9), Transform.translation(new Vector(0.5, 1, 1.5))
+                .then(Transform.scaling(2, 2, 2)).transformPoint(p), "ERROR: combination applied in the wrong order");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the identity leaves the point in place
+        assertEquals(p, Transform.IDENTITY.transformPoint(p), "ERROR: identity moved the point");
+        // TC12: a scaling can't flatten an axis
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "ERROR: zero scaling doesn't throw an exception");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#inverseTransformPoint(primitives.Point)}.
+     */
+    @Test
+    void testInverseTransformPoint() {
+        final Point p = new Point(1, 2, 3);
+        final Transform transform = Transform.scaling(2, 3, 4)
+                .then(Transform.rotation(new Vector(1, 1, 0), 0.7))
+                .then(Transform.translation(new Vector(-3, 5, 1)));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the inverse moves the point back
+        assertEquals(p, transform.inverseTransformPoint(transform.transformPoint(p)),
+                "ERROR: inverse didn't move the point back");
+        // TC02: the inverse transformation is the same as moving back
+        assertEquals(transform.inverseTransformPoint(p), transform.inverse().transformPoint(p),
+                "ERROR: inverse() differs from inverseTransformPoint()");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transformVector(primitives.Vector)}.
+     */
+    @Test
+    void testTransformVector() {
+        final Transform transform = Transform.translation(new Vector(5, 5, 5)).then(Transform.scaling(2, 1, 1));
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a vector isn't translated, and isn't normalized
+        assertEquals(new Vector(2, 1, 0), transform.transformVector(new Vector(1, 1, 0)),
+                "ERROR: vector moved wrong");
+        // TC02: the inverse moves the vector back
+        assertEquals(new Vector(1, 1, 0), transform.inverseTransformVector(new Vector(2, 1, 0)),
+                "ERROR: inverse didn't move the vector back");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transformNormal(primitives.Vector)}.
+     */
+    @Test
+    void testTransformNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a stretched surface keeps its normal perpendicular - the plane x + y = 0 stretched on x
+        final Transform stretch = Transform.scaling(2, 1, 1);
+        final Vector normal = stretch.transformNormal(new Vector(1, 1, 0));
+        assertEquals(0, normal.dotProduct(stretch.transformVector(new Vector(1, -1, 0))), 1e-10,
+                "ERROR: normal isn't perpendicular to the stretched surface");
+        assertEquals(1, normal.length(), 1e-10, "ERROR: normal isn't normalized");
+        // TC02: a rotation turns the normal like any vector
+        assertEquals(new Vector(0, 1, 0),
+                Transform.rotation(new Vector(0, 0, 1), Math.PI / 2).transformNormal(new Vector(1, 0, 0)),
+                "ERROR: rotated normal is wrong");
+    }
+}
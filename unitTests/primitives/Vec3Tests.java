@@ -0,0 +1,60 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Vec3
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class Vec3Tests {
+    /**
+     * Test method for {@link primitives.Vec3#addScaled(primitives.Point, double)}.
+     */
+    @Test
+    void testAddScaled() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the triad is changed in place, like the immutable calculation
+        final Point p = new Point(1, 2, 3);
+        final Vector v = new Vector(0.3, -1, 2);
+        final Vec3 triad = new Vec3().set(p);
+        assertSame(triad, triad.addScaled(v, 2.5), "ERROR: addScaled() didn't return the triad itself");
+        assertEquals(p.add(v.scale(2.5)), triad.toPoint(), "ERROR: addScaled() differs from the immutable result");
+    }
+
+    /**
+     * Test method for {@link primitives.Vec3#toRay(primitives.Point)}.
+     */
+    @Test
+    void testToRay() {
+        final Point head = new Point(1, 0, -1);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray is the same as a ray of the immutable vector
+        final Vector v = new Vector(2, -3, 6);
+        assertEquals(new Ray(head, v), new Vec3().set(v).toRay(head), "ERROR: toRay() differs from a Ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a zero triad has no direction
+        assertThrows(ArithmeticException.class, () -> new Vec3().toRay(head),
+                "ERROR: toRay() of a zero triad doesn't throw an exception");
+    }
+
+    /**
+     * Test method for {@link primitives.Vec3#addProduct(primitives.Vec3, primitives.Vec3)}.
+     */
+    @Test
+    void testAddProduct() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the product of two colors is added by component
+        final Vec3 color = new Vec3().set(new Color(10, 20, 30));
+        color.addProduct(new Vec3(1, 2, 3), new Vec3().set(new Double3(0.5, 0.25, 2)));
+        assertEquals(new Color(10.5, 20.5, 36).toString(), color.toColor().toString(),
+                "ERROR: addProduct() calculated a wrong color");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a negative color can't leave the triad
+        assertThrows(IllegalArgumentException.class, () -> new Vec3(-1, 0, 0).toColor(),
+                "ERROR: toColor() of a negative triad doesn't throw an exception");
+    }
+}
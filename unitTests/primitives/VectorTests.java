@@ -113,6 +113,22 @@ class VectorTests {
                 "crossProduct() for parallel vectors does not throw an exception");
     }
 
+    /**
+     * Test method for {@link primitives.Vector#crossProductOrNull(primitives.Vector)}.
+     */
+    @Test
+    void testCrossProductOrNull() {
+        Vector v1 = new Vector(1, 2, 3);
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the product of non-parallel vectors is the same as crossProduct()
+        Vector v2 = new Vector(0, 3, -2);
+        assertEquals(v1.crossProduct(v2), v1.crossProductOrNull(v2), "crossProductOrNull() wrong result");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: parallel vectors have no product
+        assertNull(v1.crossProductOrNull(new Vector(-2, -4, -6)), "crossProductOrNull() for parallel vectors");
+    }
+
     /**
      * Test method for {@link primitives.Vector#dotProduct(primitives.Vector)}.
      */
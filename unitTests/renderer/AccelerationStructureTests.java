@@ -0,0 +1,144 @@
+package renderer;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.AcceleratorTestHelper.*;
+
+/**
+ * Testing all the acceleration structures against the plain search over all the geometries
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class AccelerationStructureTests {
+    /** the amount of primitives in the random scene */
+    private static final int PRIMITIVES = 1000;
+    /** the amount of random rays traced through every structure */
+    private static final int RAYS = 1000;
+
+    /**
+     * @param index the index of a random ray
+     * @return the distance limit of the ray - every other ray is limited, to a distance that changes from ray to ray
+     */
+    private static double maxDistance(int index) {
+        return index % 2 == 0 ? Double.POSITIVE_INFINITY : 5 + index % 120;
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)} after building every
+     * acceleration structure.
+     */
+    @Test
+    void testFindIntersections() {
+        final Ray[] rays = obliqueRays(2, RAYS);
+        for (AccelerationStructure structure : AccelerationStructure.values()) {
+            final Geometries scene = randomScene(1, PRIMITIVES);
+            final Geometries brute = bruteForce(scene);
+            scene.buildAccelerator(structure);
+            final Geometries row = sphereRow(200);
+            row.buildAccelerator(structure);
+            final Point head = new Point(-5, 0, 0);
+            final Ray along = new Ray(head, new Vector(1, 0, 0));
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: oblique rays through a random scene find what the plain search finds, each intersection once
+            for (int i = 0; i < rays.length; i++) {
+                final Point from = rays[i].getHead();
+                assertEquals(sorted(points(brute.findGeoIntersections(rays[i], maxDistance(i))), from),
+                        sorted(points(scene.findGeoIntersections(rays[i], maxDistance(i))), from),
+                        structure + " intersections of ray " + i + " differ from the plain search");
+            }
+            // TC02: the ray passes through one sphere
+            assertEquals(List.of(new Point(300, 0, 1), new Point(300, 0, -1)),
+                    sorted(row.findIntersections(new Ray(new Point(300, 0, 5), new Vector(0, 0, -1))),
+                            new Point(300, 0, 5)), "wrong " + structure + " intersections with one sphere");
+            // TC03: the ray misses all the spheres
+            assertNull(row.findIntersections(new Ray(new Point(-5, 5, 0), new Vector(1, 0, 0))),
+                    "ray shouldn't intersect any sphere in the " + structure);
+
+            // =============== Boundary Values Tests ==================
+            // TC11: a ray along the row goes through all the spheres, and the distance limit cuts it
+            assertEquals(sorted(sphereRow(200).findIntersections(along), head), sorted(row.findIntersections(along),
+                    head), structure + " intersections along the row differ from the plain search");
+            assertEquals(4, row.findGeoIntersections(along, 9).size(),
+                    "distance limit was ignored by the " + structure);
+            // TC12: a plane has no finite box, and is still found
+            final Geometries withPlane = new Geometries(sphereRow(10),
+                    new Plane(new Point(0, -2, 0), new Vector(0, 1, 0)));
+            withPlane.buildAccelerator(structure);
+            assertEquals(1, withPlane.findIntersections(new Ray(new Point(0, 5, 5), new Vector(0, -1, 0))).size(),
+                    "the plane is missing from the " + structure);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}
+     * after building every acceleration structure.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        final Ray[] rays = obliqueRays(4, RAYS);
+        for (AccelerationStructure structure : AccelerationStructure.values()) {
+            final Geometries scene = randomScene(3, PRIMITIVES);
+            final Geometries brute = bruteForce(scene);
+            scene.buildAccelerator(structure);
+            final Geometries row = sphereRow(200);
+            row.buildAccelerator(structure);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: oblique rays through a random scene find the closest point the plain search finds
+            for (int i = 0; i < rays.length; i++) {
+                final GeoPoint expected = brute.findClosestGeoIntersection(rays[i], maxDistance(i));
+                final GeoPoint actual = scene.findClosestGeoIntersection(rays[i], maxDistance(i));
+                assertEquals(expected == null ? null : expected.point, actual == null ? null : actual.point,
+                        "wrong " + structure + " closest intersection of ray " + i);
+            }
+            // TC02: the ray goes along the row, the closest point is on the first sphere
+            assertEquals(new Point(-1, 0, 0),
+                    row.findClosestGeoIntersection(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)),
+                            Double.POSITIVE_INFINITY).point, "wrong " + structure + " closest intersection");
+            // TC03: the ray goes against the row, the closest point is on the last sphere
+            assertEquals(new Point(598, 0, 0),
+                    row.findClosestGeoIntersection(new Ray(new Point(700, 0, 0), new Vector(-1, 0, 0)),
+                            Double.POSITIVE_INFINITY).point, "wrong " + structure + " closest intersection");
+
+            // =============== Boundary Values Tests ==================
+            // TC11: the closest sphere is farther than the distance limit
+            assertNull(row.findClosestGeoIntersection(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)), 3),
+                    "distance limit was ignored by the " + structure);
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransmittance(primitives.Ray, double, primitives.Double3,
+     * double)} after building every acceleration structure.
+     */
+    @Test
+    void testFindTransmittance() {
+        final Ray[] rays = obliqueRays(6, RAYS);
+        for (AccelerationStructure structure : AccelerationStructure.values()) {
+            final Geometries scene = randomScene(5, PRIMITIVES);
+            final Geometries brute = bruteForce(scene);
+            scene.buildAccelerator(structure);
+
+            // ============ Equivalence Partitions Tests ==============
+            // TC01: oblique rays through the transparent and opaque primitives of a random scene
+            for (int i = 0; i < rays.length; i++)
+                assertEquals(brute.findTransmittance(rays[i], maxDistance(i), Double3.ONE, 0.001),
+                        scene.findTransmittance(rays[i], maxDistance(i), Double3.ONE, 0.001),
+                        "wrong " + structure + " transmittance of ray " + i);
+        }
+    }
+
+    /**
+     * @param geoPoints intersection points with their geometries, null for none
+     * @return the points, null for none
+     */
+    private static List<Point> points(List<GeoPoint> geoPoints) {
+        return geoPoints == null ? null : geoPoints.stream().map(geoPoint -> geoPoint.point).toList();
+    }
+}
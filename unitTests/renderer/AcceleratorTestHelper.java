@@ -0,0 +1,130 @@
+package renderer;
+
+import geometries.*;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * the fixtures of the tests of the acceleration structures
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+final class AcceleratorTestHelper {
+    /** the helper only holds static methods */
+    private AcceleratorTestHelper() {
+    }
+
+    /**
+     * creates a flat collection of spheres in a row along the x-axis
+     * @param amount the amount of spheres
+     * @return the collection
+     */
+    static Geometries sphereRow(int amount) {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < amount; i++)
+            geometries.add(new Sphere(new Point(3 * i, 0, 0), 1));
+        return geometries;
+    }
+
+    /**
+     * sorts intersection points by their distance from a point
+     * @param points the intersection points, null for none
+     * @param from the point to measure the distance from
+     * @return the sorted points
+     */
+    static List<Point> sorted(List<Point> points, Point from) {
+        if (points == null)
+            return List.of();
+        return points.stream().sorted(Comparator.comparingDouble(p -> p.distance(from))).toList();
+    }
+
+    /**
+     * creates a random scene of spheres, triangles and polygons in a cube of size 100 around the origin.
+     * a quarter of the primitives are squares on the integer planes of the axes, where the splits of the
+     * accelerators fall, and every third primitive is in a nested collection
+     * @param seed the seed of the random numbers
+     * @param amount the amount of primitives
+     * @return the scene
+     */
+    static Geometries randomScene(long seed, int amount) {
+        final Random random = new Random(seed);
+        final Geometries geometries = new Geometries();
+        final Geometries nested = new Geometries();
+        for (int i = 0; i < amount; i++) {
+            final Point center = randomPoint(random, 50);
+            final Intersectable primitive = switch (random.nextInt(4)) {
+                case 0 -> new Sphere(center, 0.2 + 2.8 * random.nextDouble())
+                        .setMaterial(new Material().setKt(random.nextBoolean() ? 0.5 : 0));
+                case 1 -> new Triangle(center, center.add(new Vector(0.5 + 2.5 * random.nextDouble(), 0,
+                        2 * random.nextDouble() - 1)), center.add(new Vector(0, 0.5 + 2.5 * random.nextDouble(),
+                        2 * random.nextDouble() - 1)));
+                case 2 -> {
+                    final Point corner = new Point(Math.round(center.getX()), Math.round(center.getY()),
+                            Math.round(center.getZ()));
+                    final int size = 1 + random.nextInt(20);
+                    final int axis = random.nextInt(3);
+                    final Vector u = axis == 0 ? new Vector(0, size, 0) : new Vector(size, 0, 0);
+                    final Vector v = axis == 2 ? new Vector(0, size, 0) : new Vector(0, 0, size);
+                    yield new Polygon(corner, corner.add(u), corner.add(u).add(v), corner.add(v));
+                }
+                default -> {
+                    final double size = 0.5 + 2.5 * random.nextDouble();
+                    yield new Polygon(center, center.add(new Vector(size, 0, 0)),
+                            center.add(new Vector(size, size, 0)), center.add(new Vector(0, size, 0)))
+                            .setMaterial(new Material().setKt(0.3));
+                }
+            };
+            if (i % 3 == 0)
+                nested.add(primitive);
+            else
+                geometries.add(primitive);
+        }
+        geometries.add(nested);
+        return geometries;
+    }
+
+    /**
+     * creates random rays that aren't parallel to any axis, half of them start inside the cube of
+     * {@link #randomScene(long, int)} and half of them start around it
+     * @param seed the seed of the random numbers
+     * @param amount the amount of rays
+     * @return the rays
+     */
+    static Ray[] obliqueRays(long seed, int amount) {
+        final Random random = new Random(seed);
+        final Ray[] rays = new Ray[amount];
+        for (int i = 0; i < amount; i++) {
+            final double[] direction = new double[3];
+            for (int axis = 0; axis < 3; axis++)
+                direction[axis] = (random.nextBoolean() ? 1 : -1) * (0.05 + random.nextDouble());
+            rays[i] = new Ray(randomPoint(random, i % 2 == 0 ? 50 : 80),
+                    new Vector(direction[0], direction[1], direction[2]));
+        }
+        return rays;
+    }
+
+    /**
+     * @param random the random numbers
+     * @param size half the size of the cube around the origin
+     * @return a random point in the cube
+     */
+    private static Point randomPoint(Random random, double size) {
+        return new Point(size * (2 * random.nextDouble() - 1), size * (2 * random.nextDouble() - 1),
+                size * (2 * random.nextDouble() - 1));
+    }
+
+    /**
+     * creates a copy of a collection that has no acceleration structure, for comparing an accelerated
+     * collection to the plain search over all its geometries
+     * @param geometries the collection
+     * @return the copy, it shares the geometries of the collection
+     */
+    static Geometries bruteForce(Geometries geometries) {
+        return new Geometries(geometries.getGeometries().toArray(new Intersectable[0]));
+    }
+}
@@ -0,0 +1,99 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the BVH builder
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class BVHBuilderTests {
+
+    /**
+     * creates random boxes inside a cube
+     * @param amount the amount of boxes
+     * @return the bounds of the boxes
+     */
+    private static double[] randomBoxes(int amount) {
+        Random random = new Random(7);
+        double[] bounds = new double[6 * amount];
+        for (int i = 0; i < amount; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[6 * i + axis] = random.nextDouble() * 100;
+                bounds[6 * i + 3 + axis] = bounds[6 * i + axis] + random.nextDouble();
+            }
+        return bounds;
+    }
+
+    /**
+     * checks that every box is in exactly one leaf, that no leaf is bigger than the leaf size,
+     * and that every node's bounds hold the bounds of everything under it
+     * @param bounds the bounds of the boxes
+     * @param builder the builder
+     * @param leafSize the maximal amount of boxes in a leaf
+     */
+    private static void assertValidTree(double[] bounds, BVHBuilder builder, int leafSize) {
+        final int[] indices = builder.getIndices();
+        final boolean[] seen = new boolean[indices.length];
+        for (int index : indices) {
+            assertFalse(seen[index], "a box is in more than one leaf");
+            seen[index] = true;
+        }
+
+        final double[] nodeBounds = builder.getNodeBounds();
+        final int[] offsets = builder.getNodeOffsets();
+        final int[] counts = builder.getNodeCounts();
+        for (int node = 0; node < builder.getNodeCount(); node++) {
+            if (counts[node] == 0) {
+                assertContains(nodeBounds, node, nodeBounds, node + 1);
+                assertContains(nodeBounds, node, nodeBounds, offsets[node]);
+                continue;
+            }
+            assertTrue(counts[node] <= leafSize, "a leaf holds more boxes than the leaf size");
+            for (int i = offsets[node]; i < offsets[node] + counts[node]; i++)
+                assertContains(nodeBounds, node, bounds, indices[i]);
+        }
+    }
+
+    /**
+     * checks that a box holds another box
+     */
+    private static void assertContains(double[] outer, int outerIndex, double[] inner, int innerIndex) {
+        for (int axis = 0; axis < 3; axis++) {
+            assertTrue(outer[6 * outerIndex + axis] <= inner[6 * innerIndex + axis], "node bounds too small");
+            assertTrue(outer[6 * outerIndex + 3 + axis] >= inner[6 * innerIndex + 3 + axis], "node bounds too small");
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.BVHBuilder#BVHBuilder(double[], int)}.
+     */
+    @Test
+    void testBuild() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a small set of boxes, built on the calling thread
+        final double[] small = randomBoxes(100);
+        assertValidTree(small, new BVHBuilder(small, 4), 4);
+        // TC02: a big set of boxes, built with fork-join tasks
+        final double[] big = randomBoxes(100_000);
+        assertValidTree(big, new BVHBuilder(big, 4), 4);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single box is a single leaf
+        final BVHBuilder single = new BVHBuilder(randomBoxes(1), 4);
+        assertEquals(1, single.getNodeCount(), "a single box should make a single leaf");
+        // TC12: boxes with the same centroid are still split to the leaf size
+        final double[] same = new double[6 * 50];
+        for (int i = 0; i < 50; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                same[6 * i + axis] = -i;
+                same[6 * i + 3 + axis] = i;
+            }
+        assertValidTree(same, new BVHBuilder(same, 2), 2);
+        // TC13: a leaf must be able to hold at least one box
+        assertThrows(IllegalArgumentException.class, () -> new BVHBuilder(small, 0), "leaf size 0 is illegal");
+    }
+}
@@ -0,0 +1,315 @@
+package renderer;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.AcceleratorTestHelper.*;
+
+/**
+ * Testing the BVH
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class BVHTests {
+
+    /**
+     * Test method for {@link renderer.BVH#BVH(geometries.Geometries, int)}.
+     */
+    @Test
+    void testConstructor() {
+        // =============== Boundary Values Tests ==================
+        // TC11: a leaf must be able to hold at least one primitive
+        assertThrows(IllegalArgumentException.class, () -> new BVH(sphereRow(5), 0), "leaf size 0 is illegal");
+        // TC12: an empty collection has no bounding box
+        assertNull(new BVH(new Geometries()).getBoundingBox(), "empty BVH has a bounding box");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)} after building the BVH
+     * over a flat collection.
+     */
+    @Test
+    void testFlatCollection() {
+        final Geometries brute = sphereRow(200);
+        final Geometries flat = sphereRow(200);
+        flat.buildBVH(2);
+        final Point head = new Point(-5, 0, 0);
+        final Ray along = new Ray(head, new Vector(1, 0, 0));
+        final Ray across = new Ray(new Point(300, 0, 5), new Vector(0, 0, -1));
+        final Ray miss = new Ray(new Point(-5, 5, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray passes through all the spheres
+        assertEquals(400, flat.findIntersections(along).size(), "ray along the row should cross every sphere");
+        assertEquals(sorted(brute.findIntersections(along), head), sorted(flat.findIntersections(along), head),
+                "BVH intersections differ from the intersections without it");
+        // TC02: the ray passes through one sphere
+        assertEquals(List.of(new Point(300, 0, 1), new Point(300, 0, -1)),
+                sorted(flat.findIntersections(across), new Point(300, 0, 5)), "wrong intersections with one sphere");
+        // TC03: the ray misses all the spheres
+        assertNull(flat.findIntersections(miss), "ray shouldn't intersect any sphere");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the distance limit cuts the row after the first two spheres
+        assertEquals(4, flat.findGeoIntersections(along, 9).size(), "distance limit was ignored by the BVH");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)} after building the BVH
+     * over nested collections and an unbounded geometry.
+     */
+    @Test
+    void testNestedCollection() {
+        final Geometries nested = new Geometries(sphereRow(10), new Geometries(sphereRow(3)),
+                new Tube(1, new Ray(new Point(0, 0, -10), new Vector(0, 1, 0))));
+        nested.buildBVH();
+        final Ray ray = new Ray(new Point(0, 0, 5), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray crosses the first sphere of both rows and the tube
+        assertEquals(6, nested.findIntersections(ray).size(), "wrong intersections in a nested collection");
+    }
+
+    /**
+     * Test method for {@link renderer.BVH#BVH(geometries.Geometries)} over a collection with a plane.
+     */
+    @Test
+    void testUnboundedGeometries() {
+        final Geometries geometries = new Geometries(sphereRow(10),
+                new Geometries(new Plane(new Point(0, -2, 0), new Vector(0, 1, 0))));
+        geometries.buildBVH();
+        final BVH bvh = geometries.getBVH();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the plane is kept out of the tree, so the box of the tree is the box of the spheres
+        assertEquals(new Point(-1, -1, -1), bvh.getBoundingBox().getMin(), "the plane made the BVH box infinite");
+        assertEquals(new Point(28, 1, 1), bvh.getBoundingBox().getMax(), "the plane made the BVH box infinite");
+        assertNull(geometries.getBoundingBox(), "a collection with a plane has no finite box");
+        // TC02: the ray crosses a sphere and the plane
+        assertEquals(3, geometries.findIntersections(new Ray(new Point(0, 5, 0), new Vector(0, -1, 0))).size(),
+                "wrong intersections with the sphere and the plane");
+        assertEquals(new Point(0, 1, 0), geometries.findClosestGeoIntersection(
+                        new Ray(new Point(0, 5, 0), new Vector(0, -1, 0)), Double.POSITIVE_INFINITY).point,
+                "wrong closest intersection with the sphere and the plane");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a plane added after the build stays out of the tree as well
+        geometries.add(new Plane(new Point(0, 2, 0), new Vector(0, 1, 0)));
+        assertEquals(new Point(28, 1, 1), bvh.getBoundingBox().getMax(), "an added plane entered the BVH box");
+        assertEquals(4, geometries.findIntersections(new Ray(new Point(0, 5, 0), new Vector(0, -1, 0))).size(),
+                "an added plane is missing from the intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}
+     * after building the BVH.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        final Geometries geometries = sphereRow(200);
+        geometries.buildBVH(2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray goes along the row, the closest point is on the first sphere
+        assertEquals(new Point(-1, 0, 0),
+                geometries.findClosestGeoIntersection(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)),
+                        Double.POSITIVE_INFINITY).point, "wrong closest intersection");
+        // TC02: the ray goes against the row, the closest point is on the last sphere
+        assertEquals(new Point(598, 0, 0),
+                geometries.findClosestGeoIntersection(new Ray(new Point(700, 0, 0), new Vector(-1, 0, 0)),
+                        Double.POSITIVE_INFINITY).point, "wrong closest intersection");
+        // TC03: spheres added after the build are found as well
+        geometries.add(new Sphere(new Point(650, 0, 0), 1));
+        assertEquals(new Point(651, 0, 0),
+                geometries.findClosestGeoIntersection(new Ray(new Point(700, 0, 0), new Vector(-1, 0, 0)),
+                        Double.POSITIVE_INFINITY).point, "an added sphere is missing from the closest intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the closest sphere is farther than the distance limit
+        assertNull(geometries.findClosestGeoIntersection(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)), 3),
+                "distance limit was ignored by the BVH");
+    }
+
+    /**
+     * Test method for {@link renderer.BVH#insert(geometries.Intersectable...)}.
+     */
+    @Test
+    void testInsert() {
+        final Geometries geometries = sphereRow(100);
+        geometries.buildBVH();
+        final BVH bvh = geometries.getBVH();
+        final Point head = new Point(-5, 0, 0);
+        final Ray along = new Ray(head, new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a batch of spheres is added to the end of the row, the BVH is kept
+        for (int i = 100; i < 150; i++)
+            geometries.add(new Sphere(new Point(3 * i, 0, 0), 1));
+        assertSame(bvh, geometries.getBVH(), "adding geometries shouldn't drop the BVH");
+        assertEquals(sorted(sphereRow(150).findIntersections(along), head),
+                sorted(geometries.findIntersections(along), head), "added spheres are missing from the BVH");
+        assertEquals(new Point(448, 1, 1), geometries.getBoundingBox().getMax(), "the bounding box didn't grow");
+        // TC02: single spheres are added one by one in the middle of the row, above it
+        for (int i = 0; i < 20; i++)
+            geometries.add(new Sphere(new Point(15 * i, 5, 0), 1));
+        assertEquals(40, geometries.findIntersections(new Ray(new Point(-5, 5, 0), new Vector(1, 0, 0))).size(),
+                "spheres added one by one are missing from the BVH");
+        assertEquals(300, geometries.findIntersections(along).size(), "the spheres of the row were lost");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: geometries are added to a BVH that was built over no primitives
+        final Geometries empty = new Geometries();
+        empty.buildBVH();
+        empty.add(new Sphere(new Point(0, 0, 0), 1));
+        assertEquals(2, empty.findIntersections(along).size(), "a sphere added to an empty BVH is missing");
+    }
+
+    /**
+     * Test method for {@link renderer.BVH#refit(geometries.Intersectable...)}.
+     */
+    @Test
+    void testRefit() {
+        // a geometry that can be moved, by replacing the sphere it holds
+        class Moving extends Intersectable {
+            Sphere sphere;
+
+            Moving(Sphere sphere) {
+                this.sphere = sphere;
+            }
+
+            @Override
+            protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray, double distance) {
+                return sphere.findGeoIntersections(ray, distance);
+            }
+
+            @Override
+            public BoundingBox getBoundingBox() {
+                return sphere.getBoundingBox();
+            }
+        }
+        final Geometries geometries = new Geometries();
+        final Moving[] moving = new Moving[100];
+        for (int i = 0; i < moving.length; i++) {
+            moving[i] = new Moving(new Sphere(new Point(3 * i, 0, 0), 1));
+            geometries.add(moving[i]);
+        }
+        geometries.buildBVH();
+        final Ray along = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        final Ray above = new Ray(new Point(-5, 10, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a few spheres move up out of the row
+        for (int i = 0; i < 10; i++)
+            moving[10 * i].sphere = new Sphere(new Point(30 * i, 10, 0), 1);
+        geometries.refit(moving[0], moving[10], moving[20], moving[30], moving[40], moving[50], moving[60],
+                moving[70], moving[80], moving[90]);
+        assertEquals(20, geometries.findIntersections(above).size(), "moved spheres weren't found at their place");
+        assertEquals(180, geometries.findIntersections(along).size(), "moved spheres were found at their old place");
+        // TC02: all the spheres move far away, which rebuilds the tree
+        for (int i = 0; i < moving.length; i++)
+            moving[i].sphere = new Sphere(new Point(3 * i, 1000 * (i % 2), 0), 1);
+        geometries.refit(moving);
+        assertEquals(100, geometries.findIntersections(along).size(), "wrong intersections after a rebuild");
+        assertEquals(new Point(-1, -1, -1), geometries.getBoundingBox().getMin(), "wrong box after a rebuild");
+        assertEquals(new Point(298, 1001, 1), geometries.getBoundingBox().getMax(), "wrong box after a rebuild");
+    }
+
+    /**
+     * Test method for {@link renderer.BVH#getStats()}.
+     */
+    @Test
+    void testGetStats() {
+        final Geometries geometries = sphereRow(8);
+        geometries.buildBVH(1);
+        final BVH bvh = geometries.getBVH();
+        final Ray along = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a leaf for every sphere, and an inner node between every two
+        AccelerationStats stats = bvh.getStats();
+        assertEquals(8, stats.getLeafCount(), "wrong amount of leaves");
+        assertEquals(15, stats.getNodeCount(), "wrong amount of nodes");
+        assertEquals(3, stats.getMaxDepth(), "a balanced tree over 8 leaves should have depth 3");
+        assertArrayEquals(new int[]{0, 8}, stats.getLeafHistogram(), "wrong primitives per leaf");
+        assertTrue(stats.getSahCost() > 1, "the cost should hold at least the root's test");
+        // TC02: the counted rays are split by their type
+        bvh.setCountTraversals(true);
+        geometries.findClosestGeoIntersection(along, Double.POSITIVE_INFINITY);
+        geometries.findIntersections(along);
+        geometries.findIntersections(along);
+        stats = bvh.getStats();
+        assertEquals(1, stats.getRayCount(AccelerationStats.RayType.CLOSEST_HIT), "wrong amount of closest hit rays");
+        assertEquals(2, stats.getRayCount(AccelerationStats.RayType.ALL_HITS), "wrong amount of rays");
+        assertEquals(0, stats.getRayCount(AccelerationStats.RayType.SHADOW), "no shadow ray was traced");
+        assertEquals(8, stats.getAveragePrimitiveTests(AccelerationStats.RayType.ALL_HITS),
+                "the ray along the row should test every sphere");
+        assertTrue(stats.getAveragePrimitiveTests(AccelerationStats.RayType.CLOSEST_HIT) < 8,
+                "the closest hit should skip the spheres behind the first one");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: without counting no ray is reported
+        bvh.setCountTraversals(false);
+        geometries.findIntersections(along);
+        assertEquals(0, bvh.getStats().getRayCount(AccelerationStats.RayType.ALL_HITS), "rays counted while off");
+        // TC12: an empty tree has no nodes
+        assertEquals(0, new BVH(new Geometries()).getStats().getNodeCount(), "empty BVH has nodes");
+    }
+
+    /**
+     * Test method for {@link renderer.BVH#findClosestGeoIntersections(primitives.Ray[], double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersections() {
+        final Geometries geometries = sphereRow(100);
+        geometries.buildBVH();
+        final BVH bvh = geometries.getBVH();
+        final Point head = new Point(150, 0, 20);
+        final Ray[] packet = new Ray[16];
+        for (int i = 0; i < 16; i++)
+            packet[i] = new Ray(head, new Vector(3 * i + 1, 0, -20));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a coherent packet finds what every ray finds on its own
+        GeoPoint[] closest = bvh.findClosestGeoIntersections(packet, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < packet.length; i++) {
+            GeoPoint expected = geometries.findClosestGeoIntersection(packet[i], Double.POSITIVE_INFINITY);
+            assertEquals(expected == null ? null : expected.point, closest[i] == null ? null : closest[i].point,
+                    "wrong closest intersection of ray " + i + " in the packet");
+        }
+        // TC02: a camera-style packet whose rays start at different heads along the row
+        final Ray[] spread = new Ray[16];
+        for (int i = 0; i < 16; i++)
+            spread[i] = new Ray(new Point(20 * i, 0, 20), new Vector(0.05, 0.01, -1));
+        closest = bvh.findClosestGeoIntersections(spread, Double.POSITIVE_INFINITY);
+        int hits = 0;
+        for (int i = 0; i < spread.length; i++) {
+            Intersection expected = geometries.findClosestIntersection(spread[i], Double.POSITIVE_INFINITY);
+            assertEquals(expected == null ? null : expected.getPoint(), closest[i] == null ? null : closest[i].point,
+                    "wrong closest intersection of ray " + i + " in the spread packet");
+            if (expected != null)
+                hits++;
+        }
+        assertTrue(hits > 0, "the spread packet should hit the row");
+        // TC03: a packet whose rays go different ways is traced ray by ray
+        final Ray[] divergent = {new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)),
+                new Ray(new Point(400, 0, 0), new Vector(-1, 0, 0))};
+        closest = bvh.findClosestGeoIntersections(divergent, Double.POSITIVE_INFINITY);
+        assertEquals(new Point(-1, 0, 0), closest[0].point, "wrong closest intersection");
+        assertEquals(new Point(298, 0, 0), closest[1].point, "wrong closest intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a packet that misses the whole row
+        closest = bvh.findClosestGeoIntersections(new Ray[]{new Ray(head, new Vector(0, 1, 0)),
+                new Ray(head, new Vector(0, 1, 0.1))}, Double.POSITIVE_INFINITY);
+        assertNull(closest[0], "ray shouldn't intersect any sphere");
+        assertNull(closest[1], "ray shouldn't intersect any sphere");
+        // TC12: the distance limit holds for the whole packet
+        closest = bvh.findClosestGeoIntersections(packet, 5);
+        for (GeoPoint geoPoint : closest)
+            assertNull(geoPoint, "distance limit was ignored by the packet");
+    }
+}
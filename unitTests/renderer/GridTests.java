@@ -0,0 +1,140 @@
+package renderer;
+
+import geometries.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.AcceleratorTestHelper.*;
+
+/**
+ * Testing the uniform grid
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class GridTests {
+
+    /**
+     * Test method for {@link renderer.Grid#Grid(geometries.Geometries)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a long row of spheres is cut mostly along its length
+        final int[] resolution = new Grid(sphereRow(100)).getResolution();
+        assertTrue(resolution[0] > resolution[1] && resolution[0] > resolution[2],
+                "the longest axis should have the most cells");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an empty collection has no bounding box
+        assertNull(new Grid(new Geometries()).getBoundingBox(), "empty grid has a bounding box");
+        // TC12: a flat collection has a single layer of cells
+        final Geometries flat = new Geometries();
+        for (int i = 0; i < 50; i++)
+            flat.add(new Triangle(new Point(i, 0, 0), new Point(i + 1, 0, 0), new Point(i, 1, 0)));
+        assertEquals(1, new Grid(flat).getResolution()[2], "a flat collection should have one layer of cells");
+    }
+
+    /**
+     * creates a row of spheres with a long tilted triangle above it, which is in all the cells along the row,
+     * and a small sphere under the triangle
+     * @return the collection, with its grid built
+     */
+    private static Geometries spannedRow() {
+        final Geometries geometries = new Geometries(sphereRow(200),
+                new Triangle(new Point(0, -1, 3), new Point(0, 1, 3), new Point(297, 0, 1)),
+                new Sphere(new Point(100, 0, 2), 0.5));
+        geometries.buildGrid();
+        return geometries;
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)} after building the grid.
+     */
+    @Test
+    void testFindIntersections() {
+        final Geometries grid = spannedRow();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the ray walks through many cells that all list the triangle, it is tested and found once
+        final Point head = new Point(-5, 0, 2);
+        assertEquals(List.of(new Point(99.5, 0, 2), new Point(100.5, 0, 2), new Point(148.5, 0, 2)),
+                sorted(grid.findIntersections(new Ray(head, new Vector(1, 0, 0))), head),
+                "the triangle over many cells should be found once");
+        // TC02: the ray crosses the triangle between two spheres of the row
+        final Point above = new Point(148.5, 0, 10);
+        assertEquals(List.of(new Point(148.5, 0, 2)),
+                grid.findIntersections(new Ray(above, new Vector(0, 0, -1))), "wrong intersection with the triangle");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the distance limit is between the small sphere and the triangle
+        assertEquals(2, grid.findGeoIntersections(new Ray(head, new Vector(1, 0, 0)), 120).size(),
+                "distance limit was ignored by the grid");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}
+     * after building the grid.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        final Geometries grid = spannedRow();
+        final Ray along = new Ray(new Point(-5, 0, 2), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the triangle is hit in the first cell but beyond it, so the walk goes on to the closer sphere
+        assertEquals(new Point(99.5, 0, 2), grid.findClosestGeoIntersection(along, Double.POSITIVE_INFINITY).point,
+                "the walk stopped at a hit beyond the cell it was found in");
+        // TC02: the hit in the first cell is inside it, so the walk stops there
+        assertEquals(new Point(-1, 0, 0),
+                grid.findClosestGeoIntersection(new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0)),
+                        Double.POSITIVE_INFINITY).point, "wrong closest intersection in the first cell");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the small sphere is just beyond the distance limit
+        assertNull(grid.findClosestGeoIntersection(along, 104), "distance limit was ignored by the grid");
+    }
+
+    /**
+     * Test method for {@link renderer.Grid#getStats()}.
+     */
+    @Test
+    void testGetStats() {
+        final Grid grid = new Grid(sphereRow(8));
+        final Ray along = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+        final int[] resolution = grid.getResolution();
+        final int cells = resolution[0] * resolution[1] * resolution[2];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every cell is a leaf of the flat grid, and every sphere is in at least one cell
+        AccelerationStats stats = grid.getStats();
+        assertEquals(cells, stats.getLeafCount(), "every cell should be a leaf");
+        assertEquals(cells, stats.getNodeCount(), "every cell should be a node");
+        assertEquals(0, stats.getMaxDepth(), "the grid has no depth");
+        assertEquals(cells, Arrays.stream(stats.getLeafHistogram()).sum(), "wrong primitives per cell");
+        assertTrue(stats.getSahCost() > 0, "the cost should hold the tests of the spheres");
+        // TC02: the counted rays are split by their type, and the mailbox tests every sphere once
+        grid.setCountTraversals(true);
+        grid.findClosestGeoIntersection(along, Double.POSITIVE_INFINITY);
+        grid.findIntersections(along);
+        grid.findIntersections(along);
+        stats = grid.getStats();
+        assertEquals(1, stats.getRayCount(AccelerationStats.RayType.CLOSEST_HIT), "wrong amount of closest hit rays");
+        assertEquals(2, stats.getRayCount(AccelerationStats.RayType.ALL_HITS), "wrong amount of rays");
+        assertEquals(0, stats.getRayCount(AccelerationStats.RayType.SHADOW), "no shadow ray was traced");
+        assertEquals(8, stats.getAveragePrimitiveTests(AccelerationStats.RayType.ALL_HITS),
+                "the ray along the row should test every sphere once");
+        assertTrue(stats.getAveragePrimitiveTests(AccelerationStats.RayType.CLOSEST_HIT) < 8,
+                "the closest hit should stop before the spheres behind the first one");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: without counting no ray is reported
+        grid.setCountTraversals(false);
+        grid.findIntersections(along);
+        assertEquals(0, grid.getStats().getRayCount(AccelerationStats.RayType.ALL_HITS), "rays counted while off");
+        // TC12: an empty grid has no cells
+        assertEquals(0, new Grid(new Geometries()).getStats().getNodeCount(), "empty grid has cells");
+    }
+}
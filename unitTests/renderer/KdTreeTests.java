@@ -0,0 +1,182 @@
+package renderer;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.AcceleratorTestHelper.*;
+
+/**
+ * Testing the kd-tree
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class KdTreeTests {
+
+    /**
+     * Test method for {@link renderer.KdTree#KdTree(geometries.Geometries)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a row of spheres is split into a tree
+        final KdTree tree = new KdTree(sphereRow(100));
+        assertTrue(tree.getNodeCount() > 1, "a row of spheres should be split");
+        assertEquals(new Point(-1, -1, -1), tree.getBoundingBox().getMin(), "wrong bounding box");
+        assertEquals(new Point(298, 1, 1), tree.getBoundingBox().getMax(), "wrong bounding box");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an empty collection has no bounding box
+        assertNull(new KdTree(new Geometries()).getBoundingBox(), "empty kd-tree has a bounding box");
+        // TC12: a single primitive is a single leaf
+        assertEquals(1, new KdTree(sphereRow(1)).getNodeCount(), "a single primitive should make a single leaf");
+    }
+
+    /**
+     * creates a room of a row of spheres, a big triangle that is cut by many split planes,
+     * and two walls that lie in split planes
+     * @return the room, without an acceleration structure
+     */
+    private static Geometries room() {
+        final Geometries room = sphereRow(20);
+        room.add(new Triangle(new Point(-10, -10, -10), new Point(70, -10, 10), new Point(-10, 10, 10)),
+                new Polygon(new Point(0, -5, -5), new Point(0, 5, -5), new Point(0, 5, 5), new Point(0, -5, 5)),
+                new Polygon(new Point(3, -5, -5), new Point(3, 5, -5), new Point(3, 5, 5), new Point(3, -5, 5)));
+        return room;
+    }
+
+    /**
+     * creates rays from above the room down through the triangle, to all the sides of it
+     * @return the rays
+     */
+    private static List<Ray> obliqueRoomRays() {
+        final List<Ray> rays = new LinkedList<>();
+        for (int x = -5; x <= 65; x += 5)
+            for (int y = -8; y <= 8; y += 4)
+                for (int dx = -1; dx <= 1; dx += 2)
+                    for (int dy = -1; dy <= 1; dy += 2)
+                        rays.add(new Ray(new Point(x, y, 20), new Vector(0.3 * dx, 0.2 * dy, -1)));
+        return rays;
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findIntersections(primitives.Ray)} after building the kd-tree.
+     */
+    @Test
+    void testFindIntersections() {
+        final Geometries room = room();
+        final Geometries brute = bruteForce(room);
+        room.buildKdTree();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays straight down through the triangle, which is clipped into many leaves
+        for (int x = -5; x <= 65; x += 5) {
+            final Point from = new Point(x, 0.5, 20);
+            final Ray down = new Ray(from, new Vector(0, 0, -1));
+            assertEquals(sorted(brute.findIntersections(down), from), sorted(room.findIntersections(down), from),
+                    "kd-tree intersections differ from the intersections without it");
+        }
+        // TC02: oblique rays cross the split planes of the clipped triangle on the way
+        for (Ray ray : obliqueRoomRays())
+            assertEquals(sorted(brute.findIntersections(ray), ray.getHead()),
+                    sorted(room.findIntersections(ray), ray.getHead()),
+                    "kd-tree intersections of an oblique ray differ from the intersections without it");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the ray goes inside the wall at x = 0, and crosses the triangle and the sphere on both its sides
+        final Point inWall = new Point(0, 0, 20);
+        final Ray down = new Ray(inWall, new Vector(0, 0, -1));
+        assertEquals(sorted(brute.findIntersections(down), inWall), sorted(room.findIntersections(down), inWall),
+                "a ray inside a split plane misses primitives");
+        // TC12: oblique rays inside the planes of the walls
+        for (Ray ray : List.of(new Ray(new Point(0, -8, 20), new Vector(0, 0.3, -1)),
+                new Ray(new Point(3, 8, 20), new Vector(0, -0.3, -1))))
+            assertEquals(sorted(brute.findIntersections(ray), ray.getHead()),
+                    sorted(room.findIntersections(ray), ray.getHead()),
+                    "an oblique ray inside a split plane misses primitives");
+        // TC13: oblique rays that start on the plane of a wall and leave it to either side
+        for (int dx = -1; dx <= 1; dx += 2) {
+            final Ray ray = new Ray(new Point(0, 0.5, 8), new Vector(dx, 0.1, -0.5));
+            assertEquals(sorted(brute.findIntersections(ray), ray.getHead()),
+                    sorted(room.findIntersections(ray), ray.getHead()),
+                    "a ray leaving a split plane misses primitives");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}
+     * after building the kd-tree.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        final Geometries room = room();
+        final Geometries brute = bruteForce(room);
+        room.buildKdTree();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: oblique rays find the closest point through the leaves in front to back order
+        for (Ray ray : obliqueRoomRays())
+            assertEquals(closestPoint(brute, ray), closestPoint(room, ray),
+                    "wrong closest intersection of an oblique ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: an oblique ray inside the plane of a wall, the triangle and the sphere are on both its sides
+        final Ray inWall = new Ray(new Point(0, -8, 20), new Vector(0, 0.3, -1));
+        assertEquals(closestPoint(brute, inWall), closestPoint(room, inWall),
+                "wrong closest intersection of a ray inside a split plane");
+    }
+
+    /**
+     * Test method for {@link renderer.KdTree#getStats()}.
+     */
+    @Test
+    void testGetStats() {
+        final KdTree tree = new KdTree(sphereRow(8));
+        final Ray along = new Ray(new Point(-5, 0, 0), new Vector(1, 0, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every inner node splits in two, and every sphere is in at least one leaf
+        AccelerationStats stats = tree.getStats();
+        assertEquals(tree.getNodeCount(), stats.getNodeCount(), "wrong amount of nodes");
+        assertEquals(2 * stats.getLeafCount() - 1, stats.getNodeCount(), "every inner node should have two children");
+        assertTrue(stats.getMaxDepth() > 0 && stats.getMaxDepth() <= tree.getMaxDepth(), "wrong depth");
+        assertEquals(stats.getLeafCount(), Arrays.stream(stats.getLeafHistogram()).sum(), "wrong primitives per leaf");
+        assertTrue(stats.getSahCost() > 1, "the cost should hold at least the root's visit");
+        // TC02: the counted rays are split by their type, and the mailbox tests every sphere once
+        tree.setCountTraversals(true);
+        tree.findClosestGeoIntersection(along, Double.POSITIVE_INFINITY);
+        tree.findIntersections(along);
+        tree.findIntersections(along);
+        stats = tree.getStats();
+        assertEquals(1, stats.getRayCount(AccelerationStats.RayType.CLOSEST_HIT), "wrong amount of closest hit rays");
+        assertEquals(2, stats.getRayCount(AccelerationStats.RayType.ALL_HITS), "wrong amount of rays");
+        assertEquals(0, stats.getRayCount(AccelerationStats.RayType.SHADOW), "no shadow ray was traced");
+        assertEquals(8, stats.getAveragePrimitiveTests(AccelerationStats.RayType.ALL_HITS),
+                "the ray along the row should test every sphere once");
+        assertTrue(stats.getAveragePrimitiveTests(AccelerationStats.RayType.CLOSEST_HIT) < 8,
+                "the closest hit should stop before the spheres behind the first one");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: without counting no ray is reported
+        tree.setCountTraversals(false);
+        tree.findIntersections(along);
+        assertEquals(0, tree.getStats().getRayCount(AccelerationStats.RayType.ALL_HITS), "rays counted while off");
+        // TC12: an empty tree has no nodes
+        assertEquals(0, new KdTree(new Geometries()).getStats().getNodeCount(), "empty kd-tree has nodes");
+    }
+
+    /**
+     * @param geometries the geometries
+     * @param ray the ray
+     * @return the closest intersection point of the ray with the geometries, null for none
+     */
+    private static Point closestPoint(Geometries geometries, Ray ray) {
+        final GeoPoint closest = geometries.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+        return closest == null ? null : closest.point;
+    }
+}
@@ -0,0 +1,148 @@
+package renderer;
+
+import geometries.Plane;
+import geometries.Sphere;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+import scene.Scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the SimpleRayTracer
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class SimpleRayTracerTests {
+    /** the tolerance of the color components of a ray traced on its own and in a packet */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * creates a small scene of a reflective sphere, a transparent sphere and a mirror floor
+     * @return the scene, with its BVH built
+     */
+    private static Scene reflectiveScene() {
+        Scene scene = new Scene("packet scene").setBackground(new Color(10, 20, 30))
+                .setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+        scene.geometries.add(
+                new Sphere(new Point(-30, 0, -100), 25d).setEmission(new Color(20, 40, 80))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.3).setShininess(50).setKr(0.6)),
+                new Sphere(new Point(30, 0, -100), 25d).setEmission(new Color(80, 20, 20))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.3).setShininess(50).setKt(0.5).setKr(0.2)),
+                new Plane(new Point(0, -25, 0), new Vector(0, 1, 0)).setEmission(new Color(30, 30, 30))
+                        .setMaterial(new Material().setKd(0.5).setKr(0.4)));
+        scene.lights.add(new PointLight(new Color(500, 400, 300), new Point(0, 100, 0)).setKl(0.0005));
+        scene.buildBVH();
+        return scene;
+    }
+
+    /**
+     * creates a packet of camera rays from one head, over a square of the view plane
+     * @param size the amount of rays on a side
+     * @return the rays
+     */
+    private static Ray[] packet(int size) {
+        final Point head = new Point(0, 10, 100);
+        final Ray[] rays = new Ray[size * size];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                rays[i * size + j] = new Ray(head, new Vector(-60 + 120d * j / (size - 1),
+                        -40 + 60d * i / (size - 1), -200));
+        return rays;
+    }
+
+    /**
+     * asserts that two colors are equal within {@link #DELTA}
+     * @param expected the expected color
+     * @param actual the actual color
+     * @param message the message of a failure
+     */
+    private static void assertColor(Color expected, Color actual, String message) {
+        final Vec3 e = new Vec3().set(expected), a = new Vec3().set(actual);
+        assertEquals(e.x, a.x, DELTA, message);
+        assertEquals(e.y, a.y, DELTA, message);
+        assertEquals(e.z, a.z, DELTA, message);
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#traceRays(primitives.Ray[])}.
+     */
+    @Test
+    void testTraceRays() {
+        final Scene scene = reflectiveScene();
+        final SimpleRayTracer tracer = new SimpleRayTracer(scene);
+        final Ray[] rays = packet(8);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a packet traced depth-first has the colors of its rays traced on their own
+        Color[] colors = tracer.setSortSecondaryRays(false).traceRays(rays);
+        for (int i = 0; i < rays.length; i++)
+            assertColor(tracer.traceRay(rays[i]), colors[i], "wrong color of ray " + i + " in the packet");
+        // TC02: sorting the secondary rays and tracing them level by level doesn't change the colors
+        colors = tracer.setSortSecondaryRays(true).traceRays(rays);
+        for (int i = 0; i < rays.length; i++)
+            assertColor(tracer.traceRay(rays[i]), colors[i], "wrong color of ray " + i + " with sorting");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a packet of a single ray
+        final Ray[] single = {rays[27]};
+        assertColor(tracer.traceRay(single[0]), tracer.traceRays(single)[0], "wrong color of a single ray");
+        // TC12: a packet that misses everything gets the background
+        final Ray[] up = {new Ray(new Point(0, 10, 100), new Vector(0, 1, 0)),
+                new Ray(new Point(0, 10, 100), new Vector(0.1, 1, 0))};
+        for (Color color : tracer.traceRays(up))
+            assertColor(scene.background, color, "a missing ray didn't get the background");
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#spreadBits(long)}.
+     */
+    @Test
+    void testSpreadBits() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every bit moves to three times its place
+        assertEquals(0b1000001001L, SimpleRayTracer.spreadBits(0b1011), "wrong spread bits");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: zero stays zero
+        assertEquals(0, SimpleRayTracer.spreadBits(0), "wrong spread of zero");
+        // TC12: all the ten bits of a cell
+        assertEquals(0b001001001001001001001001001001L, SimpleRayTracer.spreadBits(1023), "wrong spread of all bits");
+    }
+
+    /**
+     * Test method for {@link renderer.SimpleRayTracer#sortKey(primitives.Ray, double[])}.
+     */
+    @Test
+    void testSortKey() {
+        final double[] bounds = {0, 0, 0, 10, 10, 10};
+        final Vector up = new Vector(1, 1, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the octant comes before the head - a ray going down x from the lowest corner sorts after
+        // a ray going up from the highest corner
+        assertTrue(SimpleRayTracer.sortKey(new Ray(new Point(10, 10, 10), up), bounds)
+                        < SimpleRayTracer.sortKey(new Ray(Point.ZERO, new Vector(-1, 1, 1)), bounds),
+                "the octant doesn't come first in the key");
+        // TC02: the octants are ordered by the signs of x, y and z, as the ray's sign bits
+        assertTrue(SimpleRayTracer.sortKey(new Ray(Point.ZERO, new Vector(-1, 1, 1)), bounds)
+                        < SimpleRayTracer.sortKey(new Ray(Point.ZERO, new Vector(1, -1, 1)), bounds),
+                "the y octant should sort after the x octant");
+        assertTrue(SimpleRayTracer.sortKey(new Ray(Point.ZERO, new Vector(-1, -1, 1)), bounds)
+                        < SimpleRayTracer.sortKey(new Ray(Point.ZERO, new Vector(1, 1, -1)), bounds),
+                "the z octant should sort after the x and y octants");
+        // TC03: in an octant the heads are ordered by their Morton code, z is the highest bit of every level
+        assertTrue(SimpleRayTracer.sortKey(new Ray(new Point(9, 9, 0), up), bounds)
+                        < SimpleRayTracer.sortKey(new Ray(new Point(0, 0, 9), up), bounds),
+                "a head with a higher z cell should sort later");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: the lowest corner of the heads has the lowest key of its octant
+        assertEquals(0, SimpleRayTracer.sortKey(new Ray(Point.ZERO, up), bounds), "wrong key of the lowest corner");
+        // TC12: heads on a flat axis all get its first cell
+        assertEquals(SimpleRayTracer.sortKey(new Ray(new Point(5, 5, 0), up), new double[]{0, 0, 0, 10, 10, 0}),
+                SimpleRayTracer.sortKey(new Ray(new Point(5, 5, 0), up), bounds),
+                "a flat axis should get the first cell");
+    }
+}
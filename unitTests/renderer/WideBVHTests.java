@@ -0,0 +1,67 @@
+package renderer;
+
+import geometries.*;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static renderer.AcceleratorTestHelper.*;
+
+/**
+ * Testing the wide BVH
+ * @author Tomere Kalman and Yosef Kornfeld
+ */
+class WideBVHTests {
+
+    /**
+     * Test method for {@link renderer.WideBVH#WideBVH(geometries.Geometries, int, int)}.
+     */
+    @Test
+    void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every node holds up to 4 children, so 64 leaves are 3 levels deep
+        final AccelerationStats stats = new WideBVH(sphereRow(64), 4, 1).getStats();
+        assertEquals(64, stats.getLeafCount(), "wrong amount of leaves");
+        assertEquals(3, stats.getMaxDepth(), "a node should hold 4 children");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a node must be able to hold at least two children
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(sphereRow(5), 1, 4), "width 1 is illegal");
+        // TC12: a node can't hold more children than the lanes of a test
+        assertThrows(IllegalArgumentException.class, () -> new WideBVH(sphereRow(5), 9, 4), "width 9 is illegal");
+        // TC13: a single leaf is in a lane of the root
+        assertEquals(1, new WideBVH(sphereRow(1)).getStats().getLeafCount(), "the single sphere is missing");
+        // TC14: an empty collection has no bounding box
+        assertNull(new WideBVH(new Geometries()).getBoundingBox(), "empty wide BVH has a bounding box");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}
+     * with a wide BVH.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        final Geometries diagonal = new Geometries();
+        for (int i = 0; i < 256; i++)
+            diagonal.add(new Sphere(new Point(3 * i, 2 * i, i), 1));
+        final WideBVH wide = new WideBVH(diagonal).setCountTraversals(true);
+        final Vector direction = new Vector(3, 2, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: going up the diagonal row, the lanes are visited from the closest box, and the first sphere ends it
+        final Point below = new Point(-6, -4, -2);
+        assertEquals(below.add(direction.normalize().scale(direction.length() * 2 - 1)),
+                wide.findClosestGeoIntersection(new Ray(below, direction), Double.POSITIVE_INFINITY).point,
+                "wrong closest intersection up the row");
+        assertTrue(wide.getStats().getAveragePrimitiveTests(AccelerationStats.RayType.CLOSEST_HIT) <= 4,
+                "the lanes up the row aren't visited from the closest");
+        // TC02: going down the diagonal row, the closest lanes are the last ones of every node
+        final WideBVH down = new WideBVH(diagonal).setCountTraversals(true);
+        final Point above = new Point(3 * 257, 2 * 257, 257);
+        assertEquals(above.add(direction.normalize().scale(1 - direction.length() * 2)),
+                down.findClosestGeoIntersection(new Ray(above, direction.scale(-1)), Double.POSITIVE_INFINITY).point,
+                "wrong closest intersection down the row");
+        assertTrue(down.getStats().getAveragePrimitiveTests(AccelerationStats.RayType.CLOSEST_HIT) <= 4,
+                "the lanes down the row aren't visited from the closest");
+    }
+}